@@ -0,0 +1,82 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.geo.GeoDistance;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+/**
+ * Coût de {@link RewardsService#getDistance(Location, Location)}, boucle la plus interne
+ * du calcul des récompenses et du tri des attractions, pour chaque formule de distance,
+ * et d'un test de seuil par comparaison de cordes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+	@Param({"SPHERICAL_LAW_OF_COSINES", "HAVERSINE", "EQUIRECTANGULAR"})
+	public GeoDistance.Mode mode;
+
+	private TourGuideExecutor executor;
+	private RewardsService rewardsService;
+	private List<Attraction> attractions;
+	private Location[] locations;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		StubGpsUtil gpsUtil = new StubGpsUtil(0);
+		executor = new TourGuideExecutor();
+		rewardsService = new RewardsService(gpsUtil, executor,
+				new RewardPointsLoader(new StubRewardCentral(0), executor), mode);
+		attractions = gpsUtil.getAttractions();
+		locations = Fixtures.locations(1024);
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.close();
+	}
+
+	@Benchmark
+	public double getDistance() {
+		int i = next++ & 1023;
+		return rewardsService.getDistance(attractions.get(i % attractions.size()), locations[i]);
+	}
+
+	@Benchmark
+	public void getDistanceToAllAttractions(Blackhole blackhole) {
+		Location location = locations[next++ & 1023];
+		for (Attraction attraction : attractions) {
+			blackhole.consume(rewardsService.getDistance(attraction, location));
+		}
+	}
+
+	@Benchmark
+	public boolean isWithinAttractionProximity() {
+		int i = next++ & 1023;
+		return rewardsService.isWithinAttractionProximity(attractions.get(i % attractions.size()), locations[i]);
+	}
+}
@@ -0,0 +1,49 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.User;
+
+/**
+ * Jeux de données reproductibles pour les benchmarks.
+ */
+final class Fixtures {
+	static final long SEED = 42;
+
+	private Fixtures() {
+	}
+
+	static List<User> users(int userCount, int historyLength) {
+		Random random = new Random(SEED);
+		List<User> users = new ArrayList<>(userCount);
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < userCount; i++) {
+			UUID userId = new UUID(random.nextLong(), random.nextLong());
+			User user = new User(userId, "benchmarkUser" + i, "000", "benchmarkUser" + i + "@tourGuide.com");
+			for (int j = 0; j < historyLength; j++) {
+				user.addToVisitedLocations(new VisitedLocation(userId, location(random), new Date(now - j * 60_000L)));
+			}
+			users.add(user);
+		}
+		return users;
+	}
+
+	static Location[] locations(int count) {
+		Random random = new Random(SEED);
+		Location[] locations = new Location[count];
+		for (int i = 0; i < count; i++) {
+			locations[i] = location(random);
+		}
+		return locations;
+	}
+
+	private static Location location(Random random) {
+		return new Location(-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360);
+	}
+}
@@ -0,0 +1,139 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mesures de la JVM autour d'une exécution : octets alloués, pic de tas et ramasse-miettes.
+ *
+ * Sur un JDK 21 ou plus, les allocations sont lues pour l'ensemble des threads, virtuels
+ * compris. Sinon elles sont sommées sur les threads vivants en fin de mesure : celles d'un
+ * thread terminé entre-temps sont perdues, la valeur est alors un minorant. Le pic de tas est
+ * la somme des pics de chaque zone, un majorant du pic réel.
+ */
+final class JvmProbe {
+	private static final Method TOTAL_ALLOCATED = totalAllocatedMethod();
+
+	private final long startNanos;
+	private final long startAllocated;
+	private final Map<Long, Long> startAllocatedByThread;
+	private final long startGcCount;
+	private final long startGcMillis;
+
+	private JvmProbe() {
+		this.startAllocatedByThread = TOTAL_ALLOCATED == null ? allocatedByThread() : Map.of();
+		this.startAllocated = totalAllocated();
+		this.startGcCount = gcCount();
+		this.startGcMillis = gcMillis();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Déclenche un ramasse-miettes puis remet à zéro les pics des zones du tas : le pic mesuré
+	 * inclut ainsi les données déjà chargées, mais pas les déchets de leur construction.
+	 */
+	static JvmProbe start() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+			}
+		}
+		return new JvmProbe();
+	}
+
+	Sample stop() {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long allocated;
+		if (TOTAL_ALLOCATED != null) {
+			allocated = totalAllocated() - startAllocated;
+		} else if (!threadAllocationEnabled()) {
+			allocated = -1;
+		} else {
+			allocated = 0;
+			for (Map.Entry<Long, Long> thread : allocatedByThread().entrySet()) {
+				allocated += thread.getValue() - startAllocatedByThread.getOrDefault(thread.getKey(), 0L);
+			}
+		}
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		return new Sample(elapsedNanos, allocated, peakHeap, gcCount() - startGcCount, gcMillis() - startGcMillis);
+	}
+
+	/**
+	 * {@code allocatedBytes} vaut -1 si la JVM ne mesure pas les allocations par thread.
+	 */
+	record Sample(long elapsedNanos, long allocatedBytes, long peakHeapBytes, long gcCount, long gcMillis) {
+	}
+
+	private static long totalAllocated() {
+		if (TOTAL_ALLOCATED == null) {
+			return 0;
+		}
+		try {
+			return (long) TOTAL_ALLOCATED.invoke(ManagementFactory.getThreadMXBean());
+		} catch (ReflectiveOperationException e) {
+			return 0;
+		}
+	}
+
+	private static Map<Long, Long> allocatedByThread() {
+		Map<Long, Long> allocated = new HashMap<>();
+		if (threadAllocationEnabled()) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			long[] ids = threads.getAllThreadIds();
+			long[] bytes = threads.getThreadAllocatedBytes(ids);
+			for (int i = 0; i < ids.length; i++) {
+				if (bytes[i] >= 0) {
+					allocated.put(ids[i], bytes[i]);
+				}
+			}
+		}
+		return allocated;
+	}
+
+	private static boolean threadAllocationEnabled() {
+		return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+				&& threads.isThreadAllocatedMemoryEnabled();
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+	/**
+	 * {@code getTotalThreadAllocatedBytes} n'existe qu'à partir du JDK 21.
+	 */
+	private static Method totalAllocatedMethod() {
+		if (!threadAllocationEnabled()) {
+			return null;
+		}
+		try {
+			Method method = com.sun.management.ThreadMXBean.class.getMethod("getTotalThreadAllocatedBytes");
+			return (long) method.invoke(ManagementFactory.getThreadMXBean()) >= 0 ? method : null;
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.benchmark;
+
+final class Latency {
+
+	private Latency() {
+	}
+
+	static void pause(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
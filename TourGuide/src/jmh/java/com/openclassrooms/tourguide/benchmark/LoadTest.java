@@ -0,0 +1,96 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Balayage de charge au-delà de {@code TestPerformance} : nombre d'utilisateurs, longueur
+ * d'historique et nombre de cœurs, pour le suivi ({@code trackUserWithRewardsAsync}) et le
+ * calcul des récompenses, contre les services simulés. Chaque exécution mesure le débit, les
+ * latences p50/p99 par utilisateur, le débit d'allocation et le pic de tas ; le
+ * {@link ScalingReport} repère où chaque chemin cesse de passer linéairement à l'échelle.
+ *
+ * Chaque nombre de cœurs est mesuré dans une JVM dédiée ({@link LoadTestWorker}) lancée avec
+ * {@code -XX:ActiveProcessorCount}, qui dimensionne les pools de la JVM et du JDK. Sous Linux,
+ * si {@code taskset} est disponible, la JVM est en outre restreinte à ces cœurs ; sans lui, les
+ * threads plateforme de la couche d'exécution peuvent encore s'étendre sur tous les cœurs, ce
+ * que signale la colonne {@code cpuPinned}.
+ *
+ * Résultats : {@code target/loadtest/scaling.csv} et {@code scaling.json}.
+ */
+public final class LoadTest {
+	private static final Path TASKSET = Path.of("/usr/bin/taskset");
+
+	private LoadTest() {
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		LoadTestOptions options = LoadTestOptions.parse(args);
+		Files.createDirectories(options.output);
+		List<LoadTestResult> results = new ArrayList<>();
+		if (options.fork) {
+			for (int cores : options.cores) {
+				results.addAll(fork(options, cores));
+			}
+		} else {
+			results.addAll(inProcess(options));
+		}
+
+		ScalingReport report = new ScalingReport(results, options.linearThreshold);
+		report.write(options.output);
+		report.print(System.out);
+		System.out.println("Scaling report written to " + options.output.toAbsolutePath());
+	}
+
+	private static List<LoadTestResult> fork(LoadTestOptions options, int cores)
+			throws IOException, InterruptedException {
+		Path results = options.output.resolve("cores-" + cores + ".csv");
+		Files.deleteIfExists(results);
+		boolean pinned = Files.isExecutable(TASKSET) && cores <= Runtime.getRuntime().availableProcessors();
+
+		List<String> command = new ArrayList<>();
+		if (pinned) {
+			command.addAll(List.of(TASKSET.toString(), "-c", "0-" + (cores - 1)));
+		}
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-XX:ActiveProcessorCount=" + cores);
+		if (options.heap != null) {
+			command.add("-Xms" + options.heap);
+			command.add("-Xmx" + options.heap);
+		}
+		command.addAll(List.of("-cp", System.getProperty("java.class.path"), LoadTestWorker.class.getName()));
+		command.addAll(options.workerArgs(cores, results, pinned));
+
+		int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+		if (exitCode != 0) {
+			System.err.printf("Worker for %d cores exited with code %d, keeping its completed runs%n", cores, exitCode);
+		}
+		return read(results);
+	}
+
+	/**
+	 * Sans JVM dédiée, le nombre de cœurs n'est pas contraint : une seule passe est mesurée avec
+	 * les processeurs disponibles.
+	 */
+	private static List<LoadTestResult> inProcess(LoadTestOptions options) throws IOException, InterruptedException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		Path results = options.output.resolve("cores-" + cores + ".csv");
+		Files.deleteIfExists(results);
+		LoadTestOptions worker = LoadTestOptions.parse(options.workerArgs(cores, results, false).toArray(String[]::new));
+		new LoadTestWorker(worker).runAll();
+		return read(results);
+	}
+
+	private static List<LoadTestResult> read(Path results) throws IOException {
+		if (!Files.exists(results)) {
+			return List.of();
+		}
+		return Files.readAllLines(results).stream()
+				.filter(line -> !line.isBlank())
+				.map(LoadTestResult::fromCsv)
+				.toList();
+	}
+}
@@ -0,0 +1,111 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.tracker.Tracker;
+
+/**
+ * Paramètres du balayage de charge, passés sous la forme {@code --nom=valeur}. Les listes sont
+ * séparées par des virgules, par exemple {@code --users=1000,100000 --cores=1,4}.
+ */
+final class LoadTestOptions {
+
+	enum Scenario { TRACKING, REWARDS }
+
+	List<Integer> users = List.of(1_000, 10_000, 100_000, 1_000_000);
+	List<Integer> histories = List.of(3, 30);
+	List<Integer> cores = defaultCores(Runtime.getRuntime().availableProcessors());
+	List<Scenario> scenarios = List.of(Scenario.TRACKING, Scenario.REWARDS);
+	String gpsLatency = "fixed:1";
+	String rewardsLatency = "fixed:1";
+	long seed = CallSimulator.DEFAULT_SEED;
+	int maxInFlight = Tracker.DEFAULT_MAX_IN_FLIGHT;
+	double linearThreshold = 0.8;
+	Path output = Path.of("target", "loadtest");
+	String heap;
+	boolean fork = true;
+	boolean pinned;
+
+	private LoadTestOptions() {
+	}
+
+	static LoadTestOptions parse(String[] args) {
+		LoadTestOptions options = new LoadTestOptions();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+			}
+			String value = arg.substring(separator + 1);
+			switch (arg.substring(2, separator)) {
+			case "users" -> options.users = integers(value);
+			case "history" -> options.histories = integers(value);
+			case "cores" -> options.cores = integers(value);
+			case "scenarios" -> options.scenarios = Arrays.stream(value.split(","))
+					.map(s -> Scenario.valueOf(s.trim().toUpperCase(Locale.ROOT)))
+					.toList();
+			case "gps-latency" -> options.gpsLatency = value;
+			case "rewards-latency" -> options.rewardsLatency = value;
+			case "seed" -> options.seed = Long.parseLong(value);
+			case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+			case "linear-threshold" -> options.linearThreshold = Double.parseDouble(value);
+			case "output" -> options.output = Path.of(value);
+			case "heap" -> options.heap = value;
+			case "fork" -> options.fork = Boolean.parseBoolean(value);
+			case "pinned" -> options.pinned = Boolean.parseBoolean(value);
+			default -> throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * @return les arguments d'un processus de mesure limité à {@code coreCount} cœurs
+	 */
+	List<String> workerArgs(int coreCount, Path results, boolean cpuPinned) {
+		List<String> args = new ArrayList<>();
+		args.add("--users=" + join(users));
+		args.add("--history=" + join(histories));
+		args.add("--cores=" + coreCount);
+		args.add("--scenarios=" + String.join(",", scenarios.stream().map(Enum::name).toList()));
+		args.add("--gps-latency=" + gpsLatency);
+		args.add("--rewards-latency=" + rewardsLatency);
+		args.add("--seed=" + seed);
+		args.add("--max-in-flight=" + maxInFlight);
+		args.add("--output=" + results);
+		args.add("--pinned=" + cpuPinned);
+		return args;
+	}
+
+	/**
+	 * Puissances de deux jusqu'au nombre de processeurs disponibles, celui-ci compris.
+	 */
+	static List<Integer> defaultCores(int available) {
+		TreeSet<Integer> cores = new TreeSet<>();
+		for (int count = 1; count < available; count *= 2) {
+			cores.add(count);
+		}
+		cores.add(available);
+		return List.copyOf(cores);
+	}
+
+	private static List<Integer> integers(String value) {
+		return Arrays.stream(value.split(","))
+				.map(String::trim)
+				.map(s -> s.replace("_", ""))
+				.map(Integer::valueOf)
+				.sorted()
+				.distinct()
+				.toList();
+	}
+
+	private static String join(List<Integer> values) {
+		return String.join(",", values.stream().map(String::valueOf).toList());
+	}
+}
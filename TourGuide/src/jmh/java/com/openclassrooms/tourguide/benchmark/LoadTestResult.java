@@ -0,0 +1,69 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Locale;
+
+import com.openclassrooms.tourguide.benchmark.LoadTestOptions.Scenario;
+
+/**
+ * Mesures d'une exécution du balayage de charge : un scénario, un nombre d'utilisateurs, une
+ * longueur d'historique et un nombre de cœurs. Les latences sont celles de chaque utilisateur,
+ * de la soumission de son traitement à sa fin. Une valeur négative signale une mesure absente.
+ */
+record LoadTestResult(Scenario scenario, int cores, int users, int history, Status status, boolean cpuPinned,
+		long elapsedMillis, double throughput, double p50Micros, double p99Micros, double allocatedMb,
+		double allocationMbPerSecond, double peakHeapMb, long gcCount, long gcMillis, long failures) {
+
+	enum Status {
+		OK,
+		/** Non exécutée : le tas estimé dépasse le tas disponible. */
+		SKIPPED,
+		/** Interrompue faute de mémoire. */
+		OUT_OF_MEMORY
+	}
+
+	static final String CSV_HEADER = "scenario,cores,users,history,status,cpuPinned,elapsedMillis,throughput,"
+			+ "p50Micros,p99Micros,allocatedMb,allocationMbPerSecond,peakHeapMb,gcCount,gcMillis,failures";
+
+	static LoadTestResult notRun(Scenario scenario, int cores, int users, int history, Status status,
+			boolean cpuPinned) {
+		return new LoadTestResult(scenario, cores, users, history, status, cpuPinned, -1, -1, -1, -1, -1, -1, -1, -1,
+				-1, -1);
+	}
+
+	boolean isOk() {
+		return status == Status.OK;
+	}
+
+	String toCsv() {
+		return String.join(",", scenario.name(), String.valueOf(cores), String.valueOf(users), String.valueOf(history),
+				status.name(), String.valueOf(cpuPinned), String.valueOf(elapsedMillis), number(throughput),
+				number(p50Micros), number(p99Micros), number(allocatedMb), number(allocationMbPerSecond),
+				number(peakHeapMb), String.valueOf(gcCount), String.valueOf(gcMillis), String.valueOf(failures));
+	}
+
+	static LoadTestResult fromCsv(String line) {
+		String[] f = line.split(",");
+		if (f.length != 16) {
+			throw new IllegalArgumentException("Expected 16 columns, got: " + line);
+		}
+		return new LoadTestResult(Scenario.valueOf(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+				Integer.parseInt(f[3]), Status.valueOf(f[4]), Boolean.parseBoolean(f[5]), Long.parseLong(f[6]),
+				Double.parseDouble(f[7]), Double.parseDouble(f[8]), Double.parseDouble(f[9]), Double.parseDouble(f[10]),
+				Double.parseDouble(f[11]), Double.parseDouble(f[12]), Long.parseLong(f[13]), Long.parseLong(f[14]),
+				Long.parseLong(f[15]));
+	}
+
+	String toJson() {
+		return String.format(Locale.ROOT, "{\"scenario\":\"%s\",\"cores\":%d,\"users\":%d,\"history\":%d,"
+				+ "\"status\":\"%s\",\"cpuPinned\":%b,\"elapsedMillis\":%d,\"throughput\":%s,\"p50Micros\":%s,"
+				+ "\"p99Micros\":%s,\"allocatedMb\":%s,\"allocationMbPerSecond\":%s,\"peakHeapMb\":%s,"
+				+ "\"gcCount\":%d,\"gcMillis\":%d,\"failures\":%d}",
+				scenario, cores, users, history, status, cpuPinned, elapsedMillis, number(throughput),
+				number(p50Micros), number(p99Micros), number(allocatedMb), number(allocationMbPerSecond),
+				number(peakHeapMb), gcCount, gcMillis, failures);
+	}
+
+	static String number(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -0,0 +1,179 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.benchmark.LoadTestOptions.Scenario;
+import com.openclassrooms.tourguide.benchmark.LoadTestResult.Status;
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.client.simulation.LatencyProfile;
+import com.openclassrooms.tourguide.client.simulation.SimulatedLocationClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedRewardPointsClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedTripPricingClient;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Processus de mesure lancé par {@link LoadTest} pour un nombre de cœurs donné : exécute chaque
+ * combinaison scénario × historique × nombre d'utilisateurs, par taille croissante, et ajoute
+ * une ligne CSV par exécution au fichier de résultats.
+ *
+ * Les services externes sont remplacés par les simulateurs déterministes. Chaque exécution part
+ * de services, d'une couche d'exécution et d'utilisateurs neufs ; comme le {@link
+ * com.openclassrooms.tourguide.tracker.Tracker}, au plus {@code maxInFlight} utilisateurs sont
+ * traités à la fois. Une exécution dont le tas estimé dépasse le tas disponible n'est pas
+ * lancée, pas plus que les tailles supérieures du même scénario.
+ */
+public final class LoadTestWorker {
+	private static final int WARMUP_USERS = 1_000;
+	// Estimation grossière de l'empreinte : utilisateur et structures associées, puis chaque localisation
+	private static final long BYTES_PER_USER = 2_048;
+	private static final long BYTES_PER_LOCATION = 160;
+	private static final double HEAP_BUDGET = 0.75;
+
+	private final LoadTestOptions options;
+	private final int cores;
+	private final LatencyProfile gpsLatency;
+	private final LatencyProfile rewardsLatency;
+
+	LoadTestWorker(LoadTestOptions options) {
+		this.options = options;
+		this.cores = options.cores.get(0);
+		this.gpsLatency = LatencyProfile.parse(options.gpsLatency);
+		this.rewardsLatency = LatencyProfile.parse(options.rewardsLatency);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		LoadTestOptions options = LoadTestOptions.parse(args);
+		if (options.cores.size() != 1) {
+			throw new IllegalArgumentException("A worker measures a single core count, got " + options.cores);
+		}
+		new LoadTestWorker(options).runAll();
+		System.exit(0);
+	}
+
+	void runAll() throws IOException, InterruptedException {
+		Files.createDirectories(options.output.toAbsolutePath().getParent());
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(options.output, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND))) {
+			for (Scenario scenario : options.scenarios) {
+				run(scenario, Math.min(WARMUP_USERS, options.users.get(0)), options.histories.get(0));
+				for (int history : options.histories) {
+					boolean exhausted = false;
+					for (int users : options.users) {
+						LoadTestResult result;
+						if (exhausted || !fitsInHeap(users, history)) {
+							result = LoadTestResult.notRun(scenario, cores, users, history, Status.SKIPPED, options.pinned);
+						} else {
+							result = measure(scenario, users, history);
+						}
+						exhausted = !result.isOk();
+						System.out.printf("[%d cores] %s users=%d history=%d: %s%n", cores, scenario, users, history,
+								result.isOk() ? String.format(Locale.ROOT, "%.0f users/s, p99 %.1f ms", result.throughput(),
+										result.p99Micros() / 1e3) : result.status());
+						out.println(result.toCsv());
+						out.flush();
+					}
+				}
+			}
+		}
+	}
+
+	private LoadTestResult measure(Scenario scenario, int userCount, int history) throws InterruptedException {
+		try {
+			return run(scenario, userCount, history);
+		} catch (OutOfMemoryError e) {
+			return LoadTestResult.notRun(scenario, cores, userCount, history, Status.OUT_OF_MEMORY, options.pinned);
+		}
+	}
+
+	private LoadTestResult run(Scenario scenario, int userCount, int history) throws InterruptedException {
+		TourGuideExecutor executor = new TourGuideExecutor();
+		SimulatedLocationClient locationClient = new SimulatedLocationClient(
+				SimulatedLocationClient.defaultAttractions(), new CallSimulator(options.seed, gpsLatency, 0));
+		RewardsService rewardsService = new RewardsService(locationClient,
+				new SimulatedRewardPointsClient(new CallSimulator(options.seed + 1, rewardsLatency, 0)), executor);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationClient,
+				new SimulatedTripPricingClient(options.seed), rewardsService, executor);
+		tourGuideService.tracker.stopTracking();
+		try {
+			List<User> users = Fixtures.users(userCount, history);
+			if (scenario == Scenario.TRACKING) {
+				users.forEach(tourGuideService::addUser);
+			} else {
+				Attraction attraction = locationClient.getAttractions().get(0);
+				users.forEach(u -> u.addToVisitedLocations(new VisitedLocation(u.getUserId(), attraction, new Date())));
+			}
+
+			long[] latencies = new long[userCount];
+			LongAdder failures = new LongAdder();
+			Semaphore inFlight = new Semaphore(options.maxInFlight);
+			JvmProbe probe = JvmProbe.start();
+			for (int i = 0; i < userCount; i++) {
+				int index = i;
+				User user = users.get(i);
+				inFlight.acquire();
+				long submitted = System.nanoTime();
+				try {
+					CompletableFuture<?> work = scenario == Scenario.TRACKING
+							? tourGuideService.trackUserWithRewardsAsync(user)
+							: rewardsService.calculateRewards(user);
+					work.whenComplete((value, e) -> {
+						latencies[index] = System.nanoTime() - submitted;
+						if (e != null) {
+							failures.increment();
+						}
+						inFlight.release();
+					});
+				} catch (RuntimeException e) {
+					latencies[index] = System.nanoTime() - submitted;
+					failures.increment();
+					inFlight.release();
+				}
+			}
+			inFlight.acquire(options.maxInFlight); // attend la fin de tous les traitements
+			JvmProbe.Sample sample = probe.stop();
+
+			Arrays.sort(latencies);
+			double seconds = sample.elapsedNanos() / 1e9;
+			double allocatedMb = sample.allocatedBytes() < 0 ? -1 : sample.allocatedBytes() / 1e6;
+			return new LoadTestResult(scenario, cores, userCount, history, Status.OK, options.pinned,
+					TimeUnit.NANOSECONDS.toMillis(sample.elapsedNanos()), userCount / seconds,
+					percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3, allocatedMb,
+					allocatedMb < 0 ? -1 : allocatedMb / seconds, sample.peakHeapBytes() / 1e6, sample.gcCount(),
+					sample.gcMillis(), failures.sum());
+		} finally {
+			rewardsService.close();
+			executor.close();
+		}
+	}
+
+	private boolean fitsInHeap(int users, int history) {
+		long estimate = users * (BYTES_PER_USER + (history + 1) * BYTES_PER_LOCATION);
+		return estimate <= Runtime.getRuntime().maxMemory() * HEAP_BUDGET;
+	}
+
+	/**
+	 * Rang le plus proche, sur des valeurs triées.
+	 */
+	static long percentile(long[] sorted, double quantile) {
+		int rank = (int) Math.ceil(quantile * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+/**
+ * Passe complète de calcul des récompenses ({@code processRewards}) sur un lot d'utilisateurs
+ * dont l'historique n'a pas encore été examiné. Chaque itération repart d'utilisateurs et d'un
+ * cache de points neufs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RewardsBenchmark {
+	@Param({"1000", "10000"})
+	public int userCount;
+
+	@Param({"10", "100"})
+	public int historyLength;
+
+	@Param({"0", "1"})
+	public long rewardLatencyMillis;
+
+	private TourGuideExecutor executor;
+	private RewardsService rewardsService;
+	private List<User> users;
+
+	@Setup(Level.Trial)
+	public void startExecutor() {
+		executor = new TourGuideExecutor();
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		rewardsService = new RewardsService(new StubGpsUtil(0), new StubRewardCentral(rewardLatencyMillis), executor);
+		users = Fixtures.users(userCount, historyLength);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopExecutor() {
+		executor.close();
+	}
+
+	@Benchmark
+	public boolean calculateRewards() throws InterruptedException {
+		users.forEach(rewardsService::calculateRewards);
+		return rewardsService.awaitTermination(10, TimeUnit.MINUTES);
+	}
+}
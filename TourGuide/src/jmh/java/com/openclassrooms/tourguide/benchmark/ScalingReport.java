@@ -0,0 +1,201 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import com.openclassrooms.tourguide.benchmark.LoadTestOptions.Scenario;
+
+/**
+ * Rapport de passage à l'échelle d'un balayage de charge.
+ *
+ * Selon le nombre d'utilisateurs, la durée doit croître linéairement, donc le débit rester
+ * constant : l'efficacité d'une exécution est son débit rapporté au meilleur débit obtenu avec
+ * moins d'utilisateurs, mêmes scénario, historique et cœurs. Le meilleur débit plutôt que le
+ * plus petit lot, pour ne pas prendre le coût de démarrage d'un petit lot pour une référence.
+ *
+ * Selon le nombre de cœurs, le débit doit croître proportionnellement : l'efficacité est
+ * l'accélération par rapport au plus petit nombre de cœurs, divisée par le ratio de cœurs.
+ *
+ * Le passage à l'échelle cesse d'être linéaire à la première exécution dont l'efficacité tombe
+ * sous le seuil.
+ */
+final class ScalingReport {
+	private final List<LoadTestResult> results;
+	private final double linearThreshold;
+	private final Map<LoadTestResult, Double> userEfficiency = new IdentityHashMap<>();
+	private final Map<LoadTestResult, Double> coreEfficiency = new IdentityHashMap<>();
+	private final List<Knee> userKnees;
+	private final List<Knee> coreKnees;
+
+	/**
+	 * Limite du passage à l'échelle linéaire le long d'un axe, les autres paramètres étant fixés.
+	 * {@code linearUpTo} est la dernière valeur encore linéaire et {@code breaksAt} la première
+	 * qui ne l'est plus, -1 si aucune.
+	 */
+	record Knee(Scenario scenario, String axis, String fixed, int linearUpTo, int breaksAt, double efficiency) {
+	}
+
+	ScalingReport(List<LoadTestResult> results, double linearThreshold) {
+		this.results = results.stream()
+				.sorted(Comparator.comparing(LoadTestResult::scenario)
+						.thenComparingInt(LoadTestResult::history)
+						.thenComparingInt(LoadTestResult::cores)
+						.thenComparingInt(LoadTestResult::users))
+				.toList();
+		this.linearThreshold = linearThreshold;
+		this.userKnees = analyse("users", LoadTestResult::users,
+				r -> r.scenario() + "/" + r.history() + "/" + r.cores(),
+				r -> "cores=" + r.cores() + ",history=" + r.history(), this::scoreUsers, userEfficiency);
+		this.coreKnees = analyse("cores", LoadTestResult::cores,
+				r -> r.scenario() + "/" + r.history() + "/" + r.users(),
+				r -> "users=" + r.users() + ",history=" + r.history(), this::scoreCores, coreEfficiency);
+	}
+
+	List<Knee> getUserKnees() {
+		return userKnees;
+	}
+
+	List<Knee> getCoreKnees() {
+		return coreKnees;
+	}
+
+	double getUserEfficiency(LoadTestResult result) {
+		return userEfficiency.getOrDefault(result, -1.0);
+	}
+
+	double getCoreEfficiency(LoadTestResult result) {
+		return coreEfficiency.getOrDefault(result, -1.0);
+	}
+
+	/**
+	 * Écrit {@code scaling.csv} (une ligne par exécution) et {@code scaling.json} (exécutions et
+	 * limites du passage à l'échelle) dans le répertoire.
+	 */
+	void write(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		List<String> csv = new ArrayList<>();
+		csv.add(LoadTestResult.CSV_HEADER + ",userEfficiency,coreEfficiency");
+		for (LoadTestResult result : results) {
+			csv.add(result.toCsv() + "," + LoadTestResult.number(getUserEfficiency(result)) + ","
+					+ LoadTestResult.number(getCoreEfficiency(result)));
+		}
+		Files.write(directory.resolve("scaling.csv"), csv);
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"linearThreshold\": ").append(LoadTestResult.number(linearThreshold));
+		json.append(",\n  \"runs\": [");
+		for (int i = 0; i < results.size(); i++) {
+			LoadTestResult result = results.get(i);
+			String run = result.toJson();
+			json.append(i == 0 ? "\n    " : ",\n    ").append(run, 0, run.length() - 1)
+					.append(",\"userEfficiency\":").append(LoadTestResult.number(getUserEfficiency(result)))
+					.append(",\"coreEfficiency\":").append(LoadTestResult.number(getCoreEfficiency(result)))
+					.append('}');
+		}
+		json.append("\n  ],\n  \"userScaling\": ").append(toJson(userKnees));
+		json.append(",\n  \"coreScaling\": ").append(toJson(coreKnees)).append("\n}\n");
+		Files.writeString(directory.resolve("scaling.json"), json);
+	}
+
+	void print(PrintStream out) {
+		out.printf("Linear scaling threshold: %.0f%% efficiency%n", linearThreshold * 100);
+		for (Knee knee : userKnees) {
+			out.println(describe(knee, "users"));
+		}
+		for (Knee knee : coreKnees) {
+			out.println(describe(knee, "cores"));
+		}
+	}
+
+	private String describe(Knee knee, String unit) {
+		String prefix = String.format(Locale.ROOT, "%-8s %-5s [%s]: ", knee.scenario(), knee.axis(), knee.fixed());
+		if (knee.breaksAt() < 0) {
+			return prefix + "linear up to " + knee.linearUpTo() + " " + unit;
+		}
+		return prefix + String.format(Locale.ROOT, "linear up to %d %s, %.0f%% efficiency at %d %s",
+				knee.linearUpTo(), unit, knee.efficiency() * 100, knee.breaksAt(), unit);
+	}
+
+	/**
+	 * Regroupe les exécutions réussies dont seul l'axe varie, calcule leur efficacité dans
+	 * l'ordre croissant de l'axe et repère la première sous le seuil.
+	 */
+	private List<Knee> analyse(String axis, ToIntFunction<LoadTestResult> value,
+			Function<LoadTestResult, String> group, Function<LoadTestResult, String> fixed,
+			Scorer scorer, Map<LoadTestResult, Double> efficiencies) {
+		Map<String, List<LoadTestResult>> groups = results.stream()
+				.filter(LoadTestResult::isOk)
+				.sorted(Comparator.comparingInt(value))
+				.collect(Collectors.groupingBy(group, LinkedHashMap::new, Collectors.toList()));
+		List<Knee> knees = new ArrayList<>();
+		for (List<LoadTestResult> runs : groups.values()) {
+			if (runs.size() < 2) {
+				continue;
+			}
+			double[] scores = scorer.score(runs);
+			int linearUpTo = value.applyAsInt(runs.get(0));
+			int breaksAt = -1;
+			double efficiency = 1;
+			for (int i = 0; i < runs.size(); i++) {
+				efficiencies.put(runs.get(i), scores[i]);
+				if (breaksAt < 0) {
+					if (scores[i] < linearThreshold) {
+						breaksAt = value.applyAsInt(runs.get(i));
+						efficiency = scores[i];
+					} else {
+						linearUpTo = value.applyAsInt(runs.get(i));
+					}
+				}
+			}
+			LoadTestResult first = runs.get(0);
+			knees.add(new Knee(first.scenario(), axis, fixed.apply(first), linearUpTo, breaksAt, efficiency));
+		}
+		return knees;
+	}
+
+	private double[] scoreUsers(List<LoadTestResult> runs) {
+		double[] scores = new double[runs.size()];
+		double best = 0;
+		for (int i = 0; i < runs.size(); i++) {
+			double throughput = runs.get(i).throughput();
+			scores[i] = best == 0 ? 1 : Math.min(1, throughput / best);
+			best = Math.max(best, throughput);
+		}
+		return scores;
+	}
+
+	private double[] scoreCores(List<LoadTestResult> runs) {
+		double[] scores = new double[runs.size()];
+		LoadTestResult base = runs.get(0);
+		for (int i = 0; i < runs.size(); i++) {
+			double speedup = runs.get(i).throughput() / base.throughput();
+			scores[i] = speedup / ((double) runs.get(i).cores() / base.cores());
+		}
+		return scores;
+	}
+
+	private static String toJson(List<Knee> knees) {
+		return knees.stream()
+				.map(k -> String.format(Locale.ROOT, "{\"scenario\":\"%s\",\"axis\":\"%s\",\"fixed\":\"%s\","
+						+ "\"linearUpTo\":%d,\"breaksAt\":%d,\"efficiency\":%s}", k.scenario(), k.axis(), k.fixed(),
+						k.linearUpTo(), k.breaksAt(), LoadTestResult.number(k.efficiency())))
+				.collect(Collectors.joining(",\n    ", "[\n    ", "\n  ]"));
+	}
+
+	@FunctionalInterface
+	private interface Scorer {
+		double[] score(List<LoadTestResult> runs);
+	}
+}
@@ -0,0 +1,42 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * {@link GpsUtil} déterministe pour les benchmarks : le catalogue d'attractions est lu une seule
+ * fois, la position d'un utilisateur ne dépend que de son identifiant et chaque appel à
+ * {@link #getUserLocation(UUID)} attend une latence fixe.
+ */
+public class StubGpsUtil extends GpsUtil {
+	private static final List<Attraction> ATTRACTIONS = List.copyOf(new GpsUtil().getAttractions());
+
+	private final long latencyMillis;
+
+	public StubGpsUtil(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		Latency.pause(latencyMillis);
+		return new VisitedLocation(userId, locationOf(userId), new Date());
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return ATTRACTIONS;
+	}
+
+	static Location locationOf(UUID userId) {
+		Random random = new Random(userId.getMostSignificantBits() ^ userId.getLeastSignificantBits());
+		return new Location(-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360);
+	}
+}
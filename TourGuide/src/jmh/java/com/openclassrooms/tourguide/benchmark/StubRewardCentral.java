@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * {@link RewardCentral} déterministe pour les benchmarks : les points ne dépendent que de la
+ * paire (attraction, utilisateur) et chaque appel attend une latence fixe.
+ */
+public class StubRewardCentral extends RewardCentral {
+	private final long latencyMillis;
+
+	public StubRewardCentral(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		Latency.pause(latencyMillis);
+		return Math.floorMod(attractionId.hashCode() * 31 + userId.hashCode(), 1000) + 1;
+	}
+}
@@ -0,0 +1,76 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Cycle de suivi complet ({@code trackAllUsers}) : localisation, ajout à l'historique et
+ * déclenchement du calcul des récompenses. Le service est recréé à chaque itération pour que
+ * le cache de localisations soit vide.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackingBenchmark {
+	@Param({"1000", "10000"})
+	public int userCount;
+
+	@Param({"0", "1"})
+	public long gpsLatencyMillis;
+
+	private TourGuideExecutor executor;
+	private RewardsService rewardsService;
+	private TourGuideService tourGuideService;
+
+	@Setup(Level.Trial)
+	public void startExecutor() {
+		executor = new TourGuideExecutor();
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		StubGpsUtil gpsUtil = new StubGpsUtil(gpsLatencyMillis);
+		rewardsService = new RewardsService(gpsUtil, new StubRewardCentral(0), executor);
+		InternalTestHelper.setInternalUserNumber(userCount);
+		tourGuideService = new TourGuideService(gpsUtil, rewardsService, executor);
+		tourGuideService.tracker.stopTracking();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws InterruptedException {
+		tourGuideService.tracker.stopTracking();
+		rewardsService.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopExecutor() {
+		executor.close();
+	}
+
+	@Benchmark
+	public void trackAllUsers() throws ExecutionException, InterruptedException {
+		tourGuideService.trackAllUsers(tourGuideService.getUserRegistry().users());
+	}
+}
@@ -0,0 +1,61 @@
+package com.openclassrooms.tourguide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserReward;
+
+/**
+ * Coût de {@link User#addUserReward(UserReward)} pour une attraction déjà récompensée,
+ * cas le plus fréquent une fois l'utilisateur installé, selon le nombre de récompenses existantes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRewardBenchmark {
+	@Param({"1", "10", "26"})
+	public int existingRewards;
+
+	private User user;
+	private UserReward duplicate;
+
+	@Setup
+	public void setUp() {
+		List<Attraction> attractions = new StubGpsUtil(0).getAttractions();
+		UUID userId = new UUID(0, Fixtures.SEED);
+		user = new User(userId, "benchmarkUser", "000", "benchmarkUser@tourGuide.com");
+		int count = Math.min(existingRewards, attractions.size());
+		for (int i = 0; i < count; i++) {
+			Attraction attraction = attractions.get(i);
+			user.addUserReward(new UserReward(new VisitedLocation(userId, attraction, new Date()), attraction, 10));
+		}
+		Attraction last = attractions.get(count - 1);
+		duplicate = new UserReward(new VisitedLocation(userId, last, new Date()), last, 10);
+	}
+
+	@Benchmark
+	public int addDuplicateUserReward() {
+		user.addUserReward(duplicate);
+		return user.getUserRewards().size();
+	}
+}
@@ -0,0 +1,195 @@
+package com.openclassrooms.tourguide.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache borné en taille et en durée de vie.
+ *
+ * Les entrées sont conservées de la moins à la plus récemment utilisée : lorsque la taille
+ * maximale est atteinte, l'entrée la moins récemment utilisée est évincée. Une entrée plus
+ * ancienne que la durée de vie est ignorée par {@link #get(Object)} mais conservée jusqu'à son
+ * remplacement ou son éviction : {@link #getStale(Object)} peut encore la servir lorsque la
+ * source de la valeur est indisponible. Seule une lecture réussie compte comme une utilisation ;
+ * une entrée expirée n'est donc pas rajeunie par les lectures et part la première, sans évincer
+ * d'entrées vivantes. L'horloge est injectable pour les tests.
+ *
+ * Au-delà de quelques milliers d'entrées, le cache est partitionné en segments verrouillés
+ * indépendamment pour limiter la contention ; l'éviction LRU s'applique alors par segment.
+ */
+public class ExpiringCache<K, V> {
+	private static final int SEGMENTS = 16;
+	private static final int MIN_SEGMENT_SIZE = 1024;
+
+	private final long ttlMillis;
+	private final Clock clock;
+	private final Segment<K, V>[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param maxSize nombre maximal d'entrées
+	 * @param ttl     durée de vie d'une entrée, {@link Duration#ZERO} pour ne pas expirer
+	 * @param clock   horloge utilisée pour dater les entrées
+	 */
+	@SuppressWarnings("unchecked")
+	public ExpiringCache(int maxSize, Duration ttl, Clock clock) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+		}
+		this.ttlMillis = ttl.toMillis();
+		this.clock = clock;
+		int segmentCount = Math.max(1, Math.min(SEGMENTS, maxSize / MIN_SEGMENT_SIZE));
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			int capacity = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+			segments[i] = new Segment<>(capacity);
+		}
+	}
+
+	public ExpiringCache(int maxSize, Duration ttl) {
+		this(maxSize, ttl, Clock.systemUTC());
+	}
+
+	/**
+	 * @return la valeur associée à la clé, ou {@code null} si elle est absente ou expirée
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		long now = clock.millis();
+		synchronized (segment) {
+			Timestamped<V> entry = segment.get(key); // ordre d'insertion : la lecture ne déplace pas l'entrée
+			if (entry != null && !isExpired(entry, now)) {
+				segment.remove(key);
+				segment.put(key, entry); // passe en fin d'ordre, comme la plus récemment utilisée
+				hits.increment();
+				return entry.value;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Lecture de secours, sans effet sur le taux de succès du cache.
+	 *
+	 * @return la valeur associée à la clé, même expirée, ou {@code null} si elle est absente
+	 */
+	public V getStale(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			Timestamped<V> entry = segment.get(key);
+			return entry != null ? entry.value : null;
+		}
+	}
+
+	public void put(K key, V value) {
+		Segment<K, V> segment = segmentFor(key);
+		Timestamped<V> entry = new Timestamped<>(value, clock.millis());
+		synchronized (segment) {
+			segment.remove(key); // une valeur remplacée passe aussi en fin d'ordre
+			segment.put(key, entry);
+		}
+	}
+
+	public void invalidate(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return le nombre d'entrées conservées, expirées ou non
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Parcourt toutes les entrées : à réserver aux mesures périodiques.
+	 *
+	 * @return le nombre d'entrées non expirées
+	 */
+	public int liveSize() {
+		long now = clock.millis();
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				for (Timestamped<V> entry : segment.values()) {
+					if (!isExpired(entry, now)) {
+						size++;
+					}
+				}
+			}
+		}
+		return size;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return la proportion de lectures servies par le cache, entre 0 et 1
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	private boolean isExpired(Timestamped<V> entry, long now) {
+		return ttlMillis > 0 && now - entry.createdAt >= ttlMillis;
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int hash = key.hashCode();
+		return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+	}
+
+	private static final class Timestamped<V> {
+		private final V value;
+		private final long createdAt;
+
+		private Timestamped(V value, long createdAt) {
+			this.value = value;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, Timestamped<V>> {
+		private final int capacity;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, false);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Timestamped<V>> eldest) {
+			return size() > capacity;
+		}
+	}
+}
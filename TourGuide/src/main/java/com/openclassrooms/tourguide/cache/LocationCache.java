@@ -0,0 +1,230 @@
+package com.openclassrooms.tourguide.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.tracker.Tracker;
+
+/**
+ * Cache des dernières localisations obtenues auprès du GPS, par utilisateur.
+ *
+ * Les entrées expirent après une durée de vie mesurée depuis leur chargement, avec une horloge
+ * injectable, et le nombre d'entrées est borné (éviction LRU, voir {@link ExpiringCache}). Une
+ * entrée expirée n'est plus servie et déclenche un chargement, mais elle reste en place, sans
+ * être rajeunie, jusqu'à ce que ce chargement la remplace ou qu'elle soit évincée.
+ * Au-delà du délai de rafraîchissement anticipé, une lecture renvoie encore la valeur en cache
+ * mais déclenche un rechargement en arrière-plan : les utilisateurs suivis régulièrement ne
+ * subissent pas la latence du GPS à l'expiration.
+ *
+ * Le {@link Tracker} relit chaque utilisateur une fois par cycle : avec les valeurs dérivées de
+ * son intervalle ({@link #forTracking}), la durée de vie couvre deux cycles et le rafraîchissement
+ * anticipé se déclenche avant la lecture suivante. Chaque cycle est ainsi servi par le cache
+ * tout en rechargeant une fois la localisation, qui entre dans l'historique.
+ *
+ * Les chargements d'un même utilisateur sont dédoublonnés : un seul appel au chargeur est en
+ * cours à la fois. Seules les valeurs chargées passent par le chargeur ; une lecture servie par
+ * le cache ne produit donc aucune nouvelle localisation.
+ *
+ * Chaque demande reçoit son propre {@link CompletableFuture} : l'annuler ne prive pas les autres
+ * demandes du chargement partagé. Le chargement n'est annulé que lorsque toutes les demandes qui
+ * l'attendent ont été annulées.
+ */
+public class LocationCache {
+	public static final int DEFAULT_MAX_SIZE = 100_000;
+	public static final Duration DEFAULT_TTL = ttlFor(Tracker.DEFAULT_POLLING_INTERVAL);
+	public static final Duration DEFAULT_REFRESH_AFTER = refreshAfterFor(Tracker.DEFAULT_POLLING_INTERVAL);
+
+	private final ExpiringCache<UUID, Entry> entries;
+	private final ConcurrentMap<UUID, Load> loading = new ConcurrentHashMap<>();
+	private final long refreshAfterMillis;
+	private final Clock clock;
+	private final LongAdder refreshes = new LongAdder();
+
+	public LocationCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TTL, DEFAULT_REFRESH_AFTER, Clock.systemUTC());
+	}
+
+	/**
+	 * @param maxSize      nombre maximal d'utilisateurs en cache
+	 * @param ttl          durée de vie d'une localisation, depuis son chargement
+	 * @param refreshAfter âge à partir duquel une lecture déclenche un rechargement anticipé,
+	 *                     {@link Duration#ZERO} pour ne jamais rafraîchir par anticipation
+	 * @param clock        horloge utilisée pour dater les entrées
+	 */
+	public LocationCache(int maxSize, Duration ttl, Duration refreshAfter, Clock clock) {
+		if (ttl.isZero() || ttl.isNegative()) {
+			throw new IllegalArgumentException("ttl must be positive: " + ttl);
+		}
+		this.entries = new ExpiringCache<>(maxSize, ttl, clock);
+		this.refreshAfterMillis = refreshAfter.isZero() || refreshAfter.compareTo(ttl) >= 0 ? 0 : refreshAfter.toMillis();
+		this.clock = clock;
+	}
+
+	/**
+	 * @param trackingInterval intervalle entre deux cycles du {@link Tracker}
+	 * @return un cache dont la durée de vie et le rafraîchissement anticipé sont dérivés de
+	 *         l'intervalle de suivi
+	 */
+	public static LocationCache forTracking(int maxSize, Duration trackingInterval, Clock clock) {
+		return new LocationCache(maxSize, ttlFor(trackingInterval), refreshAfterFor(trackingInterval), clock);
+	}
+
+	/**
+	 * @return deux intervalles de suivi : une localisation chargée lors d'un cycle est encore
+	 *         servie au cycle suivant, même s'il démarre en retard
+	 */
+	public static Duration ttlFor(Duration trackingInterval) {
+		return trackingInterval.multipliedBy(2);
+	}
+
+	/**
+	 * @return un demi-intervalle de suivi : la lecture du cycle suivant déclenche le rechargement
+	 */
+	public static Duration refreshAfterFor(Duration trackingInterval) {
+		return trackingInterval.dividedBy(2);
+	}
+
+	/**
+	 * @param userId identifiant de l'utilisateur
+	 * @param loader chargement de la localisation, appelé en cas d'absence, d'expiration ou de
+	 *               rafraîchissement anticipé
+	 * @return la localisation en cache, ou celle fournie par le chargeur
+	 */
+	public CompletableFuture<VisitedLocation> get(UUID userId, Function<UUID, CompletableFuture<VisitedLocation>> loader) {
+		Entry entry = entries.get(userId);
+		if (entry == null) {
+			return load(userId, loader);
+		}
+		if (refreshAfterMillis > 0 && clock.millis() - entry.loadedAt >= refreshAfterMillis
+				&& !loading.containsKey(userId)) {
+			refreshes.increment();
+			load(userId, loader);
+		}
+		return CompletableFuture.completedFuture(entry.location);
+	}
+
+	public void invalidate(UUID userId) {
+		entries.invalidate(userId);
+	}
+
+	/**
+	 * @return le nombre d'entrées conservées, expirées ou non
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return le nombre d'entrées non expirées
+	 */
+	public int liveSize() {
+		return entries.liveSize();
+	}
+
+	public double getHitRatio() {
+		return entries.getHitRatio();
+	}
+
+	/**
+	 * @return le nombre de rechargements anticipés déclenchés
+	 */
+	public long getRefreshCount() {
+		return refreshes.sum();
+	}
+
+	private CompletableFuture<VisitedLocation> load(UUID userId, Function<UUID, CompletableFuture<VisitedLocation>> loader) {
+		while (true) {
+			Load created = new Load();
+			Load existing = loading.putIfAbsent(userId, created);
+			if (existing != null) {
+				CompletableFuture<VisitedLocation> waiter = existing.join();
+				if (waiter != null) {
+					return waiter;
+				}
+				loading.remove(userId, existing); // chargement abandonné par toutes ses demandes
+				continue;
+			}
+			CompletableFuture<VisitedLocation> waiter = created.join();
+			CompletableFuture<VisitedLocation> loaded;
+			try {
+				loaded = loader.apply(userId);
+			} catch (RuntimeException e) {
+				loaded = CompletableFuture.failedFuture(e);
+			}
+			created.start(loaded);
+			loaded.whenComplete((location, e) -> {
+				if (e == null) {
+					entries.put(userId, new Entry(location, clock.millis()));
+				}
+				loading.remove(userId, created);
+				if (e != null) {
+					created.result.completeExceptionally(e);
+				} else {
+					created.result.complete(location);
+				}
+			});
+			return waiter;
+		}
+	}
+
+	/**
+	 * Un chargement en cours et le nombre de demandes qui l'attendent.
+	 */
+	private static final class Load {
+		private final CompletableFuture<VisitedLocation> result = new CompletableFuture<>();
+		private CompletableFuture<VisitedLocation> source;
+		private int waiters = 0;
+		private boolean abandoned = false;
+
+		/**
+		 * @return le résultat propre à une nouvelle demande, ou {@code null} si le chargement a été
+		 *         abandonné
+		 */
+		private synchronized CompletableFuture<VisitedLocation> join() {
+			if (abandoned) {
+				return null;
+			}
+			waiters++;
+			CompletableFuture<VisitedLocation> waiter = result.copy();
+			waiter.whenComplete((location, e) -> {
+				if (waiter.isCancelled()) {
+					leave();
+				}
+			});
+			return waiter;
+		}
+
+		private synchronized void start(CompletableFuture<VisitedLocation> loaded) {
+			source = loaded;
+			if (abandoned) {
+				loaded.cancel(true);
+			}
+		}
+
+		private synchronized void leave() {
+			if (--waiters == 0 && !result.isDone()) {
+				abandoned = true;
+				if (source != null) {
+					source.cancel(true);
+				}
+			}
+		}
+	}
+
+	private static final class Entry {
+		private final VisitedLocation location;
+		private final long loadedAt;
+
+		private Entry(VisitedLocation location, long loadedAt) {
+			this.location = location;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
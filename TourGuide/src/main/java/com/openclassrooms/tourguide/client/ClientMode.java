@@ -0,0 +1,16 @@
+package com.openclassrooms.tourguide.client;
+
+/**
+ * Origine des clients des services externes.
+ */
+public enum ClientMode {
+	/**
+	 * Bibliothèques fournies dans {@code libs/} : latences et données aléatoires.
+	 */
+	LIBRARY,
+	/**
+	 * Services simulés en mémoire : latences, pannes et données reproductibles à partir d'une
+	 * graine, pour les tests de charge et les mesures de capacité.
+	 */
+	SIMULATED
+}
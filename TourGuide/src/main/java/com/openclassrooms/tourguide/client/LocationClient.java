@@ -0,0 +1,38 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Service de localisation : position courante des utilisateurs et catalogue des attractions.
+ *
+ * Les appels sont bloquants ; ils passent par la limite de concurrence
+ * {@link com.openclassrooms.tourguide.concurrent.ExternalDependency#GPS}.
+ */
+public interface LocationClient {
+
+	VisitedLocation getUserLocation(UUID userId);
+
+	List<Attraction> getAttractions();
+
+	/**
+	 * @return un client délégant à la bibliothèque {@link GpsUtil}
+	 */
+	static LocationClient of(GpsUtil gpsUtil) {
+		return new LocationClient() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				return gpsUtil.getUserLocation(userId);
+			}
+
+			@Override
+			public List<Attraction> getAttractions() {
+				return gpsUtil.getAttractions();
+			}
+		};
+	}
+}
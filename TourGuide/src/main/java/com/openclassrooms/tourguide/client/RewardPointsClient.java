@@ -0,0 +1,47 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * Service attribuant les points de récompense d'un utilisateur pour une attraction.
+ *
+ * Les appels sont bloquants ; ils passent par la limite de concurrence
+ * {@link com.openclassrooms.tourguide.concurrent.ExternalDependency#REWARDS}.
+ */
+@FunctionalInterface
+public interface RewardPointsClient {
+
+	int getAttractionRewardPoints(UUID attractionId, UUID userId);
+
+	/**
+	 * Points de plusieurs paires (attraction, utilisateur). Par défaut, un appel unitaire par
+	 * paire : seul un client déclarant {@link #supportsBatches()} gagne à recevoir des lots.
+	 *
+	 * @return les points, dans l'ordre des paires
+	 */
+	default int[] getAttractionRewardPoints(List<UUID> attractionIds, List<UUID> userIds) {
+		int[] points = new int[attractionIds.size()];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = getAttractionRewardPoints(attractionIds.get(i), userIds.get(i));
+		}
+		return points;
+	}
+
+	/**
+	 * @return {@code true} si {@link #getAttractionRewardPoints(List, List)} répond à tout un lot
+	 *         en un seul aller-retour ; {@link RewardCentral} n'a qu'un appel unitaire
+	 */
+	default boolean supportsBatches() {
+		return false;
+	}
+
+	/**
+	 * @return un client délégant à la bibliothèque {@link RewardCentral}
+	 */
+	static RewardPointsClient of(RewardCentral rewardCentral) {
+		return rewardCentral::getAttractionRewardPoints;
+	}
+}
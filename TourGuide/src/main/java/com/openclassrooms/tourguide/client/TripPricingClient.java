@@ -0,0 +1,27 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * Service de tarification des voyages : une offre par fournisseur consulté.
+ *
+ * Les appels sont bloquants ; ils passent par la limite de concurrence
+ * {@link com.openclassrooms.tourguide.concurrent.ExternalDependency#PRICER}.
+ */
+@FunctionalInterface
+public interface TripPricingClient {
+
+	List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay,
+			int rewardsPoints);
+
+	/**
+	 * @return un client délégant à la bibliothèque {@link TripPricer}
+	 */
+	static TripPricingClient of(TripPricer tripPricer) {
+		return tripPricer::getPrice;
+	}
+}
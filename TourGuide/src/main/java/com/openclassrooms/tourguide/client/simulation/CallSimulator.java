@@ -0,0 +1,92 @@
+package com.openclassrooms.tourguide.client.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comportement commun des services simulés : latence tirée d'un {@link LatencyProfile} et
+ * pannes injectées avec une probabilité fixe.
+ *
+ * Les tirages du n-ième appel ne dépendent que de la graine et de n : deux exécutions avec la
+ * même graine et le même nombre d'appels subissent la même suite de latences et de pannes,
+ * sans état partagé entre threads autre qu'un compteur atomique.
+ */
+public class CallSimulator {
+	public static final long DEFAULT_SEED = 42;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final long seed;
+	private final LatencyProfile latency;
+	private final double failureRate;
+	private final AtomicLong sequence = new AtomicLong();
+	private final LongAdder failures = new LongAdder();
+
+	/**
+	 * Service simulé sans latence ni panne.
+	 */
+	public CallSimulator(long seed) {
+		this(seed, LatencyProfile.NONE, 0);
+	}
+
+	/**
+	 * @param seed        graine des tirages
+	 * @param latency     distribution de la latence de chaque appel
+	 * @param failureRate probabilité qu'un appel échoue, entre 0 et 1
+	 */
+	public CallSimulator(long seed, LatencyProfile latency, double failureRate) {
+		if (failureRate < 0 || failureRate > 1 || Double.isNaN(failureRate)) {
+			throw new IllegalArgumentException("failureRate must be between 0 and 1: " + failureRate);
+		}
+		this.seed = seed;
+		this.latency = latency;
+		this.failureRate = failureRate;
+	}
+
+	/**
+	 * Simule un appel : attend la latence tirée puis lève une {@link SimulatedFailureException}
+	 * si l'appel est tiré en panne. La panne survient après la latence, comme un délai
+	 * d'attente ou une erreur serveur.
+	 *
+	 * @param operation nom de l'opération, repris dans le message de la panne
+	 */
+	public void call(String operation) {
+		long n = sequence.getAndIncrement();
+		SplittableRandom random = new SplittableRandom(seed + n * GOLDEN_GAMMA);
+		latency.pause(random.nextDouble());
+		if (failureRate > 0 && random.nextDouble() < failureRate) {
+			failures.increment();
+			throw new SimulatedFailureException(operation + " failed (simulated call #" + n + ")");
+		}
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public LatencyProfile getLatency() {
+		return latency;
+	}
+
+	public double getFailureRate() {
+		return failureRate;
+	}
+
+	public long getCallCount() {
+		return sequence.get();
+	}
+
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	/**
+	 * Mélange de bits de SplitMix64, utilisé pour dériver des données reproductibles d'une graine
+	 * et d'identifiants.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,193 @@
+package com.openclassrooms.tourguide.client.simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution de latence d'un service simulé, décrite par sa fonction de répartition inverse :
+ * une suite croissante de points (probabilité, millisecondes), interpolée linéairement.
+ *
+ * Trois formes sont proposées :
+ * <ul>
+ * <li>{@link #fixed(double)} : latence constante ;</li>
+ * <li>{@link #percentiles(Map)} : quelques percentiles mesurés sur le service réel, par exemple
+ * p50 = 20 ms et p99 = 200 ms ;</li>
+ * <li>{@link #recorded(double[])} : distribution empirique d'un échantillon de latences
+ * enregistrées.</li>
+ * </ul>
+ */
+public final class LatencyProfile {
+	public static final LatencyProfile NONE = new LatencyProfile("none", new double[] { 0 }, new double[] { 0 });
+
+	private final String description;
+	private final double[] probabilities;
+	private final double[] millis;
+
+	private LatencyProfile(String description, double[] probabilities, double[] millis) {
+		this.description = description;
+		this.probabilities = probabilities;
+		this.millis = millis;
+	}
+
+	public static LatencyProfile fixed(double millis) {
+		requireNonNegative(millis);
+		return millis == 0 ? NONE : new LatencyProfile("fixed:" + millis, new double[] { 0 }, new double[] { millis });
+	}
+
+	/**
+	 * Les latences sont interpolées entre deux percentiles ; en deçà du premier et au-delà du
+	 * dernier, la latence est celle du percentile le plus proche.
+	 *
+	 * @param millisByPercentile latence en millisecondes par percentile, entre 0 et 100
+	 */
+	public static LatencyProfile percentiles(Map<Double, Double> millisByPercentile) {
+		if (millisByPercentile.isEmpty()) {
+			throw new IllegalArgumentException("at least one percentile is required");
+		}
+		TreeMap<Double, Double> sorted = new TreeMap<>(millisByPercentile);
+		double[] probabilities = new double[sorted.size()];
+		double[] millis = new double[sorted.size()];
+		int i = 0;
+		for (Map.Entry<Double, Double> entry : sorted.entrySet()) {
+			if (entry.getKey() < 0 || entry.getKey() > 100) {
+				throw new IllegalArgumentException("percentile out of range: " + entry.getKey());
+			}
+			requireNonNegative(entry.getValue());
+			if (i > 0 && entry.getValue() < millis[i - 1]) {
+				throw new IllegalArgumentException("latencies must not decrease with the percentile: " + sorted);
+			}
+			probabilities[i] = entry.getKey() / 100;
+			millis[i] = entry.getValue();
+			i++;
+		}
+		return new LatencyProfile("percentiles:" + sorted, probabilities, millis);
+	}
+
+	/**
+	 * @param samples latences enregistrées, en millisecondes
+	 */
+	public static LatencyProfile recorded(double[] samples) {
+		if (samples.length == 0) {
+			throw new IllegalArgumentException("at least one sample is required");
+		}
+		double[] millis = samples.clone();
+		Arrays.sort(millis);
+		requireNonNegative(millis[0]);
+		double[] probabilities = new double[millis.length];
+		for (int i = 0; i < millis.length; i++) {
+			probabilities[i] = millis.length == 1 ? 0 : (double) i / (millis.length - 1);
+		}
+		return new LatencyProfile("recorded:" + millis.length + " samples", probabilities, millis);
+	}
+
+	/**
+	 * Lit un fichier de latences enregistrées : une valeur en millisecondes par ligne, les lignes
+	 * vides et celles commençant par {@code #} sont ignorées.
+	 */
+	public static LatencyProfile recorded(Path file) {
+		try {
+			return recorded(Files.readAllLines(file).stream()
+					.map(String::trim)
+					.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+					.mapToDouble(Double::parseDouble)
+					.toArray());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read latency samples from " + file, e);
+		}
+	}
+
+	/**
+	 * Interprète une description textuelle, utilisée dans application.properties :
+	 * {@code none}, {@code fixed:20}, {@code percentiles:50=20,99=200} ou
+	 * {@code recorded:chemin/vers/latences.txt}. Les durées sont en millisecondes.
+	 */
+	public static LatencyProfile parse(String spec) {
+		String trimmed = spec == null ? "" : spec.trim();
+		if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("none")) {
+			return NONE;
+		}
+		int colon = trimmed.indexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("Unknown latency profile: " + spec);
+		}
+		String kind = trimmed.substring(0, colon).trim().toLowerCase();
+		String value = trimmed.substring(colon + 1).trim();
+		switch (kind) {
+		case "fixed":
+			return fixed(Double.parseDouble(value));
+		case "percentiles":
+			Map<Double, Double> millisByPercentile = new TreeMap<>();
+			for (String point : value.split(",")) {
+				String[] parts = point.split("=");
+				if (parts.length != 2) {
+					throw new IllegalArgumentException("Expected percentile=millis, got: " + point);
+				}
+				millisByPercentile.put(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+			}
+			return percentiles(millisByPercentile);
+		case "recorded":
+			return recorded(Path.of(value));
+		default:
+			throw new IllegalArgumentException("Unknown latency profile: " + spec);
+		}
+	}
+
+	/**
+	 * @param u tirage uniforme dans [0, 1)
+	 * @return la latence correspondante, en millisecondes
+	 */
+	public double millisAt(double u) {
+		if (u <= probabilities[0]) {
+			return millis[0];
+		}
+		int last = probabilities.length - 1;
+		if (u >= probabilities[last]) {
+			return millis[last];
+		}
+		int i = Arrays.binarySearch(probabilities, u);
+		if (i >= 0) {
+			return millis[i];
+		}
+		int upper = -i - 1;
+		int lower = upper - 1;
+		double ratio = (u - probabilities[lower]) / (probabilities[upper] - probabilities[lower]);
+		return millis[lower] + ratio * (millis[upper] - millis[lower]);
+	}
+
+	public boolean isNone() {
+		return millis[millis.length - 1] == 0;
+	}
+
+	/**
+	 * Attend la latence correspondant au tirage {@code u}. Un thread interrompu rend la main
+	 * immédiatement en conservant son statut d'interruption.
+	 */
+	void pause(double u) {
+		long micros = Math.round(millisAt(u) * 1000);
+		if (micros <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.MICROSECONDS.sleep(micros);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+
+	private static void requireNonNegative(double millis) {
+		if (millis < 0 || Double.isNaN(millis)) {
+			throw new IllegalArgumentException("latency must not be negative: " + millis);
+		}
+	}
+}
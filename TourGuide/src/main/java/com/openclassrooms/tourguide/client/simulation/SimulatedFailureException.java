@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.client.simulation;
+
+/**
+ * Panne injectée par un service simulé.
+ */
+public class SimulatedFailureException extends RuntimeException {
+
+	public SimulatedFailureException(String message) {
+		super(message);
+	}
+}
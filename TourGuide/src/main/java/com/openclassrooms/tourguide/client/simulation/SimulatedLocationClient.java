@@ -0,0 +1,78 @@
+package com.openclassrooms.tourguide.client.simulation;
+
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.LocationClient;
+
+/**
+ * {@link LocationClient} simulé, sans accès au service réel.
+ *
+ * Le catalogue est fixe : les mêmes instances d'attractions sont renvoyées à chaque appel. La
+ * k-ième position d'un utilisateur ne dépend que de la graine, de son identifiant et de k ;
+ * comme pour le service réel, elle est répartie uniformément en latitude et en longitude.
+ */
+public class SimulatedLocationClient implements LocationClient {
+	private final List<Attraction> attractions;
+	private final CallSimulator calls;
+	private final ConcurrentMap<UUID, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+	/**
+	 * Catalogue de {@link GpsUtil}, sans latence ni panne.
+	 */
+	public SimulatedLocationClient(long seed) {
+		this(DefaultAttractions.ATTRACTIONS, new CallSimulator(seed));
+	}
+
+	/**
+	 * @param attractions catalogue renvoyé par {@link #getAttractions()}
+	 * @param calls       latence et pannes de {@link #getUserLocation(UUID)}
+	 */
+	public SimulatedLocationClient(List<Attraction> attractions, CallSimulator calls) {
+		this.attractions = List.copyOf(attractions);
+		this.calls = calls;
+	}
+
+	/**
+	 * @return le catalogue de {@link GpsUtil}, lu une seule fois
+	 */
+	public static List<Attraction> defaultAttractions() {
+		return DefaultAttractions.ATTRACTIONS;
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		calls.call("getUserLocation");
+		int k = requests.computeIfAbsent(userId, id -> new AtomicInteger()).getAndIncrement();
+		return new VisitedLocation(userId, locationOf(userId, k), new Date());
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	public CallSimulator getCalls() {
+		return calls;
+	}
+
+	Location locationOf(UUID userId, int k) {
+		long userSeed = CallSimulator.mix(calls.getSeed() ^ userId.getMostSignificantBits())
+				^ CallSimulator.mix(userId.getLeastSignificantBits() + k);
+		SplittableRandom random = new SplittableRandom(userSeed);
+		return new Location(random.nextDouble(-85.05112878, 85.05112878), random.nextDouble(-180, 180));
+	}
+
+	private static final class DefaultAttractions {
+		private static final List<Attraction> ATTRACTIONS = List.copyOf(new GpsUtil().getAttractions());
+	}
+}
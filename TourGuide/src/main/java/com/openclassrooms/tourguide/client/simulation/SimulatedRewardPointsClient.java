@@ -0,0 +1,60 @@
+package com.openclassrooms.tourguide.client.simulation;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+
+/**
+ * {@link RewardPointsClient} simulé : les points, entre 1 et 1000 comme pour le service réel,
+ * ne dépendent que de la graine et de la paire (attraction, utilisateur).
+ *
+ * Il simule aussi un service exposant un appel groupé : un lot entier ne subit qu'une latence
+ * et qu'un tirage de panne.
+ */
+public class SimulatedRewardPointsClient implements RewardPointsClient {
+	private static final int MAX_POINTS = 1000;
+
+	private final CallSimulator calls;
+
+	public SimulatedRewardPointsClient(long seed) {
+		this(new CallSimulator(seed));
+	}
+
+	public SimulatedRewardPointsClient(CallSimulator calls) {
+		this.calls = calls;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		calls.call("getAttractionRewardPoints");
+		return pointsFor(attractionId, userId);
+	}
+
+	@Override
+	public int[] getAttractionRewardPoints(List<UUID> attractionIds, List<UUID> userIds) {
+		calls.call("getAttractionRewardPoints");
+		int[] points = new int[attractionIds.size()];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = pointsFor(attractionIds.get(i), userIds.get(i));
+		}
+		return points;
+	}
+
+	@Override
+	public boolean supportsBatches() {
+		return true;
+	}
+
+	public CallSimulator getCalls() {
+		return calls;
+	}
+
+	int pointsFor(UUID attractionId, UUID userId) {
+		long hash = CallSimulator.mix(calls.getSeed() ^ attractionId.getMostSignificantBits());
+		hash = CallSimulator.mix(hash ^ attractionId.getLeastSignificantBits());
+		hash = CallSimulator.mix(hash ^ userId.getMostSignificantBits());
+		hash = CallSimulator.mix(hash ^ userId.getLeastSignificantBits());
+		return (int) Math.floorMod(hash, (long) MAX_POINTS) + 1;
+	}
+}
@@ -0,0 +1,56 @@
+package com.openclassrooms.tourguide.client.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.client.TripPricingClient;
+
+/**
+ * {@link TripPricingClient} simulé, reprenant les fournisseurs et la formule de prix du service
+ * réel : cinq fournisseurs distincts par demande. Le choix des fournisseurs et les prix ne
+ * dépendent que de la graine et des paramètres de la demande.
+ */
+public class SimulatedTripPricingClient implements TripPricingClient {
+	static final List<String> PROVIDER_NAMES = List.of("Holiday Travels", "Enterprize Ventures Limited", "Sunny Days",
+			"FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free",
+			"Dancing Waves Cruselines and Partners", "AdventureCo", "Cure-Your-Blues");
+	private static final int PROVIDERS_PER_QUOTE = 5;
+
+	private final CallSimulator calls;
+
+	public SimulatedTripPricingClient(long seed) {
+		this(new CallSimulator(seed));
+	}
+
+	public SimulatedTripPricingClient(CallSimulator calls) {
+		this.calls = calls;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay,
+			int rewardsPoints) {
+		calls.call("getPrice");
+		long requestSeed = CallSimulator.mix(calls.getSeed() ^ attractionId.getMostSignificantBits());
+		requestSeed = CallSimulator.mix(requestSeed ^ attractionId.getLeastSignificantBits());
+		requestSeed = CallSimulator.mix(requestSeed ^ ((long) adults << 48 | (long) children << 32 | nightsStay));
+		SplittableRandom random = new SplittableRandom(requestSeed ^ rewardsPoints);
+
+		List<String> names = new ArrayList<>(PROVIDER_NAMES);
+		List<Provider> providers = new ArrayList<>(PROVIDERS_PER_QUOTE);
+		for (int i = 0; i < PROVIDERS_PER_QUOTE; i++) {
+			String name = names.remove(random.nextInt(names.size()));
+			int multiple = random.nextInt(100, 700);
+			double childrenDiscount = children / 3.0;
+			double price = multiple * adults + multiple * childrenDiscount * nightsStay + 0.99 - rewardsPoints;
+			providers.add(new Provider(attractionId, name, Math.max(0, price)));
+		}
+		return providers;
+	}
+
+	public CallSimulator getCalls() {
+		return calls;
+	}
+}
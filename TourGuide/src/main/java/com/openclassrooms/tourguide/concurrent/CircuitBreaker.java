@@ -0,0 +1,168 @@
+package com.openclassrooms.tourguide.concurrent;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Disjoncteur sur une fenêtre glissante des derniers appels.
+ *
+ * Fermé, il laisse passer les appels et mémorise leur issue. Dès que la fenêtre est pleine et
+ * que la proportion d'échecs atteint le seuil, il s'ouvre : les appels sont refusés pendant la
+ * durée d'ouverture. Il laisse ensuite passer un seul appel d'essai (semi-ouvert) : un succès
+ * le referme avec une fenêtre vide, un échec le rouvre.
+ *
+ * Chaque autorisation porte la génération de l'état qui l'a accordée, incrémentée à chaque
+ * changement d'état : l'issue d'un appel autorisé sous un état révolu n'est pas comptée, pas
+ * plus que celle d'un appel annulé par l'appelant. Un succès tardif d'un appel accordé fermé ne
+ * peut donc pas refermer le disjoncteur à la place de l'appel d'essai.
+ */
+public class CircuitBreaker {
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	/**
+	 * Valeur rendue par {@link #tryAcquire()} quand l'appel est refusé.
+	 */
+	public static final long REJECTED = -1;
+
+	private final double failureRateThreshold;
+	private final boolean[] outcomes;
+	private final long openMillis;
+	private final Clock clock;
+	private State state = State.CLOSED;
+	private long generation = 0;
+	private int next = 0;
+	private int recorded = 0;
+	private int failures = 0;
+	private long openedAt = 0;
+	private boolean trialInFlight = false;
+	private long openings = 0;
+	private long rejected = 0;
+
+	public CircuitBreaker(ResiliencePolicy policy) {
+		this(policy.getFailureRateThreshold(), policy.getSlidingWindow(), policy.getOpenDuration(), Clock.systemUTC());
+	}
+
+	/**
+	 * @param failureRateThreshold proportion d'échecs ouvrant le disjoncteur
+	 * @param slidingWindow        nombre de derniers appels pris en compte
+	 * @param openDuration         durée pendant laquelle les appels sont refusés
+	 * @param clock                horloge mesurant la durée d'ouverture
+	 */
+	public CircuitBreaker(double failureRateThreshold, int slidingWindow, Duration openDuration, Clock clock) {
+		this.failureRateThreshold = failureRateThreshold;
+		this.outcomes = new boolean[slidingWindow];
+		this.openMillis = openDuration.toMillis();
+		this.clock = clock;
+	}
+
+	/**
+	 * @return la génération autorisant l'appel, à transmettre avec son issue à
+	 *         {@link #onSuccess(long)} ou {@link #onFailure(long)}, ou {@link #REJECTED}
+	 */
+	public synchronized long tryAcquire() {
+		switch (state) {
+		case OPEN:
+			if (clock.millis() - openedAt < openMillis) {
+				rejected++;
+				return REJECTED;
+			}
+			transition(State.HALF_OPEN);
+			trialInFlight = true;
+			return generation;
+		case HALF_OPEN:
+			if (trialInFlight) {
+				rejected++;
+				return REJECTED;
+			}
+			trialInFlight = true;
+			return generation;
+		default:
+			return generation;
+		}
+	}
+
+	public synchronized void onSuccess(long permit) {
+		if (permit != generation) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			close();
+		} else if (state == State.CLOSED) {
+			record(false);
+		}
+	}
+
+	public synchronized void onFailure(long permit) {
+		if (permit != generation) {
+			return;
+		}
+		if (state == State.HALF_OPEN) {
+			open();
+		} else if (state == State.CLOSED) {
+			record(true);
+			if (recorded == outcomes.length && failures >= failureRateThreshold * outcomes.length) {
+				open();
+			}
+		}
+	}
+
+	/**
+	 * Appel autorisé puis abandonné par l'appelant avant son issue : il n'est pas compté, et
+	 * s'il s'agissait de l'appel d'essai, un autre appel peut le remplacer.
+	 */
+	public synchronized void onCancelled(long permit) {
+		if (permit == generation && state == State.HALF_OPEN) {
+			trialInFlight = false;
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * @return le nombre d'ouvertures depuis la création
+	 */
+	public synchronized long getOpenCount() {
+		return openings;
+	}
+
+	/**
+	 * @return le nombre d'appels refusés
+	 */
+	public synchronized long getRejectedCount() {
+		return rejected;
+	}
+
+	private void record(boolean failure) {
+		if (recorded == outcomes.length) {
+			failures -= outcomes[next] ? 1 : 0;
+		} else {
+			recorded++;
+		}
+		outcomes[next] = failure;
+		failures += failure ? 1 : 0;
+		next = (next + 1) % outcomes.length;
+	}
+
+	private void transition(State target) {
+		state = target;
+		generation++;
+	}
+
+	private void open() {
+		transition(State.OPEN);
+		openedAt = clock.millis();
+		trialInFlight = false;
+		openings++;
+	}
+
+	private void close() {
+		transition(State.CLOSED);
+		trialInFlight = false;
+		next = 0;
+		recorded = 0;
+		failures = 0;
+	}
+}
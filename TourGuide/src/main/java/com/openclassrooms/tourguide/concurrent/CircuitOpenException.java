@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.concurrent;
+
+/**
+ * Appel refusé sans être tenté : le disjoncteur de la dépendance est ouvert.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+	public CircuitOpenException(ExternalDependency dependency) {
+		super("Circuit open for " + dependency.name().toLowerCase() + ", call not attempted");
+	}
+}
@@ -0,0 +1,204 @@
+package com.openclassrooms.tourguide.concurrent;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Appels protégés vers une dépendance externe : limite de concurrence, délai par tentative,
+ * requête couverte et disjoncteur, selon sa {@link ResiliencePolicy}.
+ *
+ * Le disjoncteur compte une issue par appel, quelle que soit la tentative qui l'a emporté. Une
+ * seconde tentative n'est envoyée que si aucun appel n'attend de place dans la limite de
+ * concurrence : sous saturation, elle ne ferait qu'ajouter de la charge. Si la première
+ * tentative échoue avant le délai de couverture, la seconde tient lieu de nouvel essai.
+ */
+class DependencyGuard {
+	private final ExternalDependency dependency;
+	private final DependencyLimiter limiter;
+	private final CircuitBreaker circuitBreaker;
+	private final ScheduledExecutorService scheduler;
+	private final long timeoutNanos;
+	private final long hedgeDelayNanos;
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+	private volatile DependencyTimers timers;
+
+	DependencyGuard(ExternalDependency dependency, int concurrency, ResiliencePolicy policy,
+			ScheduledExecutorService scheduler) {
+		this.dependency = dependency;
+		this.limiter = new DependencyLimiter(concurrency);
+		this.circuitBreaker = new CircuitBreaker(policy);
+		this.scheduler = scheduler;
+		this.timeoutNanos = policy.getTimeout().toNanos();
+		this.hedgeDelayNanos = policy.getHedgeDelay().toNanos();
+	}
+
+	<T> CompletableFuture<T> call(Supplier<T> call, Executor executor) {
+		long permit = circuitBreaker.tryAcquire();
+		if (permit == CircuitBreaker.REJECTED) {
+			return CompletableFuture.failedFuture(new CircuitOpenException(dependency));
+		}
+		Call<T> logical = new Call<>(call, executor);
+		logical.result.whenComplete((value, e) -> {
+			logical.attempts.forEach(attempt -> attempt.cancel(true));
+			if (logical.result.isCancelled()) {
+				circuitBreaker.onCancelled(permit); // abandon de l'appelant, pas une panne de la dépendance
+			} else if (e == null) {
+				circuitBreaker.onSuccess(permit);
+			} else {
+				circuitBreaker.onFailure(permit);
+			}
+		});
+		logical.launch(true);
+		return logical.result;
+	}
+
+	void bindTimers(DependencyTimers timers) {
+		this.timers = timers;
+	}
+
+	DependencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	long getTimeoutCount() {
+		return timeouts.sum();
+	}
+
+	long getHedgeCount() {
+		return hedges.sum();
+	}
+
+	/**
+	 * @return le nombre d'appels dont la seconde tentative a répondu la première
+	 */
+	long getHedgeWinCount() {
+		return hedgeWins.sum();
+	}
+
+	private <T> Supplier<T> instrument(Supplier<T> call) {
+		DependencyTimers dependencyTimers = timers;
+		if (dependencyTimers == null) {
+			return call;
+		}
+		long submitted = System.nanoTime();
+		return () -> {
+			long started = System.nanoTime();
+			dependencyTimers.permitWait.record(started - submitted, TimeUnit.NANOSECONDS);
+			try {
+				T result = call.get();
+				dependencyTimers.success.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+				return result;
+			} catch (RuntimeException | Error e) {
+				dependencyTimers.failure.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+				throw e;
+			}
+		};
+	}
+
+	private ScheduledFuture<?> schedule(long delayNanos, Runnable task) {
+		return scheduler.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Un appel logique et ses tentatives. {@code remaining} compte les tentatives en cours et la
+	 * seconde tentative encore programmée : l'appel n'échoue que lorsqu'il tombe à zéro.
+	 */
+	private final class Call<T> {
+		private final Supplier<T> call;
+		private final Executor executor;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private final List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+		private final AtomicInteger remaining = new AtomicInteger(1);
+		private final AtomicReference<Throwable> lastFailure = new AtomicReference<>();
+
+		private Call(Supplier<T> call, Executor executor) {
+			this.call = call;
+			this.executor = executor;
+		}
+
+		private void launch(boolean primary) {
+			CompletableFuture<T> attempt = limiter.submit(instrument(call), executor, started -> onStart(started, primary));
+			attempts.add(attempt);
+			if (result.isDone()) {
+				attempt.cancel(true);
+			}
+			attempt.whenComplete((value, e) -> {
+				if (e == null) {
+					if (result.complete(value) && !primary) {
+						hedgeWins.increment();
+					}
+				} else {
+					fail(e);
+				}
+			});
+		}
+
+		private void onStart(CompletableFuture<T> attempt, boolean primary) {
+			if (timeoutNanos > 0) {
+				ScheduledFuture<?> deadline = schedule(timeoutNanos, () -> {
+					if (!attempt.isDone()) {
+						timeouts.increment();
+						attempt.completeExceptionally(new TimeoutException(
+								dependency.getOperation() + " timed out after " + timeoutNanos / 1_000_000 + " ms"));
+					}
+				});
+				attempt.whenComplete((value, e) -> deadline.cancel(false));
+			}
+			if (primary && hedgeDelayNanos > 0) {
+				remaining.incrementAndGet();
+				schedule(hedgeDelayNanos, this::hedge);
+			}
+		}
+
+		private void hedge() {
+			if (result.isDone()) {
+				return;
+			}
+			if (limiter.getQueued() > 0) {
+				if (remaining.decrementAndGet() == 0) {
+					result.completeExceptionally(lastFailure.get());
+				}
+				return;
+			}
+			hedges.increment();
+			launch(false);
+		}
+
+		private void fail(Throwable e) {
+			lastFailure.set(e);
+			if (remaining.decrementAndGet() == 0) {
+				result.completeExceptionally(e);
+			}
+		}
+	}
+
+	static final class DependencyTimers {
+		private final Timer success;
+		private final Timer failure;
+		private final Timer permitWait;
+
+		DependencyTimers(Timer success, Timer failure, Timer permitWait) {
+			this.success = success;
+			this.failure = failure;
+			this.permitWait = permitWait;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.openclassrooms.tourguide.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Limite le nombre d'appels simultanés vers une dépendance externe sans bloquer de thread :
+ * les appels au-delà de la limite sont mis en file et démarrés dès qu'un appel en cours se termine.
+ *
+ * Un appel dont le résultat est complété de l'extérieur (délai dépassé, annulation) n'est pas
+ * démarré s'il attend encore dans la file, et le thread qui l'exécute est interrompu s'il a
+ * déjà démarré : sa place dans la limite est libérée dès que l'appel rend la main.
+ */
+class DependencyLimiter {
+	private final int limit;
+	private final Semaphore permits;
+	private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+
+	DependencyLimiter(int limit) {
+		this.limit = limit;
+		this.permits = new Semaphore(limit);
+	}
+
+	<T> CompletableFuture<T> submit(Supplier<T> call, Executor executor) {
+		return submit(call, executor, result -> {
+		});
+	}
+
+	/**
+	 * @param onStart appelé dans le thread de l'appel, juste avant son démarrage
+	 */
+	<T> CompletableFuture<T> submit(Supplier<T> call, Executor executor, Consumer<CompletableFuture<T>> onStart) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Runner runner = new Runner();
+		result.whenComplete((value, e) -> runner.interrupt());
+		queued.incrementAndGet();
+		Runnable task = () -> {
+			try {
+				if (!result.isDone() && runner.start()) {
+					try {
+						onStart.accept(result);
+						result.complete(call.get());
+					} finally {
+						runner.finish();
+					}
+				}
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
+			} finally {
+				permits.release();
+				drain();
+			}
+		};
+		pending.add(() -> {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) { // exécuteur arrêté
+				permits.release();
+				drain();
+				result.completeExceptionally(e);
+			}
+		});
+		drain();
+		return result;
+	}
+
+	private void drain() {
+		while (permits.tryAcquire()) {
+			Runnable next = pending.poll();
+			if (next == null) {
+				permits.release();
+				// un appel a pu être ajouté entre poll() et release()
+				if (pending.isEmpty()) {
+					return;
+				}
+				continue;
+			}
+			queued.decrementAndGet();
+			next.run();
+		}
+	}
+
+	int getLimit() {
+		return limit;
+	}
+
+	int getInFlight() {
+		return limit - permits.availablePermits();
+	}
+
+	int getQueued() {
+		return queued.get();
+	}
+
+	/**
+	 * Thread exécutant un appel. Démarrage, fin et interruption sont exclusifs : une interruption
+	 * ne peut pas atteindre le thread après la fin de l'appel, quand il exécute déjà autre chose.
+	 */
+	private static final class Runner {
+		private Thread thread;
+		private boolean finished = false;
+		private boolean interrupted = false;
+
+		synchronized boolean start() {
+			if (finished) {
+				return false;
+			}
+			thread = Thread.currentThread();
+			return true;
+		}
+
+		synchronized void finish() {
+			finished = true;
+			thread = null;
+			if (interrupted) {
+				Thread.interrupted(); // le thread retourne au pool sans l'interruption destinée à l'appel
+			}
+		}
+
+		synchronized void interrupt() {
+			finished = true;
+			if (thread != null && thread != Thread.currentThread()) {
+				interrupted = true;
+				thread.interrupt();
+			}
+		}
+	}
+}
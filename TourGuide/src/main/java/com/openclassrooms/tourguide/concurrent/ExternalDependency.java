@@ -0,0 +1,31 @@
+package com.openclassrooms.tourguide.concurrent;
+
+/**
+ * Services externes bloquants appelés par TourGuide. Chacun dispose de sa propre
+ * limite de concurrence dans {@link TourGuideExecutor}. Sur threads plateforme, les limites
+ * par défaut sont réduites à la taille du pool.
+ */
+public enum ExternalDependency {
+	GPS(100, "getUserLocation"),
+	REWARDS(150, "getAttractionRewardPoints"),
+	PRICER(20, "getPrice");
+
+	private final int defaultConcurrency;
+	private final String operation;
+
+	ExternalDependency(int defaultConcurrency, String operation) {
+		this.defaultConcurrency = defaultConcurrency;
+		this.operation = operation;
+	}
+
+	/**
+	 * @return le nom de la méthode appelée sur le service externe, utilisé dans les métriques
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	public int getDefaultConcurrency() {
+		return defaultConcurrency;
+	}
+}
@@ -0,0 +1,36 @@
+package com.openclassrooms.tourguide.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Propagation de l'annulation le long d'une chaîne de {@link CompletableFuture}.
+ *
+ * Annuler une étape dérivée ({@code thenApply}, {@code handle}, {@code thenCompose}...) ne
+ * l'annule qu'elle : l'étape dont elle dépend, et donc l'appel externe à l'origine de la chaîne,
+ * continue. Une requête abandonnée par son client garderait ainsi sa place dans la limite de
+ * concurrence de la dépendance.
+ */
+public final class Futures {
+
+	private Futures() {
+	}
+
+	/**
+	 * Annule {@code sources} lorsque {@code derived} est annulé.
+	 *
+	 * @param derived l'étape renvoyée à l'appelant
+	 * @param sources les étapes dont elle dépend
+	 * @return {@code derived}
+	 */
+	public static <T> CompletableFuture<T> cancelling(CompletableFuture<T> derived, Future<?>... sources) {
+		derived.whenComplete((value, e) -> {
+			if (derived.isCancelled()) {
+				for (Future<?> source : sources) {
+					source.cancel(true);
+				}
+			}
+		});
+		return derived;
+	}
+}
@@ -0,0 +1,84 @@
+package com.openclassrooms.tourguide.concurrent;
+
+import java.time.Duration;
+
+/**
+ * Protection appliquée aux appels d'une dépendance externe, en plus de sa limite de concurrence.
+ *
+ * <ul>
+ * <li>délai par tentative : mesuré à partir du démarrage de l'appel, l'attente d'une place dans
+ * la limite de concurrence n'est pas comptée. À l'échéance, la tentative échoue et le thread
+ * qui l'exécute est interrompu ;</li>
+ * <li>requête couverte (hedging) : si la tentative n'a pas abouti après {@code hedgeDelay}, une
+ * seconde tentative identique est lancée et la première réponse l'emporte ;</li>
+ * <li>disjoncteur : lorsque la proportion d'échecs parmi les {@code slidingWindow} derniers
+ * appels atteint {@code failureRateThreshold}, les appels sont refusés pendant
+ * {@code openDuration}, puis un appel d'essai décide de la reprise.</li>
+ * </ul>
+ */
+public final class ResiliencePolicy {
+	public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+	public static final Duration DEFAULT_HEDGE_DELAY = Duration.ZERO;
+	public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+	public static final int DEFAULT_SLIDING_WINDOW = 100;
+	public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+	private final Duration timeout;
+	private final Duration hedgeDelay;
+	private final double failureRateThreshold;
+	private final int slidingWindow;
+	private final Duration openDuration;
+
+	/**
+	 * @param timeout              délai maximal d'une tentative, {@link Duration#ZERO} pour ne
+	 *                             pas en fixer
+	 * @param hedgeDelay           délai avant l'envoi d'une seconde tentative,
+	 *                             {@link Duration#ZERO} pour ne jamais en envoyer
+	 * @param failureRateThreshold proportion d'échecs ouvrant le disjoncteur, entre 0 exclu et 1 ;
+	 *                             1 n'ouvre le disjoncteur que si tous les appels échouent
+	 * @param slidingWindow        nombre de derniers appels pris en compte
+	 * @param openDuration         durée pendant laquelle les appels sont refusés
+	 */
+	public ResiliencePolicy(Duration timeout, Duration hedgeDelay, double failureRateThreshold, int slidingWindow,
+			Duration openDuration) {
+		if (timeout.isNegative() || hedgeDelay.isNegative() || openDuration.isNegative()) {
+			throw new IllegalArgumentException("durations must not be negative");
+		}
+		if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+			throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]: " + failureRateThreshold);
+		}
+		if (slidingWindow <= 0) {
+			throw new IllegalArgumentException("slidingWindow must be positive: " + slidingWindow);
+		}
+		this.timeout = timeout;
+		this.hedgeDelay = hedgeDelay;
+		this.failureRateThreshold = failureRateThreshold;
+		this.slidingWindow = slidingWindow;
+		this.openDuration = openDuration;
+	}
+
+	public static ResiliencePolicy defaults() {
+		return new ResiliencePolicy(DEFAULT_TIMEOUT, DEFAULT_HEDGE_DELAY, DEFAULT_FAILURE_RATE_THRESHOLD,
+				DEFAULT_SLIDING_WINDOW, DEFAULT_OPEN_DURATION);
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public Duration getHedgeDelay() {
+		return hedgeDelay;
+	}
+
+	public double getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public int getSlidingWindow() {
+		return slidingWindow;
+	}
+
+	public Duration getOpenDuration() {
+		return openDuration;
+	}
+}
@@ -0,0 +1,357 @@
+package com.openclassrooms.tourguide.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.openclassrooms.tourguide.concurrent.DependencyGuard.DependencyTimers;
+
+/**
+ * Couche d'exécution partagée par les services TourGuide.
+ *
+ * Sur un JDK 21 ou plus, le mode {@link Mode#AUTO} exécute chaque tâche dans un thread virtuel ;
+ * sinon un pool borné de threads plateforme est utilisé. Les appels vers les services externes
+ * passent par {@link #call(ExternalDependency, Supplier)}, qui applique la limite de concurrence
+ * propre à chaque dépendance sans bloquer de thread en attente, ainsi que sa
+ * {@link ResiliencePolicy} : délai par tentative, requête couverte et disjoncteur. Une dépendance
+ * lente ou en panne n'immobilise ainsi qu'un nombre borné de threads, pendant une durée bornée.
+ *
+ * Sur threads plateforme, le pool reste petit : ce sont les files des limites de concurrence,
+ * et non des threads bloqués, qui absorbent les appels en attente. Pour qu'une dépendance
+ * bloquée jusqu'à sa limite ne prive pas les autres de threads, les limites sont ramenées si
+ * besoin à la taille du pool, moins une part réservée aux tâches de calcul (voir
+ * {@link #platformLimits(int, Map)}). Chaque dépendance garde au moins un appel à la fois.
+ *
+ * Une fois liée à un {@link MeterRegistry}, la couche mesure pour chaque dépendance la durée
+ * des appels (histogramme, par issue) et le temps passé à attendre une place dans la limite
+ * de concurrence.
+ */
+public class TourGuideExecutor implements MeterBinder, AutoCloseable {
+	public static final int DEFAULT_POOL_SIZE = 64;
+
+	public enum Mode { AUTO, VIRTUAL, PLATFORM }
+
+	private final Logger logger = LoggerFactory.getLogger(TourGuideExecutor.class);
+	private final ExecutorService executorService;
+	private final boolean virtual;
+	private final Map<ExternalDependency, DependencyGuard> guards = new EnumMap<>(ExternalDependency.class);
+	private final ScheduledExecutorService scheduler;
+	private final AtomicInteger activeTasks = new AtomicInteger();
+	private final AtomicLong completedTasks = new AtomicLong();
+
+	private static final class Shared {
+		private static final TourGuideExecutor INSTANCE = new TourGuideExecutor();
+	}
+
+	public TourGuideExecutor() {
+		this(Mode.AUTO, DEFAULT_POOL_SIZE, Map.of());
+	}
+
+	public TourGuideExecutor(Mode mode, int poolSize, Map<ExternalDependency, Integer> concurrency) {
+		this(mode, poolSize, concurrency, Map.of());
+	}
+
+	/**
+	 * @param mode        mode d'exécution souhaité
+	 * @param poolSize    taille du pool de threads plateforme (ignorée en mode virtuel)
+	 * @param concurrency limite d'appels simultanés par dépendance ; les dépendances absentes
+	 *                    gardent leur limite par défaut
+	 * @param policies    protection des appels par dépendance ; les dépendances absentes suivent
+	 *                    {@link ResiliencePolicy#defaults()}
+	 */
+	public TourGuideExecutor(Mode mode, int poolSize, Map<ExternalDependency, Integer> concurrency,
+			Map<ExternalDependency, ResiliencePolicy> policies) {
+		ExecutorService virtualExecutor = mode == Mode.PLATFORM ? null : newVirtualThreadExecutor();
+		this.virtual = virtualExecutor != null;
+		Map<ExternalDependency, Integer> limits = concurrency;
+		if (virtual) {
+			this.executorService = virtualExecutor;
+		} else {
+			if (mode == Mode.VIRTUAL) {
+				logger.warn("Virtual threads are not available on this JVM, falling back to {} platform threads", poolSize);
+			}
+			limits = platformLimits(poolSize, concurrency);
+			if (!limits.equals(withDefaults(concurrency))) {
+				logger.info("Dependency limits reduced to {} to fit {} platform threads", limits, poolSize);
+			}
+			this.executorService = newPlatformExecutor(poolSize);
+		}
+		ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "tourguide-deadlines");
+			thread.setDaemon(true);
+			return thread;
+		});
+		deadlines.setRemoveOnCancelPolicy(true);
+		this.scheduler = deadlines;
+		for (ExternalDependency dependency : ExternalDependency.values()) {
+			guards.put(dependency, new DependencyGuard(dependency,
+					limits.getOrDefault(dependency, dependency.getDefaultConcurrency()),
+					policies.getOrDefault(dependency, ResiliencePolicy.defaults()), scheduler));
+		}
+	}
+
+	/**
+	 * Couche d'exécution par défaut, commune aux services construits sans couche explicite.
+	 * Elle n'est jamais arrêtée : ses threads plateforme sont des démons.
+	 */
+	public static TourGuideExecutor shared() {
+		return Shared.INSTANCE;
+	}
+
+	/**
+	 * Ramène les limites de concurrence à ce qu'un pool de {@code poolSize} threads plateforme
+	 * peut tenir simultanément, hors part réservée aux calculs. Chaque dépendance garde une
+	 * place ; le reste est réparti au prorata des limites configurées, sans jamais les dépasser.
+	 *
+	 * @param concurrency limites configurées ; les dépendances absentes gardent leur limite par défaut
+	 * @return les limites appliquées, dont la somme ne dépasse pas le pool hors réserve
+	 * @throws IllegalArgumentException si le pool ne laisse pas un thread par dépendance
+	 */
+	public static Map<ExternalDependency, Integer> platformLimits(int poolSize,
+			Map<ExternalDependency, Integer> concurrency) {
+		Map<ExternalDependency, Integer> limits = withDefaults(concurrency);
+		int dependencies = limits.size();
+		int budget = poolSize - reservedThreads(poolSize);
+		if (budget < dependencies) {
+			throw new IllegalArgumentException("poolSize " + poolSize + " leaves less than one thread per dependency");
+		}
+		long total = limits.values().stream().mapToLong(Integer::longValue).sum();
+		if (total <= budget) {
+			return limits;
+		}
+		long extra = total - dependencies; // places au-delà de la première, à répartir
+		int spare = budget - dependencies;
+		Map<ExternalDependency, Integer> reduced = new EnumMap<>(ExternalDependency.class);
+		limits.forEach((dependency, limit) -> reduced.put(dependency, 1 + (int) ((limit - 1L) * spare / extra)));
+		return reduced;
+	}
+
+	/**
+	 * @return les threads du pool plateforme laissés aux tâches de calcul : un par cœur, au plus
+	 *         un quart du pool, au moins un
+	 */
+	static int reservedThreads(int poolSize) {
+		return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize / 4));
+	}
+
+	private static Map<ExternalDependency, Integer> withDefaults(Map<ExternalDependency, Integer> concurrency) {
+		Map<ExternalDependency, Integer> limits = new EnumMap<>(ExternalDependency.class);
+		for (ExternalDependency dependency : ExternalDependency.values()) {
+			limits.put(dependency, concurrency.getOrDefault(dependency, dependency.getDefaultConcurrency()));
+		}
+		return limits;
+	}
+
+	/**
+	 * Exécute une tâche de calcul de manière asynchrone.
+	 *
+	 * @param task la tâche à exécuter
+	 * @return un {@link CompletableFuture} fournissant le résultat de la tâche
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+		return CompletableFuture.supplyAsync(task, this::execute);
+	}
+
+	/**
+	 * Soumet une tâche de longue durée (boucle de suivi par exemple).
+	 *
+	 * @param task la tâche à exécuter
+	 * @return un {@link Future} permettant d'annuler la tâche
+	 */
+	public Future<?> submit(Runnable task) {
+		return executorService.submit(instrument(task));
+	}
+
+	/**
+	 * Appelle une dépendance externe bloquante en respectant sa limite de concurrence et sa
+	 * {@link ResiliencePolicy}. Si la limite est atteinte, l'appel est mis en file sans occuper
+	 * de thread.
+	 *
+	 * @param dependency la dépendance appelée
+	 * @param call       l'appel bloquant
+	 * @return un {@link CompletableFuture} fournissant le résultat de l'appel ; il échoue avec une
+	 *         {@link java.util.concurrent.TimeoutException} si le délai est dépassé et avec une
+	 *         {@link CircuitOpenException} si le disjoncteur est ouvert. L'annuler libère la place
+	 *         de l'appel : il n'est pas démarré s'il est en file, et interrompu s'il est en cours.
+	 */
+	public <T> CompletableFuture<T> call(ExternalDependency dependency, Supplier<T> call) {
+		return guards.get(dependency).call(call, this::execute);
+	}
+
+	/**
+	 * @return la limite d'appels simultanés appliquée à la dépendance
+	 */
+	public int getLimit(ExternalDependency dependency) {
+		return guards.get(dependency).getLimiter().getLimit();
+	}
+
+	/**
+	 * @return le nombre d'appels en cours vers la dépendance
+	 */
+	public int getInFlightCount(ExternalDependency dependency) {
+		return guards.get(dependency).getLimiter().getInFlight();
+	}
+
+	/**
+	 * @return le nombre d'appels en attente d'une place dans la limite de concurrence
+	 */
+	public int getQueuedCount(ExternalDependency dependency) {
+		return guards.get(dependency).getLimiter().getQueued();
+	}
+
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * @return le nombre maximal de threads plateforme, ou -1 en mode virtuel
+	 */
+	public int getPoolSize() {
+		return executorService instanceof ThreadPoolExecutor pool ? pool.getMaximumPoolSize() : -1;
+	}
+
+	public CircuitBreaker getCircuitBreaker(ExternalDependency dependency) {
+		return guards.get(dependency).getCircuitBreaker();
+	}
+
+	/**
+	 * @return le nombre de tentatives interrompues faute de réponse dans le délai
+	 */
+	public long getTimeoutCount(ExternalDependency dependency) {
+		return guards.get(dependency).getTimeoutCount();
+	}
+
+	/**
+	 * @return le nombre de secondes tentatives envoyées
+	 */
+	public long getHedgeCount(ExternalDependency dependency) {
+		return guards.get(dependency).getHedgeCount();
+	}
+
+	private void execute(Runnable task) {
+		executorService.execute(instrument(task));
+	}
+
+	private Runnable instrument(Runnable task) {
+		return () -> {
+			activeTasks.incrementAndGet();
+			try {
+				task.run();
+			} finally {
+				activeTasks.decrementAndGet();
+				completedTasks.incrementAndGet();
+			}
+		};
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		String type = virtual ? "virtual" : "platform";
+		Gauge.builder("tourguide.executor.active", activeTasks, AtomicInteger::get)
+				.description("Tasks currently running").tag("threads", type).register(registry);
+		Gauge.builder("tourguide.executor.completed", completedTasks, AtomicLong::get)
+				.description("Tasks completed since startup").tag("threads", type).register(registry);
+		if (executorService instanceof ThreadPoolExecutor pool) {
+			Gauge.builder("tourguide.executor.queued", pool, p -> p.getQueue().size())
+					.description("Tasks waiting for a platform thread").register(registry);
+			Gauge.builder("tourguide.executor.pool.size", pool, ThreadPoolExecutor::getPoolSize)
+					.description("Platform threads currently alive").register(registry);
+		}
+		guards.forEach((dependency, guard) -> {
+			String name = dependency.name().toLowerCase();
+			DependencyLimiter limiter = guard.getLimiter();
+			guard.bindTimers(new DependencyTimers(
+					callTimer(registry, dependency, "success"),
+					callTimer(registry, dependency, "error"),
+					Timer.builder("tourguide.dependency.wait")
+							.description("Time spent waiting for a concurrency permit")
+							.tag("dependency", name).publishPercentileHistogram().register(registry)));
+			Gauge.builder("tourguide.dependency.in.flight", limiter, DependencyLimiter::getInFlight)
+					.description("Calls in progress").tag("dependency", name).register(registry);
+			Gauge.builder("tourguide.dependency.queued", limiter, DependencyLimiter::getQueued)
+					.description("Calls waiting for a concurrency permit").tag("dependency", name).register(registry);
+			Gauge.builder("tourguide.dependency.limit", limiter, DependencyLimiter::getLimit)
+					.description("Maximum concurrent calls").tag("dependency", name).register(registry);
+			Gauge.builder("tourguide.dependency.circuit.state", guard.getCircuitBreaker(), breaker -> breaker.getState().ordinal())
+					.description("Circuit breaker state: 0 closed, 1 open, 2 half-open").tag("dependency", name)
+					.register(registry);
+			FunctionCounter.builder("tourguide.dependency.circuit.rejected", guard.getCircuitBreaker(),
+					CircuitBreaker::getRejectedCount)
+					.description("Calls refused while the circuit was open").tag("dependency", name).register(registry);
+			FunctionCounter.builder("tourguide.dependency.timeouts", guard, DependencyGuard::getTimeoutCount)
+					.description("Attempts abandoned after their deadline").tag("dependency", name).register(registry);
+			FunctionCounter.builder("tourguide.dependency.hedges", guard, DependencyGuard::getHedgeCount)
+					.description("Hedged attempts sent").tag("dependency", name).register(registry);
+			FunctionCounter.builder("tourguide.dependency.hedge.wins", guard, DependencyGuard::getHedgeWinCount)
+					.description("Calls answered first by the hedged attempt").tag("dependency", name).register(registry);
+		});
+	}
+
+	private static Timer callTimer(MeterRegistry registry, ExternalDependency dependency, String outcome) {
+		return Timer.builder("tourguide.dependency.calls")
+				.description("Duration of calls to an external dependency")
+				.tag("dependency", dependency.name().toLowerCase())
+				.tag("operation", dependency.getOperation())
+				.tag("outcome", outcome)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		executorService.shutdown();
+		try {
+			if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+				executorService.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executorService.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newPlatformExecutor(int poolSize) {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "tourguide-worker-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), threadFactory);
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+}
@@ -1,28 +1,187 @@
 package com.openclassrooms.tourguide.config;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.ClientMode;
+import com.openclassrooms.tourguide.client.LocationClient;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.client.TripPricingClient;
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.client.simulation.LatencyProfile;
+import com.openclassrooms.tourguide.client.simulation.SimulatedLocationClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedRewardPointsClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedTripPricingClient;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.cache.LocationCache;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.GeoDistance;
+import com.openclassrooms.tourguide.helper.InternalUserGenerator;
+import com.openclassrooms.tourguide.metrics.TourGuideMetrics;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.repository.FileUserStore;
+import com.openclassrooms.tourguide.repository.InMemoryUserStore;
+import com.openclassrooms.tourguide.repository.UserStore;
+import com.openclassrooms.tourguide.service.NearbyAttractionFinder;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.TripDealPricer;
 import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.Tracker;
 
 @Configuration
+@EnableConfigurationProperties(TourGuideProperties.class)
 public class TourGuideModule {
+
+	private final TourGuideProperties properties;
+
+	public TourGuideModule(TourGuideProperties properties) {
+		this.properties = properties;
+	}
 	
 	@Bean
-	public GpsUtil getGpsUtil() {
-		return new GpsUtil();
+	public LocationClient getLocationClient() {
+		if (isSimulated()) {
+			return new SimulatedLocationClient(SimulatedLocationClient.defaultAttractions(),
+					getCallSimulator(ExternalDependency.GPS, properties.getClients().getGps()));
+		}
+		return LocationClient.of(new GpsUtil());
 	}
 	
 	@Bean
 	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+		return new RewardsService(getAttractionCatalog(), getTourGuideExecutor(), getRewardPointsLoader(), getDistanceMode(),
+				getUserStore());
 	}
 	
 	@Bean
-	public RewardCentral getRewardCentral() {
-		return new RewardCentral();
+	public AttractionCatalog getAttractionCatalog() {
+		LocationClient locationClient = getLocationClient();
+		return new AttractionCatalog(locationClient::getAttractions, properties.getAttractions().getRefreshInterval());
+	}
+
+	@Bean
+	public RewardPointsClient getRewardPointsClient() {
+		if (isSimulated()) {
+			return new SimulatedRewardPointsClient(
+					getCallSimulator(ExternalDependency.REWARDS, properties.getClients().getRewards()));
+		}
+		return RewardPointsClient.of(new RewardCentral());
+	}
+
+	@Bean
+	public TourGuideExecutor getTourGuideExecutor() {
+		TourGuideProperties.Execution execution = properties.getExecution();
+		TourGuideProperties.Resilience resilience = properties.getResilience();
+		return new TourGuideExecutor(execution.getMode(), execution.getPoolSize(), Map.of(
+				ExternalDependency.GPS, execution.getGpsConcurrency(),
+				ExternalDependency.REWARDS, execution.getRewardsConcurrency(),
+				ExternalDependency.PRICER, execution.getPricerConcurrency()), Map.of(
+				ExternalDependency.GPS, resilience.getGps().toPolicy(),
+				ExternalDependency.REWARDS, resilience.getRewards().toPolicy(),
+				ExternalDependency.PRICER, resilience.getPricer().toPolicy()));
+	}
+
+	@Bean
+	public RewardPointsLoader getRewardPointsLoader() {
+		TourGuideProperties.Rewards rewards = properties.getRewards();
+		return new RewardPointsLoader(getRewardPointsClient(), getTourGuideExecutor(),
+				new ExpiringCache<>(rewards.getCacheSize(), rewards.getCacheTtl()),
+				rewards.getBatchSize(), rewards.getBatchWindow());
+	}
+
+	@Bean
+	public TripPricingClient getTripPricingClient() {
+		if (isSimulated()) {
+			return new SimulatedTripPricingClient(
+					getCallSimulator(ExternalDependency.PRICER, properties.getClients().getPricer()));
+		}
+		return TripPricingClient.of(new TripPricer());
+	}
+
+	@Bean
+	public TripDealPricer getTripDealPricer() {
+		TourGuideProperties.TripDeals tripDeals = properties.getTripDeals();
+		return new TripDealPricer(getTripPricingClient(), getTourGuideExecutor(),
+				new ExpiringCache<>(tripDeals.getCacheSize(), tripDeals.getCacheTtl()),
+				tripDeals.getQuoteRequests(), tripDeals.getPointsBucket());
+	}
+
+	@Bean
+	public NearbyAttractionFinder getNearbyAttractionFinder() {
+		TourGuideProperties.NearbyAttractions nearbyAttractions = properties.getNearbyAttractions();
+		return new NearbyAttractionFinder(getRewardsService(),
+				new ExpiringCache<>(nearbyAttractions.getCacheSize(), nearbyAttractions.getCacheTtl()),
+				nearbyAttractions.getLimit(), nearbyAttractions.getCellDegrees());
+	}
+
+	@Bean
+	public GeoDistance.Mode getDistanceMode() {
+		return properties.getDistanceMode();
+	}
+
+	@Bean
+	public HistoryPolicy getHistoryPolicy() {
+		TourGuideProperties.History history = properties.getHistory();
+		return new HistoryPolicy(history.getMaxEntries(), history.getMaxAge(), history.getMinInterval());
+	}
+
+	@Bean
+	public TourGuideMetrics getTourGuideMetrics(TourGuideService tourGuideService) {
+		return new TourGuideMetrics(tourGuideService, getTripDealPricer());
+	}
+
+	/**
+	 * Durée de vie et rafraîchissement anticipé non fixés sont dérivés de l'intervalle du
+	 * {@link Tracker} lancé par {@link TourGuideService}, pour que ses cycles soient servis par le cache.
+	 */
+	@Bean
+	public LocationCache getLocationCache() {
+		TourGuideProperties.LocationCacheSettings locationCache = properties.getLocationCache();
+		Duration trackingInterval = Tracker.DEFAULT_POLLING_INTERVAL;
+		Duration ttl = locationCache.getTtl() != null ? locationCache.getTtl() : LocationCache.ttlFor(trackingInterval);
+		Duration refreshAfter = locationCache.getRefreshAfter() != null ? locationCache.getRefreshAfter()
+				: LocationCache.refreshAfterFor(trackingInterval);
+		return new LocationCache(locationCache.getMaxSize(), ttl, refreshAfter, Clock.systemUTC());
+	}
+
+	@Bean
+	public InternalUserGenerator getInternalUserGenerator() {
+		TourGuideProperties.InternalUsers internalUsers = properties.getInternalUsers();
+		return new InternalUserGenerator(internalUsers.getSeed(), internalUsers.isLazyHistory());
+	}
+
+	@Bean
+	public UserStore getUserStore() {
+		TourGuideProperties.Persistence persistence = properties.getPersistence();
+		if (!persistence.isEnabled()) {
+			return new InMemoryUserStore();
+		}
+		return new FileUserStore(persistence.getDirectory(), persistence.getFlushInterval(),
+				persistence.getSnapshotInterval(), persistence.getCompactionThreshold().toBytes());
+	}
+
+	private boolean isSimulated() {
+		return properties.getClients().getMode() == ClientMode.SIMULATED;
+	}
+
+	/**
+	 * Chaque service simulé tire ses latences et ses pannes d'une graine propre, dérivée de la
+	 * graine commune.
+	 */
+	private CallSimulator getCallSimulator(ExternalDependency dependency, TourGuideProperties.Simulation simulation) {
+		return new CallSimulator(properties.getClients().getSeed() + dependency.ordinal(),
+				LatencyProfile.parse(simulation.getLatency()), simulation.getFailureRate());
 	}
 	
 }
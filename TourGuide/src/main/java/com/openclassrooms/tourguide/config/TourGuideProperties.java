@@ -0,0 +1,559 @@
+package com.openclassrooms.tourguide.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+
+import com.openclassrooms.tourguide.cache.LocationCache;
+import com.openclassrooms.tourguide.client.ClientMode;
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.client.simulation.LatencyProfile;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.ResiliencePolicy;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.GeoDistance;
+import com.openclassrooms.tourguide.model.LocationHistory;
+import com.openclassrooms.tourguide.repository.FileUserStore;
+import com.openclassrooms.tourguide.service.NearbyAttractionFinder;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.TripDealPricer;
+
+/**
+ * Paramètres de l'application, préfixés par {@code tourguide} dans application.properties.
+ */
+@ConfigurationProperties(prefix = "tourguide")
+public class TourGuideProperties {
+
+	private final Execution execution = new Execution();
+	private final History history = new History();
+	private final Rewards rewards = new Rewards();
+	private final Web web = new Web();
+	private final TripDeals tripDeals = new TripDeals();
+	private final NearbyAttractions nearbyAttractions = new NearbyAttractions();
+	private final Persistence persistence = new Persistence();
+	private final LocationCacheSettings locationCache = new LocationCacheSettings();
+	private final InternalUsers internalUsers = new InternalUsers();
+	private final Attractions attractions = new Attractions();
+	private final Clients clients = new Clients();
+	private final Resilience resilience = new Resilience();
+	private GeoDistance.Mode distanceMode = GeoDistance.Mode.SPHERICAL_LAW_OF_COSINES;
+
+	public Execution getExecution() {
+		return execution;
+	}
+
+	public History getHistory() {
+		return history;
+	}
+
+	public Rewards getRewards() {
+		return rewards;
+	}
+
+	public Web getWeb() {
+		return web;
+	}
+
+	public TripDeals getTripDeals() {
+		return tripDeals;
+	}
+
+	public NearbyAttractions getNearbyAttractions() {
+		return nearbyAttractions;
+	}
+
+	public Persistence getPersistence() {
+		return persistence;
+	}
+
+	public LocationCacheSettings getLocationCache() {
+		return locationCache;
+	}
+
+	public InternalUsers getInternalUsers() {
+		return internalUsers;
+	}
+
+	public Attractions getAttractions() {
+		return attractions;
+	}
+
+	public Clients getClients() {
+		return clients;
+	}
+
+	public Resilience getResilience() {
+		return resilience;
+	}
+
+	public GeoDistance.Mode getDistanceMode() {
+		return distanceMode;
+	}
+
+	public void setDistanceMode(GeoDistance.Mode distanceMode) {
+		this.distanceMode = distanceMode;
+	}
+
+	public static class Execution {
+		private TourGuideExecutor.Mode mode = TourGuideExecutor.Mode.AUTO;
+		private int poolSize = TourGuideExecutor.DEFAULT_POOL_SIZE;
+		private int gpsConcurrency = ExternalDependency.GPS.getDefaultConcurrency();
+		private int rewardsConcurrency = ExternalDependency.REWARDS.getDefaultConcurrency();
+		private int pricerConcurrency = ExternalDependency.PRICER.getDefaultConcurrency();
+
+		public TourGuideExecutor.Mode getMode() {
+			return mode;
+		}
+
+		public void setMode(TourGuideExecutor.Mode mode) {
+			this.mode = mode;
+		}
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public int getGpsConcurrency() {
+			return gpsConcurrency;
+		}
+
+		public void setGpsConcurrency(int gpsConcurrency) {
+			this.gpsConcurrency = gpsConcurrency;
+		}
+
+		public int getRewardsConcurrency() {
+			return rewardsConcurrency;
+		}
+
+		public void setRewardsConcurrency(int rewardsConcurrency) {
+			this.rewardsConcurrency = rewardsConcurrency;
+		}
+
+		public int getPricerConcurrency() {
+			return pricerConcurrency;
+		}
+
+		public void setPricerConcurrency(int pricerConcurrency) {
+			this.pricerConcurrency = pricerConcurrency;
+		}
+	}
+
+	public static class History {
+		private int maxEntries = LocationHistory.HistoryPolicy.DEFAULT_MAX_ENTRIES;
+		private Duration maxAge = Duration.ZERO;
+		private Duration minInterval = Duration.ZERO;
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+
+		public Duration getMinInterval() {
+			return minInterval;
+		}
+
+		public void setMinInterval(Duration minInterval) {
+			this.minInterval = minInterval;
+		}
+	}
+
+	public static class Rewards {
+		private int cacheSize = RewardPointsLoader.DEFAULT_CACHE_SIZE;
+		private Duration cacheTtl = RewardPointsLoader.DEFAULT_CACHE_TTL;
+		private int batchSize = RewardPointsLoader.DEFAULT_BATCH_SIZE;
+		private Duration batchWindow = RewardPointsLoader.DEFAULT_BATCH_WINDOW;
+
+		public int getCacheSize() {
+			return cacheSize;
+		}
+
+		public void setCacheSize(int cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+
+		public Duration getCacheTtl() {
+			return cacheTtl;
+		}
+
+		public void setCacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public Duration getBatchWindow() {
+			return batchWindow;
+		}
+
+		public void setBatchWindow(Duration batchWindow) {
+			this.batchWindow = batchWindow;
+		}
+	}
+
+	public static class Web {
+		private Duration timeout = Duration.ofSeconds(10);
+
+		public Duration getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+	}
+
+	public static class TripDeals {
+		private int quoteRequests = TripDealPricer.DEFAULT_QUOTE_REQUESTS;
+		private int pointsBucket = TripDealPricer.DEFAULT_POINTS_BUCKET;
+		private int cacheSize = TripDealPricer.DEFAULT_CACHE_SIZE;
+		private Duration cacheTtl = TripDealPricer.DEFAULT_CACHE_TTL;
+
+		public int getQuoteRequests() {
+			return quoteRequests;
+		}
+
+		public void setQuoteRequests(int quoteRequests) {
+			this.quoteRequests = quoteRequests;
+		}
+
+		public int getPointsBucket() {
+			return pointsBucket;
+		}
+
+		public void setPointsBucket(int pointsBucket) {
+			this.pointsBucket = pointsBucket;
+		}
+
+		public int getCacheSize() {
+			return cacheSize;
+		}
+
+		public void setCacheSize(int cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+
+		public Duration getCacheTtl() {
+			return cacheTtl;
+		}
+
+		public void setCacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+	}
+
+	public static class NearbyAttractions {
+		private int limit = NearbyAttractionFinder.DEFAULT_LIMIT;
+		private double cellDegrees = NearbyAttractionFinder.DEFAULT_CELL_DEGREES;
+		private int cacheSize = NearbyAttractionFinder.DEFAULT_CACHE_SIZE;
+		private Duration cacheTtl = NearbyAttractionFinder.DEFAULT_CACHE_TTL;
+
+		public int getLimit() {
+			return limit;
+		}
+
+		public void setLimit(int limit) {
+			this.limit = limit;
+		}
+
+		public double getCellDegrees() {
+			return cellDegrees;
+		}
+
+		public void setCellDegrees(double cellDegrees) {
+			this.cellDegrees = cellDegrees;
+		}
+
+		public int getCacheSize() {
+			return cacheSize;
+		}
+
+		public void setCacheSize(int cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+
+		public Duration getCacheTtl() {
+			return cacheTtl;
+		}
+
+		public void setCacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+	}
+
+	public static class LocationCacheSettings {
+		private int maxSize = LocationCache.DEFAULT_MAX_SIZE;
+		private Duration ttl;
+		private Duration refreshAfter;
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * @return la durée de vie fixée, ou {@code null} pour la dériver de l'intervalle de suivi
+		 */
+		public Duration getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+
+		/**
+		 * @return le délai de rafraîchissement anticipé fixé, ou {@code null} pour le dériver de
+		 *         l'intervalle de suivi
+		 */
+		public Duration getRefreshAfter() {
+			return refreshAfter;
+		}
+
+		public void setRefreshAfter(Duration refreshAfter) {
+			this.refreshAfter = refreshAfter;
+		}
+	}
+
+	public static class Attractions {
+		private Duration refreshInterval = AttractionCatalog.DEFAULT_REFRESH_INTERVAL;
+
+		public Duration getRefreshInterval() {
+			return refreshInterval;
+		}
+
+		public void setRefreshInterval(Duration refreshInterval) {
+			this.refreshInterval = refreshInterval;
+		}
+	}
+
+	public static class Resilience {
+		private final DependencyResilience gps = new DependencyResilience();
+		private final DependencyResilience rewards = new DependencyResilience();
+		private final DependencyResilience pricer = new DependencyResilience();
+
+		public DependencyResilience getGps() {
+			return gps;
+		}
+
+		public DependencyResilience getRewards() {
+			return rewards;
+		}
+
+		public DependencyResilience getPricer() {
+			return pricer;
+		}
+	}
+
+	/**
+	 * Voir {@link ResiliencePolicy}.
+	 */
+	public static class DependencyResilience {
+		private Duration timeout = ResiliencePolicy.DEFAULT_TIMEOUT;
+		private Duration hedgeDelay = ResiliencePolicy.DEFAULT_HEDGE_DELAY;
+		private double failureRateThreshold = ResiliencePolicy.DEFAULT_FAILURE_RATE_THRESHOLD;
+		private int slidingWindow = ResiliencePolicy.DEFAULT_SLIDING_WINDOW;
+		private Duration openDuration = ResiliencePolicy.DEFAULT_OPEN_DURATION;
+
+		public ResiliencePolicy toPolicy() {
+			return new ResiliencePolicy(timeout, hedgeDelay, failureRateThreshold, slidingWindow, openDuration);
+		}
+
+		public Duration getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+
+		public Duration getHedgeDelay() {
+			return hedgeDelay;
+		}
+
+		public void setHedgeDelay(Duration hedgeDelay) {
+			this.hedgeDelay = hedgeDelay;
+		}
+
+		public double getFailureRateThreshold() {
+			return failureRateThreshold;
+		}
+
+		public void setFailureRateThreshold(double failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+		}
+
+		public int getSlidingWindow() {
+			return slidingWindow;
+		}
+
+		public void setSlidingWindow(int slidingWindow) {
+			this.slidingWindow = slidingWindow;
+		}
+
+		public Duration getOpenDuration() {
+			return openDuration;
+		}
+
+		public void setOpenDuration(Duration openDuration) {
+			this.openDuration = openDuration;
+		}
+	}
+
+	public static class Clients {
+		private ClientMode mode = ClientMode.LIBRARY;
+		private long seed = CallSimulator.DEFAULT_SEED;
+		private final Simulation gps = new Simulation();
+		private final Simulation rewards = new Simulation();
+		private final Simulation pricer = new Simulation();
+
+		public ClientMode getMode() {
+			return mode;
+		}
+
+		public void setMode(ClientMode mode) {
+			this.mode = mode;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public void setSeed(long seed) {
+			this.seed = seed;
+		}
+
+		public Simulation getGps() {
+			return gps;
+		}
+
+		public Simulation getRewards() {
+			return rewards;
+		}
+
+		public Simulation getPricer() {
+			return pricer;
+		}
+	}
+
+	/**
+	 * Comportement d'un service simulé ; la latence est décrite au format de
+	 * {@link LatencyProfile#parse(String)}.
+	 */
+	public static class Simulation {
+		private String latency = "none";
+		private double failureRate = 0;
+
+		public String getLatency() {
+			return latency;
+		}
+
+		public void setLatency(String latency) {
+			this.latency = latency;
+		}
+
+		public double getFailureRate() {
+			return failureRate;
+		}
+
+		public void setFailureRate(double failureRate) {
+			this.failureRate = failureRate;
+		}
+	}
+
+	public static class InternalUsers {
+		private Long seed;
+		private boolean lazyHistory = true;
+
+		public Long getSeed() {
+			return seed;
+		}
+
+		public void setSeed(Long seed) {
+			this.seed = seed;
+		}
+
+		public boolean isLazyHistory() {
+			return lazyHistory;
+		}
+
+		public void setLazyHistory(boolean lazyHistory) {
+			this.lazyHistory = lazyHistory;
+		}
+	}
+
+	public static class Persistence {
+		private boolean enabled = false;
+		private Path directory = Path.of("data");
+		private Duration flushInterval = FileUserStore.DEFAULT_FLUSH_INTERVAL;
+		private Duration snapshotInterval = FileUserStore.DEFAULT_SNAPSHOT_INTERVAL;
+		private DataSize compactionThreshold = DataSize.ofBytes(FileUserStore.DEFAULT_COMPACTION_THRESHOLD);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Path getDirectory() {
+			return directory;
+		}
+
+		public void setDirectory(Path directory) {
+			this.directory = directory;
+		}
+
+		public Duration getFlushInterval() {
+			return flushInterval;
+		}
+
+		public void setFlushInterval(Duration flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+
+		public Duration getSnapshotInterval() {
+			return snapshotInterval;
+		}
+
+		public void setSnapshotInterval(Duration snapshotInterval) {
+			this.snapshotInterval = snapshotInterval;
+		}
+
+		public DataSize getCompactionThreshold() {
+			return compactionThreshold;
+		}
+
+		public void setCompactionThreshold(DataSize compactionThreshold) {
+			this.compactionThreshold = compactionThreshold;
+		}
+	}
+}
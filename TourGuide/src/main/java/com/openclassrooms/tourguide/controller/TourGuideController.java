@@ -1,26 +1,42 @@
 package com.openclassrooms.tourguide.controller;
 
-import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import com.openclassrooms.tourguide.config.TourGuideProperties;
+import com.openclassrooms.tourguide.model.CurrentLocation;
+import com.openclassrooms.tourguide.model.NearbyAttractions;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.model.User;
 import com.openclassrooms.tourguide.model.UserReward;
 
 import tripPricer.Provider;
 
+/**
+ * Points d'entrée HTTP. Aucun handler ne bloque le thread de la boucle d'événements :
+ * les appels aux services externes s'exécutent sur la couche d'exécution partagée et sont
+ * bornés par un délai. Une requête annulée par le client ou expirée annule l'appel externe qui
+ * lui est propre : il n'est pas démarré s'il est encore en file, et interrompu s'il est en cours.
+ */
 @RestController
 public class TourGuideController {
 
 	@Autowired
 	TourGuideService tourGuideService;
+
+	@Autowired
+	TourGuideProperties properties;
 	
     @RequestMapping("/")
     public String index() {
@@ -28,37 +44,55 @@ public class TourGuideController {
     }
     
     @RequestMapping("/getLocation") 
-    public VisitedLocation getLocation(@RequestParam String userName) {
-    	return tourGuideService.getUserLocation(getUser(userName));
+    public Mono<VisitedLocation> getLocation(@RequestParam String userName) {
+    	return getUserLocation(userName);
     }
     
-    //  TODO: Change this method to no longer return a List of Attractions.
- 	//  Instead: Get the closest five tourist attractions to the user - no matter how far away they are.
- 	//  Return a new JSON object that contains:
-    	// Name of Tourist attraction, 
-        // Tourist attractions lat/long, 
-        // The user's location lat/long, 
-        // The distance in miles between the user's location and each of the attractions.
-        // The reward points for visiting each Attraction.
-        //    Note: Attraction reward points can be gathered from RewardsCentral
+    /**
+     * Renvoie la position de l'utilisateur et les cinq attractions les plus proches, quelle que
+     * soit leur distance, avec leur position, leur distance en miles et leurs points de récompense.
+     */
     @RequestMapping("/getNearbyAttractions") 
-    public List<Attraction> getNearbyAttractions(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
-    	return tourGuideService.getNearByAttractions(visitedLocation);
+    public Mono<NearbyAttractions> getNearbyAttractions(@RequestParam String userName) {
+    	return withTimeout(getUser(userName)
+    			.flatMap(user -> Mono.fromFuture(() -> tourGuideService.getNearbyAttractionsAsync(user))));
     }
     
     @RequestMapping("/getRewards") 
-    public List<UserReward> getRewards(@RequestParam String userName) {
-    	return tourGuideService.getUserRewards(getUser(userName));
+    public Flux<UserReward> getRewards(@RequestParam String userName) {
+    	return getUser(userName).flatMapIterable(tourGuideService::getUserRewards);
     }
        
     @RequestMapping("/getTripDeals")
-    public List<Provider> getTripDeals(@RequestParam String userName) {
-    	return tourGuideService.getTripDeals(getUser(userName));
+    public Flux<Provider> getTripDeals(@RequestParam String userName) {
+    	return withTimeout(getUser(userName)
+    			.flatMap(user -> Mono.fromFuture(() -> tourGuideService.getTripDealsAsync(user))))
+    			.flatMapIterable(providers -> providers);
+    }
+
+    /**
+     * Diffuse en NDJSON la dernière position connue de tous les utilisateurs, lue dans
+     * l'instantané maintenu par le tracker. Avec {@code since}, seules les positions mises à jour
+     * après cette date (millisecondes depuis l'epoch) sont renvoyées.
+     */
+    @RequestMapping(value = "/getAllCurrentLocations", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CurrentLocation> getAllCurrentLocations(@RequestParam(defaultValue = "0") long since) {
+    	return Flux.fromStream(() -> tourGuideService.getLocationSnapshot().changedSince(since));
+    }
+
+    private Mono<VisitedLocation> getUserLocation(String userName) {
+    	return withTimeout(getUser(userName)
+    			.flatMap(user -> Mono.fromFuture(() -> tourGuideService.getUserLocationAsync(user))));
+    }
+
+    private <T> Mono<T> withTimeout(Mono<T> call) {
+    	return call.timeout(properties.getWeb().getTimeout())
+    			.onErrorMap(TimeoutException.class, e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, e.getMessage(), e));
     }
     
-    private User getUser(String userName) {
-    	return tourGuideService.getUser(userName);
+    private Mono<User> getUser(String userName) {
+    	return Mono.justOrEmpty(tourGuideService.getUser(userName))
+    			.switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown user " + userName)));
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,239 @@
+package com.openclassrooms.tourguide.geo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.client.LocationClient;
+
+/**
+ * Catalogue partagé des attractions.
+ *
+ * Le catalogue est chargé une fois à la construction puis, si un intervalle est fourni,
+ * rechargé en arrière-plan. Chaque chargement produit un {@link Snapshot} immuable et versionné,
+ * publié par simple remplacement de référence : les lecteurs ne prennent aucun verrou et ne
+ * voient jamais un catalogue à moitié construit. Aucun appel à
+ * {@link LocationClient#getAttractions()} n'a donc lieu pendant le traitement d'une requête.
+ *
+ * {@link GpsUtil} attribue un nouvel identifiant aux attractions à chaque appel : lors d'un
+ * rechargement, une attraction de même nom et de même position conserve l'instance déjà publiée,
+ * et donc son identifiant, pour que les récompenses déjà attribuées restent reconnues. La version
+ * n'augmente que si le catalogue a réellement changé.
+ */
+public class AttractionCatalog implements AutoCloseable {
+	private final Logger logger = LoggerFactory.getLogger(AttractionCatalog.class);
+	public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours(1);
+
+	private final Supplier<List<Attraction>> source;
+	private final ScheduledExecutorService scheduler;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Catalogue chargé une seule fois, sans rechargement.
+	 */
+	public AttractionCatalog(GpsUtil gpsUtil) {
+		this(gpsUtil::getAttractions, Duration.ZERO);
+	}
+
+	/**
+	 * Catalogue chargé une seule fois, sans rechargement.
+	 */
+	public AttractionCatalog(LocationClient locationClient) {
+		this(locationClient::getAttractions, Duration.ZERO);
+	}
+
+	/**
+	 * @param source          chargement du catalogue
+	 * @param refreshInterval intervalle entre deux rechargements, {@link Duration#ZERO} pour ne
+	 *                        jamais recharger
+	 */
+	public AttractionCatalog(Supplier<List<Attraction>> source, Duration refreshInterval) {
+		this.source = source;
+		this.snapshot = new Snapshot(1, source.get());
+		if (refreshInterval.isZero() || refreshInterval.isNegative()) {
+			this.scheduler = null;
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "attraction-catalog-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long refreshMillis = refreshInterval.toMillis();
+		scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return le catalogue courant ; les appelants le conservent le temps d'un traitement pour
+	 *         lire une version cohérente
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	public long getVersion() {
+		return snapshot.version;
+	}
+
+	/**
+	 * Recharge le catalogue et le publie s'il a changé.
+	 *
+	 * @return {@code true} si une nouvelle version a été publiée
+	 */
+	public synchronized boolean refresh() {
+		Snapshot current = snapshot;
+		List<Attraction> fetched = source.get();
+		List<Attraction> merged = new ArrayList<>(fetched.size());
+		boolean changed = fetched.size() != current.size();
+		for (int i = 0; i < fetched.size(); i++) {
+			Attraction attraction = fetched.get(i);
+			Attraction known = current.getByName(attraction.attractionName);
+			if (known != null && known.latitude == attraction.latitude && known.longitude == attraction.longitude) {
+				attraction = known;
+			}
+			changed |= i >= current.size() || current.get(i) != attraction;
+			merged.add(attraction);
+		}
+		if (!changed) {
+			return false;
+		}
+		snapshot = new Snapshot(current.version + 1, merged);
+		logger.info("Attraction catalog updated to version {} ({} attractions)", snapshot.version, merged.size());
+		return true;
+	}
+
+	@Override
+	public void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			logger.warn("Attraction catalog refresh failed, keeping version {}", snapshot.version, e);
+		}
+	}
+
+	/**
+	 * Version immuable du catalogue.
+	 *
+	 * Chaque attraction reçoit un numéro d'ordre dense, de 0 à {@link #size()} exclu, qui indexe
+	 * les tableaux de géométrie précalculée : latitude et longitude en radians, sinus et cosinus
+	 * de la latitude. L'index spatial est construit avec la version.
+	 */
+	public static final class Snapshot {
+		private final long version;
+		private final List<Attraction> attractions;
+		private final Map<UUID, Integer> ordinals;
+		private final Map<String, Attraction> byName;
+		private final double[] latitudeRadians;
+		private final double[] longitudeRadians;
+		private final double[] sinLatitude;
+		private final double[] cosLatitude;
+		private final AttractionIndex index;
+
+		private Snapshot(long version, List<Attraction> attractions) {
+			this.version = version;
+			this.attractions = List.copyOf(attractions);
+			int size = this.attractions.size();
+			this.ordinals = new HashMap<>(size * 2);
+			this.byName = new HashMap<>(size * 2);
+			this.latitudeRadians = new double[size];
+			this.longitudeRadians = new double[size];
+			this.sinLatitude = new double[size];
+			this.cosLatitude = new double[size];
+			for (int i = 0; i < size; i++) {
+				Attraction attraction = this.attractions.get(i);
+				ordinals.put(attraction.attractionId, i);
+				byName.putIfAbsent(attraction.attractionName, attraction);
+				latitudeRadians[i] = Math.toRadians(attraction.latitude);
+				longitudeRadians[i] = Math.toRadians(attraction.longitude);
+				sinLatitude[i] = Math.sin(latitudeRadians[i]);
+				cosLatitude[i] = Math.cos(latitudeRadians[i]);
+			}
+			this.index = new AttractionIndex(this.attractions);
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public int size() {
+			return attractions.size();
+		}
+
+		public List<Attraction> getAttractions() {
+			return attractions;
+		}
+
+		public Attraction get(int ordinal) {
+			return attractions.get(ordinal);
+		}
+
+		/**
+		 * @return le numéro d'ordre de l'attraction, ou -1 si elle n'appartient pas à cette version
+		 */
+		public int ordinal(Attraction attraction) {
+			Integer ordinal = ordinals.get(attraction.attractionId);
+			return ordinal != null ? ordinal : -1;
+		}
+
+		/**
+		 * @return l'attraction portant ce nom, ou {@code null}
+		 */
+		public Attraction getByName(String attractionName) {
+			return byName.get(attractionName);
+		}
+
+		public Map<String, Attraction> getAttractionsByName() {
+			return byName;
+		}
+
+		public AttractionIndex getIndex() {
+			return index;
+		}
+
+		public double latitudeRadians(int ordinal) {
+			return latitudeRadians[ordinal];
+		}
+
+		public double longitudeRadians(int ordinal) {
+			return longitudeRadians[ordinal];
+		}
+
+		/**
+		 * Distances en miles entre un point et toutes les attractions, par la loi des cosinus
+		 * sphérique : les termes trigonométriques des attractions sont précalculés, il ne reste
+		 * qu'un cosinus et un arc cosinus par attraction.
+		 *
+		 * @return les distances, indexées par numéro d'ordre
+		 */
+		public double[] milesFrom(double latitude, double longitude) {
+			double phi = Math.toRadians(latitude);
+			double lambda = Math.toRadians(longitude);
+			double sinPhi = Math.sin(phi);
+			double cosPhi = Math.cos(phi);
+			double[] miles = new double[attractions.size()];
+			for (int i = 0; i < miles.length; i++) {
+				double cosAngle = sinPhi * sinLatitude[i] + cosPhi * cosLatitude[i] * Math.cos(lambda - longitudeRadians[i]);
+				miles[i] = Math.acos(Math.max(-1, Math.min(1, cosAngle))) * GeoDistance.EARTH_RADIUS_MILES;
+			}
+			return miles;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.tourguide.geo;
+
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+
+/**
+ * Événement émis par {@link GeofenceEngine} lorsqu'un utilisateur entre dans la zone d'une
+ * attraction. Immuable.
+ */
+public class AttractionEntered {
+	private final UUID userId;
+	private final Attraction attraction;
+	private final double latitude;
+	private final double longitude;
+	private final long timeVisited;
+
+	public AttractionEntered(UUID userId, Attraction attraction, double latitude, double longitude, long timeVisited) {
+		this.userId = userId;
+		this.attraction = attraction;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.timeVisited = timeVisited;
+	}
+
+	public UUID getUserId() {
+		return userId;
+	}
+
+	public Attraction getAttraction() {
+		return attraction;
+	}
+
+	/**
+	 * @return la latitude de la position qui a déclenché l'entrée
+	 */
+	public double getLatitude() {
+		return latitude;
+	}
+
+	/**
+	 * @return la longitude de la position qui a déclenché l'entrée
+	 */
+	public double getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * @return la date de la position, en millisecondes depuis l'epoch
+	 */
+	public long getTimeVisited() {
+		return timeVisited;
+	}
+}
@@ -0,0 +1,274 @@
+package com.openclassrooms.tourguide.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Index spatial en mémoire des attractions, construit une seule fois à partir du catalogue.
+ *
+ * Les attractions sont rangées dans une grille de cellules latitude/longitude. Les requêtes
+ * "attractions à moins de N miles" et "k plus proches" ne parcourent que les cellules qui
+ * intersectent la boîte englobante du cercle de recherche, puis vérifient la distance exacte.
+ * Chaque attraction est stockée sous forme de vecteur unitaire précalculé : la vérification
+ * compare des cordes au carré ({@link GeoDistance}) et n'appelle aucune fonction trigonométrique.
+ *
+ * L'index est immuable et peut être partagé sans synchronisation entre les threads.
+ */
+public class AttractionIndex {
+	private static final double DEFAULT_CELL_DEGREES = 1.0;
+	private static final double INITIAL_NEAREST_RADIUS_MILES = 100;
+	private static final double HALF_PI = Math.PI / 2;
+
+	private final double cellDegrees;
+	private final int lonCells;
+	private final List<Attraction> attractions;
+	private final Entry[] entries;
+	private final Map<Long, Entry[]> cells;
+
+	public AttractionIndex(List<Attraction> attractions) {
+		this(attractions, DEFAULT_CELL_DEGREES);
+	}
+
+	public AttractionIndex(List<Attraction> attractions, double cellDegrees) {
+		this.cellDegrees = cellDegrees;
+		this.lonCells = (int) Math.ceil(360 / cellDegrees);
+		this.attractions = List.copyOf(attractions);
+		this.entries = new Entry[this.attractions.size()];
+
+		Map<Long, List<Entry>> grid = new HashMap<>();
+		for (int i = 0; i < entries.length; i++) {
+			Entry entry = new Entry(this.attractions.get(i), i);
+			entries[i] = entry;
+			grid.computeIfAbsent(cellKey(row(entry.attraction.latitude), column(entry.attraction.longitude)),
+					k -> new ArrayList<>()).add(entry);
+		}
+		this.cells = new HashMap<>();
+		grid.forEach((key, list) -> cells.put(key, list.toArray(new Entry[0])));
+	}
+
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	/**
+	 * Retourne les attractions situées à au plus {@code miles} de la localisation.
+	 *
+	 * @param location la position de référence
+	 * @param miles    le rayon de recherche en miles
+	 * @return les attractions dans le rayon, dans l'ordre du catalogue
+	 */
+	public List<Attraction> withinMiles(Location location, double miles) {
+		return withinMiles(location.latitude, location.longitude, miles);
+	}
+
+	/**
+	 * Variante de {@link #withinMiles(Location, double)} prenant des coordonnées en degrés,
+	 * pour les appelants qui ne disposent pas d'objet {@link Location}.
+	 */
+	public List<Attraction> withinMiles(double latitude, double longitude, double miles) {
+		List<Attraction> result = new ArrayList<>();
+		for (Entry entry : candidates(latitude, longitude, miles)) {
+			result.add(entry.attraction);
+		}
+		return result;
+	}
+
+	/**
+	 * @param ordinal         rang de l'attraction dans {@link #getAttractions()}
+	 * @param point           vecteur unitaire de la position ({@link GeoDistance#unitVector(double, double)})
+	 * @param maxSquaredChord seuil converti par {@link GeoDistance#squaredChordForMiles(double)}
+	 * @return {@code true} si l'attraction est dans le rayon, sans fonction trigonométrique
+	 */
+	public boolean isWithin(int ordinal, double[] point, double maxSquaredChord) {
+		return entries[ordinal].squaredChord(point) <= maxSquaredChord;
+	}
+
+	/**
+	 * Présente le rang, dans {@link #getAttractions()}, de chaque attraction située à au plus
+	 * {@code miles} de la position, dans l'ordre croissant des rangs.
+	 */
+	public void forEachWithin(double latitude, double longitude, double miles, IntConsumer action) {
+		List<Entry> found = candidates(latitude, longitude, miles);
+		if (found.size() == entries.length) {
+			found = Arrays.asList(entries); // tout le catalogue, déjà dans l'ordre des rangs
+		} else if (found.size() > 1) {
+			found.sort(Comparator.comparingInt(entry -> entry.ordinal));
+		}
+		for (Entry entry : found) {
+			action.accept(entry.ordinal);
+		}
+	}
+
+	/**
+	 * Retourne les {@code k} attractions les plus proches, de la plus proche à la plus éloignée,
+	 * quelle que soit leur distance. Le rayon de recherche double jusqu'à contenir {@code k}
+	 * attractions, puis une file de priorité bornée à {@code k} éléments conserve les meilleures.
+	 *
+	 * @param location la position de référence
+	 * @param k        le nombre d'attractions souhaité
+	 * @return au plus {@code k} attractions triées par distance croissante
+	 */
+	public List<Attraction> nearest(Location location, int k) {
+		return nearest(location, k, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Variante de {@link #nearest(Location, int)} limitée aux attractions situées à au plus
+	 * {@code maxMiles} : le rayon de recherche cesse de doubler une fois cette limite atteinte.
+	 */
+	public List<Attraction> nearest(Location location, int k, double maxMiles) {
+		if (k <= 0 || entries.length == 0 || !(maxMiles >= 0)) {
+			return new ArrayList<>();
+		}
+		double radius = Math.min(INITIAL_NEAREST_RADIUS_MILES, maxMiles);
+		List<Entry> found = candidates(location.latitude, location.longitude, radius);
+		while (found.size() < Math.min(k, entries.length) && radius < maxMiles) {
+			radius = Math.min(radius * 2, maxMiles);
+			found = candidates(location.latitude, location.longitude, radius);
+		}
+
+		double[] point = GeoDistance.unitVector(location.latitude, location.longitude);
+
+		Comparator<Scored> byDistance = Comparator.comparingDouble(s -> s.distance);
+		PriorityQueue<Scored> heap = new PriorityQueue<>(k, byDistance.reversed());
+		for (Entry entry : found) {
+			Scored scored = new Scored(entry.attraction, entry.squaredChord(point));
+			if (heap.size() < k) {
+				heap.add(scored);
+			} else if (scored.distance < heap.peek().distance) {
+				heap.poll();
+				heap.add(scored);
+			}
+		}
+
+		Scored[] sorted = heap.toArray(new Scored[0]);
+		Arrays.sort(sorted, byDistance);
+		List<Attraction> result = new ArrayList<>(sorted.length);
+		for (Scored scored : sorted) {
+			result.add(scored.attraction);
+		}
+		return result;
+	}
+
+	/**
+	 * Sélectionne les entrées dont la distance exacte est inférieure ou égale au rayon,
+	 * après un pré-filtrage par boîte englobante sur la grille.
+	 */
+	private List<Entry> candidates(double latitude, double longitude, double miles) {
+		if (Double.isNaN(miles) || miles < 0) {
+			return Collections.emptyList();
+		}
+		double r = miles / GeoDistance.EARTH_RADIUS_MILES;
+		if (r >= Math.PI) {
+			return Arrays.asList(entries);
+		}
+
+		double lat = Math.toRadians(latitude);
+		double lon = Math.toRadians(longitude);
+		double minLat = lat - r;
+		double maxLat = lat + r;
+		double minLon = -Math.PI;
+		double maxLon = Math.PI;
+		boolean allLongitudes = true;
+		if (minLat > -HALF_PI && maxLat < HALF_PI) {
+			double deltaLon = Math.asin(Math.sin(r) / Math.cos(lat));
+			minLon = lon - deltaLon;
+			maxLon = lon + deltaLon;
+			allLongitudes = false;
+		} else {
+			minLat = Math.max(minLat, -HALF_PI);
+			maxLat = Math.min(maxLat, HALF_PI);
+		}
+
+		int rowFrom = row(Math.toDegrees(minLat));
+		int rowTo = row(Math.toDegrees(maxLat));
+		int colFrom = (int) Math.floor((Math.toDegrees(minLon) + 180) / cellDegrees);
+		int colTo = (int) Math.floor((Math.toDegrees(maxLon) + 180) / cellDegrees);
+		if (allLongitudes || colTo - colFrom + 1 >= lonCells) {
+			colFrom = 0;
+			colTo = lonCells - 1;
+		}
+
+		double[] point = GeoDistance.unitVector(latitude, longitude);
+		double maxSquaredChord = GeoDistance.squaredChordForMiles(miles);
+		List<Entry> result = new ArrayList<>();
+		long cellCount = (long) (rowTo - rowFrom + 1) * (colTo - colFrom + 1);
+		if (cellCount > cells.size()) {
+			// Boîte plus large que la grille occupée : parcours direct des entrées
+			for (Entry entry : entries) {
+				if (entry.squaredChord(point) <= maxSquaredChord) {
+					result.add(entry);
+				}
+			}
+			return result;
+		}
+
+		for (int row = rowFrom; row <= rowTo; row++) {
+			for (int col = colFrom; col <= colTo; col++) {
+				Entry[] cell = cells.get(cellKey(row, Math.floorMod(col, lonCells)));
+				if (cell == null) {
+					continue;
+				}
+				for (Entry entry : cell) {
+					if (entry.squaredChord(point) <= maxSquaredChord) {
+						result.add(entry);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private int row(double latitudeDegrees) {
+		return (int) Math.floor((latitudeDegrees + 90) / cellDegrees);
+	}
+
+	private int column(double longitudeDegrees) {
+		return Math.floorMod((int) Math.floor((longitudeDegrees + 180) / cellDegrees), lonCells);
+	}
+
+	private long cellKey(int row, int column) {
+		return (long) row * lonCells + column;
+	}
+
+	private static final class Entry {
+		private final Attraction attraction;
+		private final int ordinal;
+		private final double x;
+		private final double y;
+		private final double z;
+
+		private Entry(Attraction attraction, int ordinal) {
+			this.attraction = attraction;
+			this.ordinal = ordinal;
+			double[] vector = GeoDistance.unitVector(attraction.latitude, attraction.longitude);
+			this.x = vector[0];
+			this.y = vector[1];
+			this.z = vector[2];
+		}
+
+		private double squaredChord(double[] point) {
+			return GeoDistance.squaredChord(x, y, z, point[0], point[1], point[2]);
+		}
+	}
+
+	private static final class Scored {
+		private final Attraction attraction;
+		private final double distance;
+
+		private Scored(Attraction attraction, double distance) {
+			this.attraction = attraction;
+			this.distance = distance;
+		}
+	}
+}
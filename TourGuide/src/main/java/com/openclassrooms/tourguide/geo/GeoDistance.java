@@ -0,0 +1,139 @@
+package com.openclassrooms.tourguide.geo;
+
+/**
+ * Calculs de distance entre coordonnées exprimées en degrés, sans objet intermédiaire.
+ *
+ * {@link Mode} propose plusieurs formules de distance en miles. Pour une simple comparaison à un
+ * seuil, il suffit de comparer des cordes au carré : la corde est une fonction croissante de la
+ * distance sur la sphère, ce qui évite l'appel à {@code acos}. Lorsque les points sont déjà
+ * convertis en vecteurs unitaires ({@link #unitVector(double, double)}), la comparaison ne
+ * demande plus aucune fonction trigonométrique.
+ */
+public final class GeoDistance {
+	public static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	/** Rayon terrestre en miles, cohérent avec 60 milles nautiques par degré. */
+	public static final double EARTH_RADIUS_MILES = 60 * STATUTE_MILES_PER_NAUTICAL_MILE * 180 / Math.PI;
+	/** Corde au carré entre deux points antipodaux d'une sphère unité. */
+	public static final double MAX_SQUARED_CHORD = 4;
+
+	private GeoDistance() {
+	}
+
+	/**
+	 * Formule utilisée pour calculer une distance en miles.
+	 */
+	public enum Mode {
+		/** Loi des cosinus sphérique, formule historique de TourGuide. */
+		SPHERICAL_LAW_OF_COSINES {
+			@Override
+			public double miles(double lat1, double lon1, double lat2, double lon2) {
+				double phi1 = Math.toRadians(lat1);
+				double phi2 = Math.toRadians(lat2);
+				double cosAngle = Math.sin(phi1) * Math.sin(phi2)
+						+ Math.cos(phi1) * Math.cos(phi2) * Math.cos(Math.toRadians(lon1 - lon2));
+				return Math.acos(Math.max(-1, Math.min(1, cosAngle))) * EARTH_RADIUS_MILES;
+			}
+		},
+		/** Formule de haversine, plus précise pour les petites distances. */
+		HAVERSINE {
+			@Override
+			public double miles(double lat1, double lon1, double lat2, double lon2) {
+				double h = haversine(lat1, lon1, lat2, lon2);
+				return 2 * Math.asin(Math.sqrt(Math.min(1, h))) * EARTH_RADIUS_MILES;
+			}
+		},
+		/** Approximation équirectangulaire : une seule fonction trigonométrique, précise sur de courtes distances. */
+		EQUIRECTANGULAR {
+			@Override
+			public double miles(double lat1, double lon1, double lat2, double lon2) {
+				double deltaLon = Math.toRadians(Math.IEEEremainder(lon2 - lon1, 360));
+				double x = deltaLon * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+				double y = Math.toRadians(lat2 - lat1);
+				return Math.sqrt(x * x + y * y) * EARTH_RADIUS_MILES;
+			}
+		};
+
+		/**
+		 * @return la distance en miles entre les deux points
+		 */
+		public abstract double miles(double lat1, double lon1, double lat2, double lon2);
+	}
+
+	/**
+	 * Pour des coordonnées brutes. L'écart de latitude minore la distance : au-delà du rayon, les
+	 * points sont écartés sans fonction trigonométrique. Les appelants qui disposent de vecteurs
+	 * précalculés utilisent plutôt {@link #isWithinSquaredChord(double[], double[], double)}.
+	 *
+	 * @return {@code true} si les deux points sont à au plus {@code miles} l'un de l'autre
+	 */
+	public static boolean isWithinMiles(double lat1, double lon1, double lat2, double lon2, double miles) {
+		if (isBeyondLatitudeBand(lat1, lat2, miles)) {
+			return false;
+		}
+		return 4 * haversine(lat1, lon1, lat2, lon2) <= squaredChordForMiles(miles);
+	}
+
+	/**
+	 * @return {@code true} si l'écart de latitude seul place les points à plus de {@code miles}
+	 *         l'un de l'autre ; {@code false} ne dit rien de leur distance
+	 */
+	public static boolean isBeyondLatitudeBand(double lat1, double lat2, double miles) {
+		return Math.toRadians(Math.abs(lat2 - lat1)) * EARTH_RADIUS_MILES > miles;
+	}
+
+	/**
+	 * Comparaison sans fonction trigonométrique entre deux vecteurs unitaires et un seuil déjà
+	 * converti par {@link #squaredChordForMiles(double)}.
+	 *
+	 * @return {@code true} si la corde au carré entre les deux vecteurs ne dépasse pas le seuil
+	 */
+	public static boolean isWithinSquaredChord(double[] a, double[] b, double maxSquaredChord) {
+		return squaredChord(a[0], a[1], a[2], b[0], b[1], b[2]) <= maxSquaredChord;
+	}
+
+	/**
+	 * @return la corde au carré, sur la sphère unité, correspondant à une distance de {@code miles}
+	 */
+	public static double squaredChordForMiles(double miles) {
+		double angle = miles / EARTH_RADIUS_MILES;
+		if (angle >= Math.PI) {
+			return MAX_SQUARED_CHORD;
+		}
+		double halfChord = Math.sin(angle / 2);
+		return 4 * halfChord * halfChord;
+	}
+
+	/**
+	 * @return la distance en miles correspondant à une corde au carré sur la sphère unité
+	 */
+	public static double milesForSquaredChord(double squaredChord) {
+		return 2 * Math.asin(Math.min(1, Math.sqrt(squaredChord) / 2)) * EARTH_RADIUS_MILES;
+	}
+
+	/**
+	 * @return le vecteur unitaire {x, y, z} du point sur la sphère
+	 */
+	public static double[] unitVector(double latitude, double longitude) {
+		double phi = Math.toRadians(latitude);
+		double lambda = Math.toRadians(longitude);
+		double cosPhi = Math.cos(phi);
+		return new double[] { cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi) };
+	}
+
+	/**
+	 * @return la corde au carré entre deux vecteurs unitaires, sans fonction trigonométrique
+	 */
+	public static double squaredChord(double x1, double y1, double z1, double x2, double y2, double z2) {
+		double dx = x1 - x2;
+		double dy = y1 - y2;
+		double dz = z1 - z2;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+		double sinHalfLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+		double sinHalfLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+		return sinHalfLat * sinHalfLat
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinHalfLon * sinHalfLon;
+	}
+}
@@ -0,0 +1,108 @@
+package com.openclassrooms.tourguide.geo;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Détection des entrées dans la zone des attractions.
+ *
+ * Chaque zone est un disque centré sur une attraction ; l'index spatial du catalogue ne
+ * présente que les zones qui contiennent la position, en comparant des cordes au carré aux
+ * vecteurs unitaires précalculés des attractions. Chaque nouvelle position n'est examinée
+ * qu'une fois : {@link #check} émet un {@link AttractionEntered} pour chaque zone dans laquelle
+ * l'utilisateur se trouve et où il ne se trouvait pas à la position précédente.
+ *
+ * L'état conservé par utilisateur se limite aux zones qui le contiennent actuellement ; un
+ * utilisateur hors de toute zone n'occupe aucune mémoire. Les positions d'un même utilisateur
+ * doivent être présentées dans l'ordre et par un seul thread à la fois.
+ */
+public class GeofenceEngine {
+	private static final int[] NONE = new int[0];
+
+	private final ConcurrentMap<UUID, Inside> inside = new ConcurrentHashMap<>();
+	private final LongAdder entries = new LongAdder();
+
+	/**
+	 * @param catalog     version du catalogue des attractions
+	 * @param userId      l'utilisateur localisé
+	 * @param radiusMiles rayon des zones, en miles
+	 * @param listener    reçoit les entrées détectées
+	 * @return le nombre d'entrées émises
+	 */
+	public int check(AttractionCatalog.Snapshot catalog, UUID userId, double latitude, double longitude,
+			long timeVisited, double radiusMiles, Consumer<AttractionEntered> listener) {
+		Inside previous = inside.get(userId);
+		int[] before = previous != null && previous.catalogVersion == catalog.getVersion() ? previous.ordinals : NONE;
+		Matches now = new Matches();
+		catalog.getIndex().forEachWithin(latitude, longitude, radiusMiles, now::add);
+
+		int entered = 0;
+		for (int i = 0; i < now.size; i++) {
+			int ordinal = now.ordinals[i];
+			if (Arrays.binarySearch(before, ordinal) < 0) {
+				listener.accept(new AttractionEntered(userId, catalog.get(ordinal), latitude, longitude, timeVisited));
+				entered++;
+			}
+		}
+		if (now.size == 0) {
+			if (previous != null) {
+				inside.remove(userId);
+			}
+		} else if (entered > 0 || now.size != before.length) {
+			inside.put(userId, new Inside(catalog.getVersion(), Arrays.copyOf(now.ordinals, now.size)));
+		}
+		entries.add(entered);
+		return entered;
+	}
+
+	/**
+	 * Oublie les zones occupées par l'utilisateur : sa prochaine position dans une zone émettra
+	 * de nouveau une entrée. Utilisé lorsque le traitement d'une entrée a échoué.
+	 */
+	public void reset(UUID userId) {
+		inside.remove(userId);
+	}
+
+	/**
+	 * @return le nombre d'utilisateurs actuellement dans au moins une zone
+	 */
+	public int getOccupiedCount() {
+		return inside.size();
+	}
+
+	/**
+	 * @return le nombre total d'entrées émises
+	 */
+	public long getEnteredCount() {
+		return entries.sum();
+	}
+
+	/**
+	 * Rangs des zones contenant une position, dans l'ordre croissant.
+	 */
+	private static final class Matches {
+		private int[] ordinals = NONE;
+		private int size = 0;
+
+		private void add(int ordinal) {
+			if (size == ordinals.length) {
+				ordinals = Arrays.copyOf(ordinals, Math.max(4, size * 2));
+			}
+			ordinals[size++] = ordinal;
+		}
+	}
+
+	private static final class Inside {
+		private final long catalogVersion;
+		private final int[] ordinals;
+
+		private Inside(long catalogVersion, int[] ordinals) {
+			this.catalogVersion = catalogVersion;
+			this.ordinals = ordinals;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.openclassrooms.tourguide.helper;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+import com.openclassrooms.tourguide.model.LocationHistory;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+
+/**
+ * Génère les utilisateurs internes de test.
+ *
+ * Les utilisateurs sont construits en parallèle. Avec une graine, chaque utilisateur tire ses
+ * valeurs d'un {@link SplittableRandom} dérivé de la graine et de son numéro : le jeu généré est
+ * le même d'une exécution à l'autre, quel que soit l'ordonnancement des threads. Sans graine,
+ * {@link ThreadLocalRandom} évite toute contention entre threads.
+ *
+ * Par défaut, l'historique de localisations n'est généré qu'au premier accès
+ * (voir {@link User#setHistoryGenerator}) : le démarrage ne paie que la création des utilisateurs.
+ */
+public class InternalUserGenerator {
+	public static final int HISTORY_SIZE = 3;
+	private static final double MAX_LATITUDE = 85.05112878;
+	private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final Long seed;
+	private final boolean lazyHistory;
+
+	public InternalUserGenerator() {
+		this(null, true);
+	}
+
+	/**
+	 * @param seed        graine du jeu généré, {@code null} pour un jeu différent à chaque exécution
+	 * @param lazyHistory {@code true} pour ne générer l'historique qu'au premier accès
+	 */
+	public InternalUserGenerator(Long seed, boolean lazyHistory) {
+		this.seed = seed;
+		this.lazyHistory = lazyHistory;
+	}
+
+	/**
+	 * @param count         nombre d'utilisateurs à générer
+	 * @param historyPolicy politique de rétention de leur historique
+	 * @return les utilisateurs, dans l'ordre de leur numéro
+	 */
+	public List<User> generate(int count, HistoryPolicy historyPolicy) {
+		return IntStream.range(0, count).parallel()
+				.mapToObj(i -> generateUser(i, historyPolicy))
+				.toList();
+	}
+
+	private User generateUser(int index, HistoryPolicy historyPolicy) {
+		RandomGenerator random = seed == null ? ThreadLocalRandom.current()
+				: new SplittableRandom(seed + index * SEED_GAMMA);
+		// UUID de version 4, tiré du même générateur pour rester reproductible
+		UUID userId = new UUID((random.nextLong() & ~0xF000L) | 0x4000L,
+				(random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+		String userName = "internalUser" + index;
+		User user = new User(userId, userName, "000", userName + "@tourGuide.com", historyPolicy);
+
+		long historySeed = random.nextLong();
+		if (lazyHistory) {
+			user.setHistoryGenerator(history -> generateHistory(history, new SplittableRandom(historySeed)));
+		} else {
+			generateHistory(user.getLocationHistory(), new SplittableRandom(historySeed));
+		}
+		return user;
+	}
+
+	private static void generateHistory(LocationHistory history, RandomGenerator random) {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < HISTORY_SIZE; i++) {
+			double latitude = random.nextDouble(-MAX_LATITUDE, MAX_LATITUDE);
+			double longitude = random.nextDouble(-180, 180);
+			long time = now - TimeUnit.DAYS.toMillis(random.nextInt(30));
+			history.add(history.toVisitedLocation(latitude, longitude, time));
+		}
+	}
+}
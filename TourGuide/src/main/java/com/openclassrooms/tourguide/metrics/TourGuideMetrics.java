@@ -0,0 +1,112 @@
+package com.openclassrooms.tourguide.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.cache.LocationCache;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.GeofenceEngine;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealPricer;
+import com.openclassrooms.tourguide.tracker.Tracker;
+
+/**
+ * Métriques applicatives de TourGuide : cycles du {@link Tracker}, caches et calculs de
+ * récompenses. Les métriques de la couche d'exécution et des appels externes sont publiées
+ * par {@link com.openclassrooms.tourguide.concurrent.TourGuideExecutor}.
+ *
+ * Les valeurs sont lues à la collecte, directement sur les composants : aucun coût n'est
+ * ajouté aux traitements eux-mêmes.
+ */
+public class TourGuideMetrics implements MeterBinder {
+	private final TourGuideService tourGuideService;
+	private final TripDealPricer tripDealPricer;
+
+	public TourGuideMetrics(TourGuideService tourGuideService, TripDealPricer tripDealPricer) {
+		this.tourGuideService = tourGuideService;
+		this.tripDealPricer = tripDealPricer;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		bindTracker(registry, tourGuideService.tracker);
+		bindCaches(registry);
+		bindRewards(registry, tourGuideService.getRewardsService());
+		Gauge.builder("tourguide.users", tourGuideService, service -> service.getUserRegistry().size())
+				.description("Registered users").register(registry);
+		FunctionCounter.builder("tourguide.fallbacks", tourGuideService, TourGuideService::getLocationFallbackCount)
+				.description("Failed calls answered from previously known data").tag("dependency", "gps")
+				.register(registry);
+		FunctionCounter.builder("tourguide.fallbacks", tourGuideService.getRewardsService().getRewardPointsLoader(),
+						RewardPointsLoader::getFallbackCount)
+				.description("Failed calls answered from previously known data").tag("dependency", "rewards")
+				.register(registry);
+		Gauge.builder("tourguide.attractions.catalog.version", tourGuideService.getRewardsService().getAttractionCatalog(),
+						AttractionCatalog::getVersion)
+				.description("Version of the attraction catalog in use").register(registry);
+	}
+
+	private void bindTracker(MeterRegistry registry, Tracker tracker) {
+		Gauge.builder("tourguide.tracker.cycle.duration", tracker, t -> t.getLastCycleDuration() / 1000.0)
+				.description("Duration of the last completed tracking cycle").baseUnit("seconds").register(registry);
+		Gauge.builder("tourguide.tracker.cycle.lag", tracker, t -> t.getLastCycleLag() / 1000.0)
+				.description("Largest delay behind schedule during the last cycle").baseUnit("seconds")
+				.register(registry);
+		Gauge.builder("tourguide.tracker.cycle.users", tracker, Tracker::getLastCycleUsers)
+				.description("Users tracked during the last cycle").register(registry);
+		Gauge.builder("tourguide.tracker.in.flight", tracker, Tracker::getInFlight)
+				.description("Tracking requests in progress").register(registry);
+		FunctionCounter.builder("tourguide.tracker.cycles", tracker, Tracker::getCompletedCycles)
+				.description("Tracking cycles completed").register(registry);
+		FunctionCounter.builder("tourguide.tracker.failures", tracker, Tracker::getFailedCount)
+				.description("User tracking requests that failed").register(registry);
+		FunctionCounter.builder("tourguide.tracker.permit.wait", tracker,
+						t -> t.getPermitWaitNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+				.description("Time spent waiting for a tracking slot").baseUnit("seconds").register(registry);
+	}
+
+	private void bindCaches(MeterRegistry registry) {
+		LocationCache location = tourGuideService.getLocationCache();
+		bindCache(registry, "location", location, LocationCache::liveSize, LocationCache::getHitRatio);
+		FunctionCounter.builder("tourguide.cache.refreshes", location, LocationCache::getRefreshCount)
+				.description("Entries reloaded ahead of expiry").tag("cache", "location").register(registry);
+		ExpiringCache<?, ?> rewards = tourGuideService.getRewardsService().getRewardPointsLoader().getCache();
+		bindCache(registry, "rewards", rewards, ExpiringCache::liveSize, ExpiringCache::getHitRatio);
+		bindCache(registry, "trip-deals", tripDealPricer.getCache(), ExpiringCache::liveSize, ExpiringCache::getHitRatio);
+		bindCache(registry, "nearby-attractions", tourGuideService.getNearbyAttractionFinder().getCache(),
+				ExpiringCache::liveSize, ExpiringCache::getHitRatio);
+	}
+
+	private static <T> void bindCache(MeterRegistry registry, String cache, T source, ToDoubleFunction<T> size,
+			ToDoubleFunction<T> hitRatio) {
+		Gauge.builder("tourguide.cache.size", source, size)
+				.description("Unexpired entries held by the cache").tag("cache", cache).register(registry);
+		Gauge.builder("tourguide.cache.hit.ratio", source, hitRatio)
+				.description("Share of lookups served by the cache").tag("cache", cache).register(registry);
+	}
+
+	private static void bindRewards(MeterRegistry registry, RewardsService rewardsService) {
+		RewardPointsLoader loader = rewardsService.getRewardPointsLoader();
+		Gauge.builder("tourguide.rewards.in.flight", rewardsService, RewardsService::getInFlightCount)
+				.description("Reward calculations in progress").register(registry);
+		Gauge.builder("tourguide.rewards.points.in.flight", loader, RewardPointsLoader::getInFlightCount)
+				.description("Reward point lookups in progress").register(registry);
+		FunctionCounter.builder("tourguide.rewards.points.coalesced", loader, RewardPointsLoader::getCoalescedCount)
+				.description("Reward point lookups merged with an identical request in progress").register(registry);
+		FunctionCounter.builder("tourguide.rewards.points.batches", loader, RewardPointsLoader::getBatchCount)
+				.description("Batches of reward point lookups sent").register(registry);
+		GeofenceEngine geofences = rewardsService.getGeofenceEngine();
+		FunctionCounter.builder("tourguide.geofence.entries", geofences, GeofenceEngine::getEnteredCount)
+				.description("Attraction zones entered by users").register(registry);
+		Gauge.builder("tourguide.geofence.occupied", geofences, GeofenceEngine::getOccupiedCount)
+				.description("Users currently inside an attraction zone").register(registry);
+	}
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.tourguide.model;
+
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Dernière position connue d'un utilisateur, telle que conservée par
+ * {@link com.openclassrooms.tourguide.repository.LocationSnapshot}. Immuable.
+ */
+public class CurrentLocation {
+	private final UUID userId;
+	private final double latitude;
+	private final double longitude;
+	private final long timeVisited;
+	private final long updatedAt;
+
+	public CurrentLocation(VisitedLocation visitedLocation, long updatedAt) {
+		this.userId = visitedLocation.userId;
+		this.latitude = visitedLocation.location.latitude;
+		this.longitude = visitedLocation.location.longitude;
+		this.timeVisited = visitedLocation.timeVisited.getTime();
+		this.updatedAt = updatedAt;
+	}
+
+	public UUID getUserId() {
+		return userId;
+	}
+
+	public double getLatitude() {
+		return latitude;
+	}
+
+	public double getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * @return la date de la position, en millisecondes depuis l'epoch
+	 */
+	public long getTimeVisited() {
+		return timeVisited;
+	}
+
+	/**
+	 * @return la date de mise à jour de l'instantané, en millisecondes depuis l'epoch
+	 */
+	public long getUpdatedAt() {
+		return updatedAt;
+	}
+}
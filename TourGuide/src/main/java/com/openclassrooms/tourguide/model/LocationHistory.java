@@ -0,0 +1,260 @@
+package com.openclassrooms.tourguide.model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Historique borné et compact des localisations d'un utilisateur.
+ *
+ * Les positions sont stockées en colonnes dans des tableaux primitifs utilisés comme tampon
+ * circulaire (latitude, longitude, date en millisecondes) : une entrée coûte 24 octets au lieu
+ * d'un graphe {@link VisitedLocation} / {@link Location} / {@link Date}. La politique de
+ * rétention ({@link HistoryPolicy}) borne le nombre d'entrées et leur âge, et peut
+ * sous-échantillonner les positions trop rapprochées dans le temps.
+ *
+ * L'historique porte aussi un curseur de traitement : {@link #forEachUnprocessed(LocationVisitor)}
+ * ne présente que les positions ajoutées depuis l'appel précédent.
+ *
+ * Toutes les méthodes sont synchronisées sur l'instance.
+ */
+public class LocationHistory {
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * Reçoit les positions de l'historique sans matérialiser d'objets.
+	 */
+	@FunctionalInterface
+	public interface LocationVisitor {
+		void visit(double latitude, double longitude, long timeVisitedMillis);
+	}
+
+	private final UUID userId;
+	private final HistoryPolicy policy;
+	private double[] latitudes = new double[0];
+	private double[] longitudes = new double[0];
+	private long[] times = new long[0];
+	private int head = 0; // indice de l'entrée la plus ancienne
+	private int size = 0;
+	private long nextSequence = 0; // numéro de la prochaine entrée ajoutée
+	private long processedSequence = 0; // première entrée non encore traitée
+	private VisitedLocation last;
+
+	public LocationHistory(UUID userId, HistoryPolicy policy) {
+		this.userId = userId;
+		this.policy = policy;
+	}
+
+	public synchronized void add(VisitedLocation visitedLocation) {
+		long time = visitedLocation.timeVisited.getTime();
+		double latitude = visitedLocation.location.latitude;
+		double longitude = visitedLocation.location.longitude;
+
+		if (size > 0 && policy.getMinInterval() > 0 && Math.abs(time - times[slot(size - 1)]) < policy.getMinInterval()) {
+			// sous-échantillonnage : la nouvelle position remplace la précédente
+			int slot = slot(size - 1);
+			latitudes[slot] = latitude;
+			longitudes[slot] = longitude;
+			times[slot] = time;
+			processedSequence = Math.min(processedSequence, nextSequence - 1);
+			last = visitedLocation;
+			return;
+		}
+
+		evictExpired();
+		if (size == latitudes.length) {
+			if (size < policy.getMaxEntries()) {
+				grow();
+			} else {
+				head = (head + 1) % latitudes.length;
+				size--;
+			}
+		}
+		int slot = slot(size);
+		latitudes[slot] = latitude;
+		longitudes[slot] = longitude;
+		times[slot] = time;
+		size++;
+		nextSequence++;
+		last = visitedLocation;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Les positions ayant dépassé l'âge maximal de la politique sont d'abord évincées : une
+	 * dernière position trop ancienne n'est plus servie.
+	 *
+	 * @return la dernière localisation ajoutée, ou {@code null} si l'historique est vide
+	 */
+	public synchronized VisitedLocation getLast() {
+		evictExpired();
+		return size == 0 ? null : last;
+	}
+
+	public synchronized void clear() {
+		head = 0;
+		size = 0;
+		processedSequence = nextSequence;
+		last = null;
+		latitudes = new double[0];
+		longitudes = new double[0];
+		times = new long[0];
+	}
+
+	/**
+	 * Parcourt toutes les positions conservées, de la plus ancienne à la plus récente.
+	 * Le visiteur est appelé sous le verrou de l'historique et doit donc rester bref.
+	 */
+	public synchronized void forEach(LocationVisitor visitor) {
+		for (int i = 0; i < size; i++) {
+			int slot = slot(i);
+			visitor.visit(latitudes[slot], longitudes[slot], times[slot]);
+		}
+	}
+
+	/**
+	 * Parcourt les positions ajoutées depuis l'appel précédent puis avance le curseur de
+	 * traitement. Les positions évincées par la politique de rétention avant d'avoir été
+	 * traitées sont ignorées.
+	 *
+	 * @return le nombre de positions présentées au visiteur
+	 */
+	public synchronized int forEachUnprocessed(LocationVisitor visitor) {
+		long firstSequence = nextSequence - size;
+		int from = (int) (Math.max(processedSequence, firstSequence) - firstSequence);
+		for (int i = from; i < size; i++) {
+			int slot = slot(i);
+			visitor.visit(latitudes[slot], longitudes[slot], times[slot]);
+		}
+		processedSequence = nextSequence;
+		return size - from;
+	}
+
+	/**
+	 * @return le nombre de positions conservées que {@link #forEachUnprocessed(LocationVisitor)}
+	 *         n'a pas encore présentées
+	 */
+	public synchronized int getUnprocessedCount() {
+		long firstSequence = nextSequence - size;
+		return (int) (nextSequence - Math.max(processedSequence, firstSequence));
+	}
+
+	/**
+	 * Replace le curseur de traitement pour que seules les {@code count} positions les plus
+	 * récentes restent à traiter. Sert à la reprise d'un historique persisté.
+	 */
+	public synchronized void setUnprocessedCount(int count) {
+		processedSequence = nextSequence - Math.max(0, Math.min(count, size));
+	}
+
+	/**
+	 * Matérialise l'historique en objets {@link VisitedLocation}. Réservé aux usages
+	 * ponctuels (affichage, compatibilité) : les traitements de masse utilisent
+	 * {@link #forEach(LocationVisitor)}.
+	 */
+	public synchronized List<VisitedLocation> toVisitedLocations() {
+		List<VisitedLocation> result = new ArrayList<>(size);
+		forEach((latitude, longitude, time) -> result.add(toVisitedLocation(latitude, longitude, time)));
+		return result;
+	}
+
+	public VisitedLocation toVisitedLocation(double latitude, double longitude, long timeVisitedMillis) {
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date(timeVisitedMillis));
+	}
+
+	private void evictExpired() {
+		if (policy.getMaxAge() <= 0) {
+			return;
+		}
+		long cutoff = System.currentTimeMillis() - policy.getMaxAge();
+		while (size > 0 && times[head] < cutoff) {
+			head = (head + 1) % latitudes.length;
+			size--;
+		}
+		if (size == 0) {
+			last = null;
+		}
+	}
+
+	private void grow() {
+		int capacity = (int) Math.min(policy.getMaxEntries(), Math.max(INITIAL_CAPACITY, (long) latitudes.length * 2));
+		double[] newLatitudes = new double[capacity];
+		double[] newLongitudes = new double[capacity];
+		long[] newTimes = new long[capacity];
+		for (int i = 0; i < size; i++) {
+			int slot = slot(i);
+			newLatitudes[i] = latitudes[slot];
+			newLongitudes[i] = longitudes[slot];
+			newTimes[i] = times[slot];
+		}
+		latitudes = newLatitudes;
+		longitudes = newLongitudes;
+		times = newTimes;
+		head = 0;
+	}
+
+	private int slot(int index) {
+		return (head + index) % latitudes.length;
+	}
+
+	/**
+	 * Politique de rétention de l'historique.
+	 */
+	public static final class HistoryPolicy {
+		public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+		private final int maxEntries;
+		private final long maxAge;
+		private final long minInterval;
+
+		/**
+		 * @param maxEntries  nombre maximal de positions conservées
+		 * @param maxAge      âge maximal d'une position, {@link Duration#ZERO} pour ne pas limiter
+		 * @param minInterval écart minimal entre deux positions conservées ; une position plus
+		 *                    rapprochée remplace la précédente. {@link Duration#ZERO} désactive
+		 *                    le sous-échantillonnage
+		 */
+		public HistoryPolicy(int maxEntries, Duration maxAge, Duration minInterval) {
+			if (maxEntries <= 0) {
+				throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+			}
+			this.maxEntries = maxEntries;
+			this.maxAge = maxAge.toMillis();
+			this.minInterval = minInterval.toMillis();
+		}
+
+		public static HistoryPolicy defaults() {
+			return new HistoryPolicy(DEFAULT_MAX_ENTRIES, Duration.ZERO, Duration.ZERO);
+		}
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public long getMaxAge() {
+			return maxAge;
+		}
+
+		public long getMinInterval() {
+			return minInterval;
+		}
+
+		@Override
+		public String toString() {
+			return "HistoryPolicy" + Arrays.asList(maxEntries, maxAge, minInterval);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.tourguide.model;
+
+/**
+ * Attraction proche d'un utilisateur, telle que renvoyée par {@code /getNearbyAttractions} :
+ * position, distance à l'utilisateur et points de récompense. Immuable.
+ */
+public class NearbyAttraction {
+	private final String attractionName;
+	private final double latitude;
+	private final double longitude;
+	private final double distance;
+	private final int rewardPoints;
+
+	public NearbyAttraction(String attractionName, double latitude, double longitude, double distance,
+			int rewardPoints) {
+		this.attractionName = attractionName;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.distance = distance;
+		this.rewardPoints = rewardPoints;
+	}
+
+	public String getAttractionName() {
+		return attractionName;
+	}
+
+	public double getLatitude() {
+		return latitude;
+	}
+
+	public double getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * @return la distance entre l'utilisateur et l'attraction, en miles
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	public int getRewardPoints() {
+		return rewardPoints;
+	}
+}
@@ -0,0 +1,33 @@
+package com.openclassrooms.tourguide.model;
+
+import java.util.List;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Position d'un utilisateur et attractions les plus proches, de la plus proche à la plus
+ * éloignée. Immuable.
+ */
+public class NearbyAttractions {
+	private final double userLatitude;
+	private final double userLongitude;
+	private final List<NearbyAttraction> attractions;
+
+	public NearbyAttractions(VisitedLocation visitedLocation, List<NearbyAttraction> attractions) {
+		this.userLatitude = visitedLocation.location.latitude;
+		this.userLongitude = visitedLocation.location.longitude;
+		this.attractions = List.copyOf(attractions);
+	}
+
+	public double getUserLatitude() {
+		return userLatitude;
+	}
+
+	public double getUserLongitude() {
+		return userLongitude;
+	}
+
+	public List<NearbyAttraction> getAttractions() {
+		return attractions;
+	}
+}
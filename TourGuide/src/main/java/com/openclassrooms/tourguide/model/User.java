@@ -3,10 +3,17 @@ package com.openclassrooms.tourguide.model;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
 
 public class User {
 	private final UUID userId;
@@ -14,15 +21,23 @@ public class User {
 	private String phoneNumber;
 	private String emailAddress;
 	private Date latestLocationTimestamp;
-	private final List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private final List<UserReward> userRewards = new ArrayList<>();
+	private final LocationHistory visitedLocations;
+	private final List<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	private final Set<String> rewardedAttractions = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger cumulativeRewardPoints = new AtomicInteger();
 	private UserPreferences userPreferences = new UserPreferences();
 	private List<Provider> tripDeals = new ArrayList<>();
+	private volatile Consumer<LocationHistory> historyGenerator;
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
+		this(userId, userName, phoneNumber, emailAddress, HistoryPolicy.defaults());
+	}
+
+	public User(UUID userId, String userName, String phoneNumber, String emailAddress, HistoryPolicy historyPolicy) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new LocationHistory(userId, historyPolicy);
 	}
 	
 	public UUID getUserId() {
@@ -57,26 +72,87 @@ public class User {
 		return latestLocationTimestamp;
 	}
 	
-	public synchronized void addToVisitedLocations(VisitedLocation visitedLocation) {
-		visitedLocations.add(visitedLocation);
+	public void addToVisitedLocations(VisitedLocation visitedLocation) {
+		history().add(visitedLocation);
 	}
-	
+
+	/**
+	 * Retourne une copie matérialisée de l'historique. Les traitements de masse
+	 * parcourent plutôt {@link #getLocationHistory()}, sans créer d'objets.
+	 *
+	 * @return les localisations conservées, de la plus ancienne à la plus récente
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
-		return visitedLocations;
+		return history().toVisitedLocations();
+	}
+
+	public LocationHistory getLocationHistory() {
+		return history();
 	}
 	
 	public void clearVisitedLocations() {
-		visitedLocations.clear();
+		history().clear();
+	}
+
+	/**
+	 * Diffère la génération de l'historique : {@code generator} remplit l'historique lors du
+	 * premier accès, une seule fois.
+	 *
+	 * @param generator remplissage de l'historique
+	 */
+	public void setHistoryGenerator(Consumer<LocationHistory> generator) {
+		this.historyGenerator = generator;
+	}
+
+	/**
+	 * @return {@code true} si l'historique n'a pas encore été généré
+	 */
+	public boolean hasPendingHistory() {
+		return historyGenerator != null;
+	}
+
+	private LocationHistory history() {
+		if (historyGenerator != null) {
+			synchronized (visitedLocations) {
+				Consumer<LocationHistory> generator = historyGenerator;
+				if (generator != null) {
+					generator.accept(visitedLocations);
+					historyGenerator = null;
+				}
+			}
+		}
+		return visitedLocations;
 	}
 	
-	public synchronized void addUserReward(UserReward userReward) {
-		if(checkAttractionName(userReward))
+	/**
+	 * Ajoute la récompense si l'attraction n'a pas encore été récompensée. Le contrôle
+	 * et l'insertion passent par l'ensemble des attractions récompensées, en temps constant
+	 * et sans verrou sur l'utilisateur.
+	 *
+	 * Une attraction est identifiée par son nom, comme avant l'ensemble : gpsUtil attribue un
+	 * nouvel identifiant à chaque lecture du catalogue, l'identifiant ne désigne donc pas
+	 * toujours la même attraction d'une lecture à l'autre.
+	 *
+	 * @return {@code true} si la récompense a été ajoutée
+	 */
+	public boolean addUserReward(UserReward userReward) {
+		if (rewardedAttractions.add(userReward.attraction.attractionName)) {
 			userRewards.add(userReward);
+			cumulativeRewardPoints.addAndGet(userReward.getRewardPoints());
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return la somme des points des récompenses, tenue à jour à chaque ajout
+	 */
+	public int getCumulativeRewardPoints() {
+		return cumulativeRewardPoints.get();
 	}
 
-	private boolean checkAttractionName(UserReward userReward){
-		return userRewards.stream()
-				.noneMatch(r -> r.attraction.attractionName.equals(userReward.attraction.attractionName));
+	public boolean hasRewardFor(Attraction attraction) {
+		return rewardedAttractions.contains(attraction.attractionName);
 	}
 	
 	public List<UserReward> getUserRewards() {
@@ -91,8 +167,11 @@ public class User {
 		this.userPreferences = userPreferences;
 	}
 
+	/**
+	 * @return la dernière localisation ajoutée, ou {@code null} si l'historique est vide
+	 */
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return history().getLast();
 	}
 	
 	public void setTripDeals(List<Provider> tripDeals) {
@@ -0,0 +1,489 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserReward;
+
+/**
+ * {@link UserStore} sur disque local : journal en ajout seul et instantanés compactés.
+ *
+ * Chaque changement est ajouté au segment courant du journal ({@code events-<n>.log}) dans un
+ * tampon mémoire, vidé et synchronisé sur disque à intervalle régulier : un arrêt brutal perd
+ * au plus un intervalle d'écriture. Les écritures passent par des flux de fichier classiques,
+ * qu'une interruption du thread appelant ne ferme pas. Chaque enregistrement est encadré par
+ * sa longueur et une somme de contrôle CRC32, un enregistrement tronqué en fin de segment est
+ * donc ignoré à la relecture.
+ *
+ * Un instantané ({@code snapshot.bin}) contient l'état complet de chaque utilisateur. Pour
+ * l'écrire, le journal passe d'abord à un nouveau segment ; l'instantané, écrit dans un
+ * fichier temporaire puis renommé atomiquement, remplace alors tous les segments précédents,
+ * qui sont supprimés. Il est déclenché lorsque le journal dépasse un seuil de taille, à
+ * intervalle régulier et à la fermeture.
+ *
+ * La reprise relit l'instantané puis les segments suivants, séquentiellement et par
+ * projection mémoire ({@link FileChannel#map}), sans passer par un flux d'objets.
+ *
+ * Seuls les utilisateurs journalisés ({@link #userAdded(User)}) ou retrouvés à la reprise sont
+ * persistés : les utilisateurs internes de test, enregistrés sans passer par le journal, n'entrent
+ * ni dans le journal ni dans les instantanés, et leur historique différé n'est jamais généré
+ * pour être écrit.
+ */
+public class FileUserStore implements UserStore {
+	private final Logger logger = LoggerFactory.getLogger(FileUserStore.class);
+	public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+	public static final Duration DEFAULT_SNAPSHOT_INTERVAL = Duration.ofMinutes(15);
+	public static final long DEFAULT_COMPACTION_THRESHOLD = 64L * 1024 * 1024;
+
+	private static final String SNAPSHOT = "snapshot.bin";
+	private static final String SEGMENT_PREFIX = "events-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int MAGIC = 0x54475553; // "TGUS"
+	private static final int VERSION = UserRecords.VERSION;
+	private static final int SEGMENT_HEADER = 8; // magic, version
+	private static final int SNAPSHOT_HEADER = 16; // magic, version, premier segment couvert
+	private static final int FRAME_HEADER = 8; // longueur, CRC32
+	private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+	private static final long MAP_CHUNK = 256L * 1024 * 1024;
+	private static final int WRITE_BUFFER = 1024 * 1024;
+
+	private final Path directory;
+	private final long snapshotIntervalMillis;
+	private final long compactionThreshold;
+	private final ScheduledExecutorService scheduler;
+	private final Object writeLock = new Object();
+	private final Object checkpointLock = new Object();
+	private final RecordBuffer record = new RecordBuffer();
+	private final DataOutputStream recordOut = new DataOutputStream(record);
+
+	private FileOutputStream file;
+	private OutputStream out;
+	private long segment;
+	private long bytesSinceSnapshot = 0;
+	private long lastSnapshot = System.currentTimeMillis();
+	private boolean closed = false;
+	private volatile Collection<User> users;
+	private final Set<UUID> journaled = ConcurrentHashMap.newKeySet();
+
+	public FileUserStore(Path directory) {
+		this(directory, DEFAULT_FLUSH_INTERVAL, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * @param directory           répertoire des fichiers de persistance, créé au besoin
+	 * @param flushInterval       intervalle entre deux écritures du journal sur disque
+	 * @param snapshotInterval    intervalle maximal entre deux instantanés
+	 * @param compactionThreshold taille du journal, en octets, au-delà de laquelle un instantané est écrit
+	 */
+	public FileUserStore(Path directory, Duration flushInterval, Duration snapshotInterval, long compactionThreshold) {
+		if (flushInterval.isZero() || flushInterval.isNegative() || compactionThreshold <= 0) {
+			throw new IllegalArgumentException("flushInterval and compactionThreshold must be positive");
+		}
+		this.directory = directory;
+		this.snapshotIntervalMillis = snapshotInterval.toMillis();
+		this.compactionThreshold = compactionThreshold;
+		try {
+			Files.createDirectories(directory);
+			List<Long> segments = new ArrayList<>(listSegments().keySet());
+			openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open user store in " + directory, e);
+		}
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "user-store-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long flushMillis = flushInterval.toMillis();
+		scheduler.scheduleWithFixedDelay(this::flushAndCompact, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void userAdded(User user) {
+		journaled.add(user.getUserId());
+		synchronized (writeLock) {
+			try {
+				UserRecords.writeUser(recordOut, user);
+			} catch (IOException e) {
+				record.reset();
+				throw new UncheckedIOException(e);
+			}
+			appendRecord();
+		}
+	}
+
+	@Override
+	public void locationAdded(User user, VisitedLocation visitedLocation) {
+		if (!journaled.contains(user.getUserId())) {
+			return;
+		}
+		synchronized (writeLock) {
+			try {
+				UserRecords.writeLocation(recordOut, user.getUserId(), visitedLocation);
+			} catch (IOException e) {
+				record.reset();
+				throw new UncheckedIOException(e);
+			}
+			appendRecord();
+		}
+	}
+
+	@Override
+	public void rewardAdded(User user, UserReward userReward) {
+		if (!journaled.contains(user.getUserId())) {
+			return;
+		}
+		synchronized (writeLock) {
+			try {
+				UserRecords.writeReward(recordOut, user.getUserId(), userReward);
+			} catch (IOException e) {
+				record.reset();
+				throw new UncheckedIOException(e);
+			}
+			appendRecord();
+		}
+	}
+
+	@Override
+	public List<User> recover(HistoryPolicy historyPolicy, Map<String, Attraction> attractions) {
+		long start = System.currentTimeMillis();
+		Map<UUID, User> recovered = new LinkedHashMap<>();
+		try {
+			long firstSegment = 0;
+			Path snapshot = directory.resolve(SNAPSHOT);
+			if (Files.exists(snapshot)) {
+				firstSegment = readSnapshotHeader(snapshot);
+				replay(snapshot, SNAPSHOT_HEADER, recovered, historyPolicy, attractions);
+			}
+			long currentSegment;
+			synchronized (writeLock) {
+				currentSegment = segment;
+			}
+			for (Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+				if (entry.getKey() >= firstSegment && entry.getKey() < currentSegment) {
+					replay(entry.getValue(), SEGMENT_HEADER, recovered, historyPolicy, attractions);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot recover users from " + directory, e);
+		}
+		journaled.addAll(recovered.keySet());
+		logger.info("Recovered {} users from {} in {} ms", recovered.size(), directory,
+				System.currentTimeMillis() - start);
+		return new ArrayList<>(recovered.values());
+	}
+
+	@Override
+	public void attach(Collection<User> users) {
+		this.users = users;
+	}
+
+	/**
+	 * Sans effet tant qu'aucune vue des utilisateurs n'est attachée : un instantané vide
+	 * effacerait le journal.
+	 */
+	@Override
+	public void checkpoint() {
+		if (users == null) {
+			return;
+		}
+		synchronized (checkpointLock) {
+			long firstSegment;
+			synchronized (writeLock) {
+				if (closed) {
+					return;
+				}
+				try {
+					firstSegment = segment + 1;
+					closeSegment();
+					openSegment(firstSegment);
+				} catch (IOException e) {
+					throw new UncheckedIOException("Cannot roll the event log in " + directory, e);
+				}
+				bytesSinceSnapshot = 0;
+				lastSnapshot = System.currentTimeMillis();
+			}
+			try {
+				writeSnapshot(firstSegment);
+				for (Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+					if (entry.getKey() < firstSegment) {
+						Files.deleteIfExists(entry.getValue());
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot write snapshot in " + directory, e);
+			}
+		}
+	}
+
+	/**
+	 * Écrit un dernier instantané, vide le journal et arrête l'écriture périodique.
+	 * Les appels suivants sont sans effet.
+	 */
+	@Override
+	public void close() {
+		synchronized (writeLock) {
+			if (closed) {
+				return;
+			}
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			checkpoint();
+		} finally {
+			synchronized (writeLock) {
+				closed = true;
+				try {
+					closeSegment();
+				} catch (IOException e) {
+					logger.error("Cannot close the event log in {}", directory, e);
+				}
+			}
+		}
+	}
+
+	private void appendRecord() {
+		try {
+			if (closed) {
+				return;
+			}
+			writeFrame(out, record);
+			bytesSinceSnapshot += FRAME_HEADER + record.size();
+		} catch (IOException e) {
+			logger.error("Cannot append to the event log in {}", directory, e);
+		} finally {
+			record.reset();
+		}
+	}
+
+	private void flushAndCompact() {
+		try {
+			boolean compact;
+			synchronized (writeLock) {
+				if (closed) {
+					return;
+				}
+				out.flush();
+				file.getFD().sync();
+				compact = bytesSinceSnapshot >= compactionThreshold || (bytesSinceSnapshot > 0
+						&& snapshotIntervalMillis > 0 && System.currentTimeMillis() - lastSnapshot >= snapshotIntervalMillis);
+			}
+			if (compact) {
+				checkpoint();
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.error("Cannot flush the event log in {}", directory, e);
+		}
+	}
+
+	private void writeSnapshot(long firstSegment) throws IOException {
+		long start = System.currentTimeMillis();
+		Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+		RecordBuffer snapshotRecord = new RecordBuffer();
+		DataOutputStream snapshotRecordOut = new DataOutputStream(snapshotRecord);
+		int count = 0;
+		try (FileOutputStream snapshotFile = new FileOutputStream(temporary.toFile())) {
+			DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(snapshotFile, WRITE_BUFFER));
+			snapshotOut.writeInt(MAGIC);
+			snapshotOut.writeInt(VERSION);
+			snapshotOut.writeLong(firstSegment);
+			for (User user : users) {
+				if (!journaled.contains(user.getUserId()) || user.hasPendingHistory()) {
+					continue; // utilisateur interne : ni journalisé, ni à générer pour l'instantané
+				}
+				UserRecords.writeUser(snapshotRecordOut, user);
+				writeFrame(snapshotOut, snapshotRecord);
+				snapshotRecord.reset();
+				count++;
+			}
+			snapshotOut.flush();
+			snapshotFile.getFD().sync();
+		}
+		Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		logger.debug("Snapshot of {} users written in {} ms", count, System.currentTimeMillis() - start);
+	}
+
+	private long readSnapshotHeader(Path snapshot) throws IOException {
+		try (FileChannel snapshotChannel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+			while (header.hasRemaining() && snapshotChannel.read(header) >= 0) {
+				// lecture de l'en-tête complet
+			}
+			header.flip();
+			if (header.remaining() < SNAPSHOT_HEADER || header.getInt() != MAGIC || !isSupported(header.getInt())) {
+				throw new IOException("Invalid snapshot header in " + snapshot);
+			}
+			return header.getLong();
+		}
+	}
+
+	/**
+	 * Relit un fichier par tranches projetées en mémoire et applique chaque enregistrement
+	 * valide. La relecture s'arrête au premier enregistrement tronqué ou corrompu.
+	 */
+	private void replay(Path file, int offset, Map<UUID, User> recovered, HistoryPolicy historyPolicy,
+			Map<String, Attraction> attractions) throws IOException {
+		CRC32 checksum = new CRC32();
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = fileChannel.size();
+			int version = readVersion(fileChannel);
+			if (!isSupported(version)) {
+				logger.warn("Unsupported version {} in {}, ignoring the file", version, file);
+				return;
+			}
+			long position = offset;
+			while (position + FRAME_HEADER <= size) {
+				MappedByteBuffer region = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(size - position, MAP_CHUNK));
+				while (region.remaining() >= FRAME_HEADER) {
+					int start = region.position();
+					int length = region.getInt();
+					int crc = region.getInt();
+					if (length <= 0 || length > MAX_RECORD_SIZE) {
+						logger.warn("Corrupted record in {} at offset {}, ignoring the rest", file, position + start);
+						return;
+					}
+					if (region.remaining() < length) {
+						region.position(start);
+						break;
+					}
+					ByteBuffer payload = region.slice(region.position(), length);
+					checksum.reset();
+					checksum.update(payload.duplicate());
+					if ((int) checksum.getValue() != crc) {
+						logger.warn("Corrupted record in {} at offset {}, ignoring the rest", file, position + start);
+						return;
+					}
+					UserRecords.apply(payload, version, recovered, historyPolicy, attractions);
+					region.position(start + FRAME_HEADER + length);
+				}
+				if (region.position() == 0) {
+					logger.warn("Truncated record in {} at offset {}, ignoring the rest", file, position);
+					return;
+				}
+				position += region.position();
+			}
+		}
+	}
+
+	/**
+	 * @return la version inscrite dans l'en-tête du fichier, après le nombre magique, ou -1
+	 */
+	private static int readVersion(FileChannel fileChannel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(8);
+		while (header.hasRemaining() && fileChannel.read(header, header.position()) >= 0) {
+			// lecture de l'en-tête complet
+		}
+		header.flip();
+		return header.remaining() == 8 && header.getInt() == MAGIC ? header.getInt() : -1;
+	}
+
+	private static boolean isSupported(int version) {
+		return version >= 1 && version <= VERSION;
+	}
+
+	private static void writeFrame(OutputStream target, RecordBuffer payload) throws IOException {
+		CRC32 checksum = new CRC32();
+		checksum.update(payload.array(), 0, payload.size());
+		int crc = (int) checksum.getValue();
+		int length = payload.size();
+		target.write(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length,
+				(byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc });
+		target.write(payload.array(), 0, length);
+	}
+
+	private void openSegment(long number) throws IOException {
+		Path path = directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+		file = new FileOutputStream(path.toFile());
+		out = new BufferedOutputStream(file, WRITE_BUFFER);
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		segment = number;
+	}
+
+	private void closeSegment() throws IOException {
+		out.flush();
+		file.getFD().sync();
+		file.close();
+	}
+
+	/**
+	 * @return les segments du journal présents sur disque, par numéro croissant
+	 */
+	private TreeMap<Long, Path> listSegments() throws IOException {
+		TreeMap<Long, Path> segments = new TreeMap<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> {
+				String name = file.getFileName().toString();
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						segments.put(Long.parseLong(
+								name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+					} catch (NumberFormatException e) {
+						// fichier étranger au journal
+					}
+				}
+			});
+		}
+		return segments;
+	}
+
+	/**
+	 * Tampon d'encodage réutilisé, dont le tableau interne est lisible sans copie.
+	 */
+	private static final class RecordBuffer extends ByteArrayOutputStream {
+		private RecordBuffer() {
+			super(256);
+		}
+
+		private byte[] array() {
+			return buf;
+		}
+	}
+}
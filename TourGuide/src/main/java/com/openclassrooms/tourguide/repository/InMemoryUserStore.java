@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserReward;
+
+/**
+ * {@link UserStore} sans persistance : l'état ne vit que dans le tas et est perdu au redémarrage.
+ */
+public class InMemoryUserStore implements UserStore {
+
+	@Override
+	public void userAdded(User user) {
+	}
+
+	@Override
+	public void locationAdded(User user, VisitedLocation visitedLocation) {
+	}
+
+	@Override
+	public void rewardAdded(User user, UserReward userReward) {
+	}
+
+	@Override
+	public List<User> recover(HistoryPolicy historyPolicy, Map<String, Attraction> attractions) {
+		return List.of();
+	}
+
+	@Override
+	public void attach(Collection<User> users) {
+	}
+
+	@Override
+	public void checkpoint() {
+	}
+
+	@Override
+	public void close() {
+	}
+}
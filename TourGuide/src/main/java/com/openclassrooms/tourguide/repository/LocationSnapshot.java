@@ -0,0 +1,68 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.CurrentLocation;
+
+/**
+ * Instantané des dernières positions connues, indexé par identifiant d'utilisateur.
+ *
+ * Le tracker met l'instantané à jour au fil de l'eau, une entrée à la fois : il n'est jamais
+ * reconstruit. Chaque entrée porte sa date de mise à jour, ce qui permet de ne relire que les
+ * positions modifiées depuis une date donnée.
+ */
+public class LocationSnapshot {
+	private final ConcurrentMap<UUID, CurrentLocation> locations = new ConcurrentHashMap<>();
+	private final Clock clock;
+
+	public LocationSnapshot() {
+		this(Clock.systemUTC());
+	}
+
+	public LocationSnapshot(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Enregistre la position si elle est au moins aussi récente que celle déjà connue.
+	 */
+	public void update(VisitedLocation visitedLocation) {
+		CurrentLocation current = new CurrentLocation(visitedLocation, clock.millis());
+		locations.merge(visitedLocation.userId, current,
+				(previous, next) -> next.getTimeVisited() >= previous.getTimeVisited() ? next : previous);
+	}
+
+	public CurrentLocation get(UUID userId) {
+		return locations.get(userId);
+	}
+
+	public void remove(UUID userId) {
+		locations.remove(userId);
+	}
+
+	public int size() {
+		return locations.size();
+	}
+
+	/**
+	 * @return une vue vivante et non modifiable de toutes les positions, sans copie
+	 */
+	public Collection<CurrentLocation> all() {
+		return Collections.unmodifiableCollection(locations.values());
+	}
+
+	/**
+	 * @param since date en millisecondes depuis l'epoch
+	 * @return les positions mises à jour strictement après {@code since}
+	 */
+	public Stream<CurrentLocation> changedSince(long since) {
+		return locations.values().stream().filter(location -> location.getUpdatedAt() > since);
+	}
+}
@@ -0,0 +1,219 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.LocationHistory;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserPreferences;
+import com.openclassrooms.tourguide.model.UserReward;
+
+/**
+ * Encodage binaire des enregistrements de {@link FileUserStore}.
+ *
+ * Trois types d'enregistrement : l'état complet d'un utilisateur (identité, préférences,
+ * historique, récompenses), une localisation ajoutée et une récompense ajoutée. Les
+ * récompenses référencent l'attraction par son nom, seul identifiant stable d'une exécution
+ * à l'autre. Les nombres sont écrits en gros-boutiste, l'ordre par défaut de {@link ByteBuffer}.
+ *
+ * Depuis la version 2, l'état d'un utilisateur porte aussi son curseur de traitement des
+ * récompenses (nombre de positions non traitées) : la reprise ne refait pas passer tout
+ * l'historique dans le calcul des récompenses. Les fichiers en version 1 restent lisibles,
+ * leurs positions sont alors toutes à traiter.
+ */
+final class UserRecords {
+	static final byte USER = 1;
+	static final byte LOCATION = 2;
+	static final byte REWARD = 3;
+	static final int VERSION = 2;
+	/** Première version portant le curseur de traitement. */
+	private static final int CURSOR_VERSION = 2;
+
+	private UserRecords() {
+	}
+
+	static void writeUser(DataOutputStream out, User user) throws IOException {
+		out.writeByte(USER);
+		writeUuid(out, user.getUserId());
+		writeString(out, user.getUserName());
+		writeString(out, user.getPhoneNumber());
+		writeString(out, user.getEmailAddress());
+		UserPreferences preferences = user.getUserPreferences();
+		out.writeInt(preferences.getAttractionProximity());
+		out.writeInt(preferences.getTripDuration());
+		out.writeInt(preferences.getTicketQuantity());
+		out.writeInt(preferences.getNumberOfAdults());
+		out.writeInt(preferences.getNumberOfChildren());
+
+		LocationHistory history = user.getLocationHistory();
+		synchronized (history) {
+			out.writeInt(history.size());
+			history.forEach((latitude, longitude, timeVisited) -> {
+				try {
+					out.writeDouble(latitude);
+					out.writeDouble(longitude);
+					out.writeLong(timeVisited);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			out.writeInt(history.getUnprocessedCount());
+		}
+
+		List<UserReward> rewards = new ArrayList<>(user.getUserRewards());
+		out.writeInt(rewards.size());
+		for (UserReward reward : rewards) {
+			writeRewardBody(out, reward);
+		}
+	}
+
+	static void writeLocation(DataOutputStream out, UUID userId, VisitedLocation visitedLocation) throws IOException {
+		out.writeByte(LOCATION);
+		writeUuid(out, userId);
+		out.writeDouble(visitedLocation.location.latitude);
+		out.writeDouble(visitedLocation.location.longitude);
+		out.writeLong(visitedLocation.timeVisited.getTime());
+	}
+
+	static void writeReward(DataOutputStream out, UUID userId, UserReward reward) throws IOException {
+		out.writeByte(REWARD);
+		writeUuid(out, userId);
+		writeRewardBody(out, reward);
+	}
+
+	/**
+	 * Applique un enregistrement aux utilisateurs en cours de reconstruction.
+	 *
+	 * Les enregistrements déjà couverts par l'instantané sont ignorés : un utilisateur déjà
+	 * connu n'est pas remplacé, une localisation qui n'est pas plus récente que la dernière de
+	 * l'historique n'est pas rejouée et une récompense n'est ajoutée qu'une fois par attraction.
+	 *
+	 * @param version version du fichier dont provient l'enregistrement
+	 */
+	static void apply(ByteBuffer record, int version, Map<UUID, User> users, HistoryPolicy historyPolicy,
+			Map<String, Attraction> attractions) {
+		byte type = record.get();
+		switch (type) {
+		case USER -> {
+			User user = readUser(record, version, historyPolicy, attractions);
+			users.putIfAbsent(user.getUserId(), user);
+		}
+		case LOCATION -> {
+			User user = users.get(readUuid(record));
+			double latitude = record.getDouble();
+			double longitude = record.getDouble();
+			long timeVisited = record.getLong();
+			if (user != null) {
+				addLocation(user, latitude, longitude, timeVisited);
+			}
+		}
+		case REWARD -> {
+			User user = users.get(readUuid(record));
+			if (user != null) {
+				readReward(record, user, attractions);
+			}
+		}
+		default -> throw new IllegalStateException("Unknown record type: " + type);
+		}
+	}
+
+	private static User readUser(ByteBuffer record, int version, HistoryPolicy historyPolicy,
+			Map<String, Attraction> attractions) {
+		UUID userId = readUuid(record);
+		User user = new User(userId, readString(record), readString(record), readString(record), historyPolicy);
+		UserPreferences preferences = new UserPreferences();
+		preferences.setAttractionProximity(record.getInt());
+		preferences.setTripDuration(record.getInt());
+		preferences.setTicketQuantity(record.getInt());
+		preferences.setNumberOfAdults(record.getInt());
+		preferences.setNumberOfChildren(record.getInt());
+		user.setUserPreferences(preferences);
+
+		int locations = record.getInt();
+		LocationHistory history = user.getLocationHistory();
+		for (int i = 0; i < locations; i++) {
+			user.addToVisitedLocations(history.toVisitedLocation(record.getDouble(), record.getDouble(), record.getLong()));
+		}
+		if (version >= CURSOR_VERSION) {
+			history.setUnprocessedCount(record.getInt());
+		}
+		int rewards = record.getInt();
+		for (int i = 0; i < rewards; i++) {
+			readReward(record, user, attractions);
+		}
+		return user;
+	}
+
+	private static void addLocation(User user, double latitude, double longitude, long timeVisited) {
+		VisitedLocation last = user.getLastVisitedLocation();
+		if (last != null) {
+			long lastTime = last.timeVisited.getTime();
+			boolean sameAsLast = lastTime == timeVisited && last.location.latitude == latitude
+					&& last.location.longitude == longitude;
+			if (timeVisited < lastTime || sameAsLast) {
+				return;
+			}
+		}
+		user.addToVisitedLocations(user.getLocationHistory().toVisitedLocation(latitude, longitude, timeVisited));
+	}
+
+	private static void readReward(ByteBuffer record, User user, Map<String, Attraction> attractions) {
+		String attractionName = readString(record);
+		double latitude = record.getDouble();
+		double longitude = record.getDouble();
+		long timeVisited = record.getLong();
+		int rewardPoints = record.getInt();
+		Attraction attraction = attractions.get(attractionName);
+		if (attraction != null) {
+			VisitedLocation visitedLocation = user.getLocationHistory().toVisitedLocation(latitude, longitude, timeVisited);
+			user.addUserReward(new UserReward(visitedLocation, attraction, rewardPoints));
+		}
+	}
+
+	private static void writeRewardBody(DataOutputStream out, UserReward reward) throws IOException {
+		writeString(out, reward.attraction.attractionName);
+		out.writeDouble(reward.visitedLocation.location.latitude);
+		out.writeDouble(reward.visitedLocation.location.longitude);
+		out.writeLong(reward.visitedLocation.timeVisited.getTime());
+		out.writeInt(reward.getRewardPoints());
+	}
+
+	private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+
+	private static UUID readUuid(ByteBuffer record) {
+		return new UUID(record.getLong(), record.getLong());
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer record) {
+		int length = record.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
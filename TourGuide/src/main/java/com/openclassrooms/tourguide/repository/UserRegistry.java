@@ -0,0 +1,132 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.openclassrooms.tourguide.model.User;
+
+/**
+ * Registre concurrent des utilisateurs, indexé par nom et par identifiant.
+ *
+ * Les utilisateurs sont répartis en partitions (shards) selon leur identifiant, ce qui permet
+ * à plusieurs workers de traiter des tranches disjointes. Les vues retournées sont vivantes
+ * et faiblement cohérentes : leur parcours ne copie rien et ne lève jamais
+ * {@link java.util.ConcurrentModificationException}.
+ */
+public class UserRegistry {
+	public static final int DEFAULT_SHARD_COUNT = 16;
+
+	private final ConcurrentMap<String, User> usersByName = new ConcurrentHashMap<>();
+	private final ConcurrentMap<UUID, User>[] shards;
+	private final Collection<User> allUsers = new AllUsersView();
+
+	public UserRegistry() {
+		this(DEFAULT_SHARD_COUNT);
+	}
+
+	@SuppressWarnings("unchecked")
+	public UserRegistry(int shardCount) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+		}
+		shards = new ConcurrentMap[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * Ajoute l'utilisateur s'il n'existe pas encore un utilisateur de même nom.
+	 *
+	 * @param user l'utilisateur à enregistrer
+	 * @return {@code true} si l'utilisateur a été ajouté
+	 */
+	public boolean add(User user) {
+		if (usersByName.putIfAbsent(user.getUserName(), user) != null) {
+			return false;
+		}
+		shardOf(user.getUserId()).put(user.getUserId(), user);
+		return true;
+	}
+
+	public User getByName(String userName) {
+		return usersByName.get(userName);
+	}
+
+	public User getById(UUID userId) {
+		return shardOf(userId).get(userId);
+	}
+
+	public int size() {
+		return usersByName.size();
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * @param index numéro de partition, entre 0 et {@link #getShardCount()} exclu
+	 * @return une vue non modifiable et vivante des utilisateurs de la partition
+	 */
+	public Collection<User> shard(int index) {
+		return Collections.unmodifiableCollection(shards[index].values());
+	}
+
+	/**
+	 * @return une vue non modifiable et vivante de tous les utilisateurs, sans copie
+	 */
+	public Collection<User> users() {
+		return allUsers;
+	}
+
+	private ConcurrentMap<UUID, User> shardOf(UUID userId) {
+		return shards[shardIndex(userId)];
+	}
+
+	/**
+	 * @param userId identifiant d'un utilisateur
+	 * @return la partition à laquelle appartient cet identifiant
+	 */
+	public int shardIndex(UUID userId) {
+		int hash = userId.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+	}
+
+	private class AllUsersView extends AbstractCollection<User> {
+		@Override
+		public Iterator<User> iterator() {
+			return new Iterator<>() {
+				private int shard = 0;
+				private Iterator<User> current = shards[0].values().iterator();
+
+				@Override
+				public boolean hasNext() {
+					while (!current.hasNext() && shard < shards.length - 1) {
+						current = shards[++shard].values().iterator();
+					}
+					return current.hasNext();
+				}
+
+				@Override
+				public User next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return current.next();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return UserRegistry.this.size();
+		}
+	}
+}
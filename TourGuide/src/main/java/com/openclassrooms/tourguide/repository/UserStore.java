@@ -0,0 +1,50 @@
+package com.openclassrooms.tourguide.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserReward;
+
+/**
+ * Persistance des utilisateurs, de leurs localisations et de leurs récompenses.
+ *
+ * Les services notifient chaque changement d'état au moment où il est appliqué en mémoire ;
+ * l'implémentation choisit comment le conserver. {@link InMemoryUserStore} ne conserve rien,
+ * {@link FileUserStore} tient un journal en ajout seul sur disque local et le compacte
+ * périodiquement en instantané.
+ */
+public interface UserStore extends AutoCloseable {
+
+	void userAdded(User user);
+
+	void locationAdded(User user, VisitedLocation visitedLocation);
+
+	void rewardAdded(User user, UserReward userReward);
+
+	/**
+	 * Reconstruit les utilisateurs persistés lors d'une exécution précédente.
+	 *
+	 * @param historyPolicy politique de rétention des historiques reconstruits
+	 * @param attractions   catalogue des attractions par nom, pour rattacher les récompenses
+	 * @return les utilisateurs retrouvés, liste vide si rien n'a été persisté
+	 */
+	List<User> recover(HistoryPolicy historyPolicy, Map<String, Attraction> attractions);
+
+	/**
+	 * @param users vue vivante des utilisateurs, parcourue lors des instantanés
+	 */
+	void attach(Collection<User> users);
+
+	/**
+	 * Écrit un instantané des utilisateurs attachés et libère le journal qu'il remplace.
+	 */
+	void checkpoint();
+
+	@Override
+	void close();
+}
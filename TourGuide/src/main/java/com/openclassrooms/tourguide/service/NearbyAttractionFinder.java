@@ -0,0 +1,148 @@
+package com.openclassrooms.tourguide.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.model.NearbyAttraction;
+import com.openclassrooms.tourguide.model.NearbyAttractions;
+import com.openclassrooms.tourguide.model.User;
+
+/**
+ * Construit la liste des attractions les plus proches d'un utilisateur, avec leurs points de
+ * récompense. Seules les attractions situées dans le rayon préféré de l'utilisateur
+ * ({@link com.openclassrooms.tourguide.model.UserPreferences#getAttractionProximity()}) sont
+ * retenues ; le rayon par défaut ne pose aucune limite.
+ *
+ * Les attractions sont choisies par l'index spatial, qui ne conserve que les meilleures dans un
+ * tas borné. Leurs points sont demandés en parallèle au {@link RewardPointsLoader}, dont le cache
+ * est partagé avec le calcul des récompenses. Le résultat est mémorisé par (utilisateur, cellule
+ * de la grille de positions arrondies) : un utilisateur immobile n'entraîne plus aucun calcul.
+ * Les distances mémorisées sont celles du premier calcul dans la cellule ; l'écart reste
+ * inférieur à la taille d'une cellule.
+ */
+public class NearbyAttractionFinder {
+	public static final int DEFAULT_LIMIT = 5;
+	public static final double DEFAULT_CELL_DEGREES = 0.001;
+	public static final int DEFAULT_CACHE_SIZE = 100_000;
+	public static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(10);
+
+	private final RewardsService rewardsService;
+	private final ExpiringCache<NearbyKey, List<NearbyAttraction>> results;
+	private final int limit;
+	private final double cellDegrees;
+
+	public NearbyAttractionFinder(RewardsService rewardsService) {
+		this(rewardsService, new ExpiringCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL), DEFAULT_LIMIT,
+				DEFAULT_CELL_DEGREES);
+	}
+
+	/**
+	 * @param results     cache des listes déjà construites
+	 * @param limit       nombre d'attractions renvoyées
+	 * @param cellDegrees côté d'une cellule de la grille de mémorisation, en degrés
+	 */
+	public NearbyAttractionFinder(RewardsService rewardsService, ExpiringCache<NearbyKey, List<NearbyAttraction>> results,
+			int limit, double cellDegrees) {
+		if (limit <= 0 || !(cellDegrees > 0)) {
+			throw new IllegalArgumentException("limit and cellDegrees must be positive");
+		}
+		this.rewardsService = rewardsService;
+		this.results = results;
+		this.limit = limit;
+		this.cellDegrees = cellDegrees;
+	}
+
+	/**
+	 * @param user            l'utilisateur
+	 * @param visitedLocation la localisation de l'utilisateur
+	 * @return un {@link CompletableFuture} fournissant la position de l'utilisateur et les
+	 *         attractions les plus proches, de la plus proche à la plus éloignée
+	 */
+	public CompletableFuture<NearbyAttractions> getNearbyAttractions(User user, VisitedLocation visitedLocation) {
+		Location location = visitedLocation.location;
+		AttractionCatalog.Snapshot catalog = rewardsService.getAttractionCatalog().snapshot();
+		int radius = user.getUserPreferences().getAttractionProximity();
+		NearbyKey key = new NearbyKey(visitedLocation.userId, cell(location.latitude), cell(location.longitude),
+				radius, catalog.getVersion());
+		List<NearbyAttraction> cached = results.get(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(new NearbyAttractions(visitedLocation, cached));
+		}
+
+		List<Attraction> nearest = catalog.getIndex().nearest(location, limit, radius);
+		RewardPointsLoader loader = rewardsService.getRewardPointsLoader();
+		List<CompletableFuture<Integer>> points = new ArrayList<>(nearest.size());
+		for (Attraction attraction : nearest) {
+			points.add(loader.getRewardPoints(attraction.attractionId, visitedLocation.userId));
+		}
+		return CompletableFuture.allOf(points.toArray(new CompletableFuture[0])).thenApply(done -> {
+			List<NearbyAttraction> attractions = new ArrayList<>(nearest.size());
+			for (int i = 0; i < nearest.size(); i++) {
+				Attraction attraction = nearest.get(i);
+				attractions.add(new NearbyAttraction(attraction.attractionName, attraction.latitude,
+						attraction.longitude, rewardsService.getDistance(attraction, location), points.get(i).join()));
+			}
+			List<NearbyAttraction> view = List.copyOf(attractions);
+			results.put(key, view);
+			return new NearbyAttractions(visitedLocation, view);
+		});
+	}
+
+	public ExpiringCache<NearbyKey, List<NearbyAttraction>> getCache() {
+		return results;
+	}
+
+	public RewardsService getRewardsService() {
+		return rewardsService;
+	}
+
+	private long cell(double degrees) {
+		return (long) Math.floor(degrees / cellDegrees);
+	}
+
+	/**
+	 * Utilisateur, cellule de la grille où il se trouve, rayon préféré et version du catalogue
+	 * des attractions.
+	 */
+	public static final class NearbyKey {
+		private final UUID userId;
+		private final long latitudeCell;
+		private final long longitudeCell;
+		private final int radius;
+		private final long catalogVersion;
+
+		public NearbyKey(UUID userId, long latitudeCell, long longitudeCell, int radius, long catalogVersion) {
+			this.userId = userId;
+			this.latitudeCell = latitudeCell;
+			this.longitudeCell = longitudeCell;
+			this.radius = radius;
+			this.catalogVersion = catalogVersion;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof NearbyKey other)) {
+				return false;
+			}
+			return latitudeCell == other.latitudeCell && longitudeCell == other.longitudeCell
+					&& radius == other.radius && catalogVersion == other.catalogVersion && userId.equals(other.userId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, latitudeCell, longitudeCell, radius, catalogVersion);
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package com.openclassrooms.tourguide.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+
+/**
+ * Récupère les points de récompense auprès du {@link RewardPointsClient}.
+ *
+ * Les demandes identiques concurrentes sont fusionnées en un seul appel, et les résultats sont
+ * conservés dans un cache borné en taille et en durée de vie, indexé par une clé compacte
+ * (attraction, utilisateur).
+ *
+ * Si l'appel échoue (panne, délai dépassé, disjoncteur ouvert), les points déjà obtenus pour la
+ * même paire sont servis, même au-delà de leur durée de vie en cache.
+ *
+ * Quand le client répond à un lot en un seul aller-retour ({@link RewardPointsClient#supportsBatches()}),
+ * les demandes sont regroupées : un lot part dès qu'il atteint {@code batchSize} demandes, ou à
+ * la fin d'une courte fenêtre {@code batchWindow}, et n'occupe qu'une place dans la limite de
+ * concurrence {@link ExternalDependency#REWARDS}. {@link RewardCentral} n'expose qu'un appel
+ * unitaire : retenir ses demandes ne ferait qu'ajouter de l'attente avant les mêmes appels, elles
+ * partent donc aussitôt, une par appel.
+ */
+public class RewardPointsLoader {
+	public static final int DEFAULT_CACHE_SIZE = 500_000;
+	public static final Duration DEFAULT_CACHE_TTL = Duration.ofHours(1);
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(5);
+
+	private final RewardPointsClient rewardPointsClient;
+	private final TourGuideExecutor executor;
+	private final ExpiringCache<RewardKey, Integer> points;
+	private final ConcurrentMap<RewardKey, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+	private final int batchSize;
+	private final long batchWindowMillis;
+	private final Object batchLock = new Object();
+	private List<RewardKey> batch = new ArrayList<>();
+	private boolean flushScheduled = false;
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder fallbacks = new LongAdder();
+
+	public RewardPointsLoader(RewardCentral rewardCentral, TourGuideExecutor executor) {
+		this(RewardPointsClient.of(rewardCentral), executor);
+	}
+
+	public RewardPointsLoader(RewardPointsClient rewardPointsClient, TourGuideExecutor executor) {
+		this(rewardPointsClient, executor, new ExpiringCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL));
+	}
+
+	public RewardPointsLoader(RewardPointsClient rewardPointsClient, TourGuideExecutor executor,
+			ExpiringCache<RewardKey, Integer> points) {
+		this(rewardPointsClient, executor, points, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_WINDOW);
+	}
+
+	/**
+	 * @param points      cache des points déjà récupérés
+	 * @param batchSize   nombre de demandes déclenchant l'envoi immédiat d'un lot
+	 * @param batchWindow délai maximal d'attente d'un lot incomplet, {@link Duration#ZERO}
+	 *                    pour envoyer chaque demande sans attendre ; sans effet si le client
+	 *                    n'accepte pas les lots
+	 */
+	public RewardPointsLoader(RewardPointsClient rewardPointsClient, TourGuideExecutor executor,
+			ExpiringCache<RewardKey, Integer> points, int batchSize, Duration batchWindow) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		this.rewardPointsClient = rewardPointsClient;
+		this.executor = executor;
+		this.points = points;
+		this.batchSize = batchSize;
+		this.batchWindowMillis = rewardPointsClient.supportsBatches() ? batchWindow.toMillis() : 0;
+	}
+
+	/**
+	 * Retourne les points de récompense de l'utilisateur pour l'attraction, depuis le cache,
+	 * depuis un appel déjà en cours pour la même paire, ou par un nouvel appel, éventuellement
+	 * groupé avec d'autres demandes.
+	 *
+	 * @return un {@link CompletableFuture} fournissant le nombre de points
+	 */
+	public CompletableFuture<Integer> getRewardPoints(UUID attractionId, UUID userId) {
+		RewardKey key = new RewardKey(attractionId, userId);
+		Integer cached = points.get(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+
+		CompletableFuture<Integer> created = new CompletableFuture<>();
+		CompletableFuture<Integer> existing = inFlight.putIfAbsent(key, created);
+		if (existing != null) {
+			coalesced.increment();
+			return existing;
+		}
+		enqueue(key);
+		return created;
+	}
+
+	public ExpiringCache<RewardKey, Integer> getCache() {
+		return points;
+	}
+
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * @return le nombre de lots envoyés au client
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	/**
+	 * @return le nombre d'échecs couverts par des points expirés du cache
+	 */
+	public long getFallbackCount() {
+		return fallbacks.sum();
+	}
+
+	private void enqueue(RewardKey key) {
+		if (batchWindowMillis <= 0) {
+			dispatch(key);
+			return;
+		}
+		List<RewardKey> ready = null;
+		synchronized (batchLock) {
+			batch.add(key);
+			if (batch.size() >= batchSize) {
+				ready = batch;
+				batch = new ArrayList<>(batchSize);
+			} else if (!flushScheduled) {
+				flushScheduled = true;
+				CompletableFuture.delayedExecutor(batchWindowMillis, TimeUnit.MILLISECONDS).execute(this::flush);
+			}
+		}
+		if (ready != null) {
+			dispatch(ready);
+		}
+	}
+
+	private void flush() {
+		List<RewardKey> ready;
+		synchronized (batchLock) {
+			flushScheduled = false;
+			ready = batch;
+			batch = new ArrayList<>(batchSize);
+		}
+		if (!ready.isEmpty()) {
+			dispatch(ready);
+		}
+	}
+
+	private void dispatch(RewardKey key) {
+		executor.call(ExternalDependency.REWARDS, () ->
+						rewardPointsClient.getAttractionRewardPoints(key.attractionId(), key.userId()))
+				.whenComplete((rewardPoints, e) -> complete(key, rewardPoints, e));
+	}
+
+	private void dispatch(List<RewardKey> keys) {
+		batches.increment();
+		List<UUID> attractionIds = new ArrayList<>(keys.size());
+		List<UUID> userIds = new ArrayList<>(keys.size());
+		for (RewardKey key : keys) {
+			attractionIds.add(key.attractionId());
+			userIds.add(key.userId());
+		}
+		executor.call(ExternalDependency.REWARDS, () -> rewardPointsClient.getAttractionRewardPoints(attractionIds, userIds))
+				.whenComplete((rewardPoints, e) -> {
+					for (int i = 0; i < keys.size(); i++) {
+						complete(keys.get(i), e == null ? rewardPoints[i] : null, e);
+					}
+				});
+	}
+
+	private void complete(RewardKey key, Integer rewardPoints, Throwable e) {
+		Integer stale = e != null ? points.getStale(key) : null;
+		if (stale != null) {
+			fallbacks.increment();
+			rewardPoints = stale;
+			e = null;
+		} else if (e == null) {
+			points.put(key, rewardPoints); // visible dans le cache avant de quitter les appels en cours
+		}
+		CompletableFuture<Integer> future = inFlight.remove(key);
+		if (future == null) {
+			return;
+		}
+		if (e == null) {
+			future.complete(rewardPoints);
+		} else {
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Clé (attraction, utilisateur) stockée sous forme de quatre {@code long}.
+	 */
+	public static final class RewardKey {
+		private final long attractionMost;
+		private final long attractionLeast;
+		private final long userMost;
+		private final long userLeast;
+
+		public RewardKey(UUID attractionId, UUID userId) {
+			this.attractionMost = attractionId.getMostSignificantBits();
+			this.attractionLeast = attractionId.getLeastSignificantBits();
+			this.userMost = userId.getMostSignificantBits();
+			this.userLeast = userId.getLeastSignificantBits();
+		}
+
+		public UUID attractionId() {
+			return new UUID(attractionMost, attractionLeast);
+		}
+
+		public UUID userId() {
+			return new UUID(userMost, userLeast);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof RewardKey other)) {
+				return false;
+			}
+			return attractionMost == other.attractionMost && attractionLeast == other.attractionLeast
+					&& userMost == other.userMost && userLeast == other.userLeast;
+		}
+
+		@Override
+		public int hashCode() {
+			long hash = attractionMost ^ attractionLeast;
+			hash = 31 * hash + (userMost ^ userLeast);
+			return Long.hashCode(hash);
+		}
+	}
+}
@@ -2,132 +2,402 @@ package com.openclassrooms.tourguide.service;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 import gpsUtil.GpsUtil;
-import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.LocationClient;
+import com.openclassrooms.tourguide.client.RewardPointsClient;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.AttractionEntered;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.geo.GeofenceEngine;
+import com.openclassrooms.tourguide.geo.GeoDistance;
+import com.openclassrooms.tourguide.model.LocationHistory;
 import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserPreferences;
 import com.openclassrooms.tourguide.model.UserReward;
+import com.openclassrooms.tourguide.repository.InMemoryUserStore;
+import com.openclassrooms.tourguide.repository.UserStore;
 import rewardCentral.RewardCentral;
 
-@Service
-public class RewardsService {
-    private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
-    private final int defaultProximityBuffer = 10;// proximity in miles
-	private final ExecutorService executor = Executors.newFixedThreadPool(200);
-	private final Semaphore semaphore = new Semaphore(75);
-	private int proximityBuffer = defaultProximityBuffer;
-    private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
-	private List<Attraction> cachedAttractions;
-	private final Map<String, CompletableFuture<Integer>> rewardsCache = new ConcurrentHashMap<>();
+/**
+ * Calcule les récompenses des utilisateurs.
+ *
+ * Chaque calcul renvoie un {@link CompletableFuture} ; pour un même utilisateur, au plus un
+ * calcul s'exécute à la fois et les demandes reçues pendant ce calcul sont fusionnées en un
+ * seul calcul suivant. Le service a un cycle de vie explicite : {@link #close()} refuse les
+ * nouveaux calculs et attend ceux en cours ; la couche d'exécution suit son propre cycle de vie.
+ *
+ * Le service porte l'état des calculs par utilisateur (passes fusionnées, occupation des zones) :
+ * l'application n'en déclare qu'une instance, dans {@code TourGuideModule}.
+ */
+public class RewardsService implements AutoCloseable {
+	private final Logger logger = LoggerFactory.getLogger(RewardsService.class);
+	public static final int DEFAULT_PROXIMITY_BUFFER = 10; // proximity in miles
+	private static final int ATTRACTION_PROXIMITY_RANGE = 200;
+	private static final double ATTRACTION_PROXIMITY_SQUARED_CHORD =
+			GeoDistance.squaredChordForMiles(ATTRACTION_PROXIMITY_RANGE);
+	private final TourGuideExecutor executor;
+	private final ConcurrentMap<UUID, UserPasses> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder mergedCalls = new LongAdder();
+	private volatile boolean closed = false;
+	private final AttractionCatalog attractionCatalog;
+	private final RewardPointsLoader rewardPointsLoader;
+	private final GeoDistance.Mode distanceMode;
+	private final UserStore userStore;
+	private final GeofenceEngine geofenceEngine = new GeofenceEngine();
 
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(gpsUtil, rewardCentral, TourGuideExecutor.shared());
 	}
-	
-	public void setProximityBuffer(int proximityBuffer) {
-		this.proximityBuffer = proximityBuffer;
+
+	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral, TourGuideExecutor executor) {
+		this(LocationClient.of(gpsUtil), RewardPointsClient.of(rewardCentral), executor);
 	}
-	
-	public void setDefaultProximityBuffer() {
-		proximityBuffer = defaultProximityBuffer;
+
+	public RewardsService(LocationClient locationClient, RewardPointsClient rewardPointsClient,
+			TourGuideExecutor executor) {
+		this(new AttractionCatalog(locationClient), executor, new RewardPointsLoader(rewardPointsClient, executor),
+				GeoDistance.Mode.SPHERICAL_LAW_OF_COSINES, new InMemoryUserStore());
+	}
+
+	public RewardsService(GpsUtil gpsUtil, TourGuideExecutor executor, RewardPointsLoader rewardPointsLoader,
+			GeoDistance.Mode distanceMode) {
+		this(new AttractionCatalog(gpsUtil), executor, rewardPointsLoader, distanceMode, new InMemoryUserStore());
+	}
+
+	/**
+	 * @param attractionCatalog catalogue partagé des attractions
+	 * @param distanceMode      formule utilisée par {@link #getDistance(Location, Location)}
+	 * @param userStore         persistance des récompenses ajoutées
+	 */
+	public RewardsService(AttractionCatalog attractionCatalog, TourGuideExecutor executor,
+			RewardPointsLoader rewardPointsLoader, GeoDistance.Mode distanceMode, UserStore userStore) {
+		this.attractionCatalog = attractionCatalog;
+		this.executor = executor;
+		this.rewardPointsLoader = rewardPointsLoader;
+		this.distanceMode = distanceMode;
+		this.userStore = userStore;
+	}
+
+	public TourGuideExecutor getExecutor() {
+		return executor;
+	}
+
+	public RewardPointsLoader getRewardPointsLoader() {
+		return rewardPointsLoader;
+	}
+
+	public UserStore getUserStore() {
+		return userStore;
+	}
+
+	public AttractionCatalog getAttractionCatalog() {
+		return attractionCatalog;
+	}
+
+	public GeofenceEngine getGeofenceEngine() {
+		return geofenceEngine;
+	}
+
+	/**
+	 * @return le nombre d'utilisateurs dont les récompenses sont en cours de calcul
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * @return le nombre de demandes rattachées à un calcul déjà prévu pour le même utilisateur
+	 */
+	public long getMergedCount() {
+		return mergedCalls.sum();
 	}
 
 	/**
 	 * Soumet une tâche asynchrone pour calculer les récompenses d'un utilisateur.
-	 * L'utilisation d'un sémaphore permet de limiter le nombre de calculs
-	 * exécutés en parallèle afin de ne pas surcharger le système
+	 * La tâche s'exécute sur la couche d'exécution partagée ; les appels à
+	 * {@link RewardCentral} y sont limités par dépendance, l'appelant n'est jamais bloqué.
+	 *
+	 * Si un calcul est déjà en cours pour cet utilisateur, la demande est rattachée au calcul
+	 * suivant, partagé par toutes les demandes arrivées entre-temps : il examinera les
+	 * localisations ajoutées depuis le début du calcul en cours.
+	 *
 	 * @param user calcule les récompenses de l'utilisateur
+	 * @return un {@link CompletableFuture} fournissant les récompenses de l'utilisateur une fois
+	 *         le calcul terminé
+	 */
+	public CompletableFuture<List<UserReward>> calculateRewards(User user) {
+		return calculateRewards(user, DEFAULT_PROXIMITY_BUFFER);
+	}
+
+	/**
+	 * Variante de {@link #calculateRewards(User)} avec un rayon de récompense propre à l'appel.
+	 * Le rayon préféré de l'utilisateur ({@link UserPreferences#getAttractionProximity()})
+	 * s'applique s'il est plus petit. Un calcul suivant partagé par plusieurs demandes utilise
+	 * le plus grand des rayons demandés. Le rayon ne s'applique qu'aux localisations pas encore
+	 * examinées.
+	 *
+	 * @param proximityBuffer rayon de récompense, en miles
 	 */
-	public void calculateRewards(User user) {
+	public CompletableFuture<List<UserReward>> calculateRewards(User user, int proximityBuffer) {
+		if (closed) {
+			return CompletableFuture.failedFuture(new IllegalStateException("RewardsService is closed"));
+		}
+		while (true) {
+			UserPasses passes = inFlight.computeIfAbsent(user.getUserId(), id -> new UserPasses());
+			CompletableFuture<List<UserReward>> pass;
+			synchronized (passes) {
+				if (passes.retired) {
+					continue; // entrée retirée entre-temps, une nouvelle sera créée
+				}
+				if (passes.running != null) {
+					if (passes.queued == null) {
+						passes.queued = new CompletableFuture<>();
+						passes.queuedRadius = proximityBuffer;
+					} else {
+						passes.queuedRadius = Math.max(passes.queuedRadius, proximityBuffer);
+						mergedCalls.increment();
+					}
+					return passes.queued;
+				}
+				pass = new CompletableFuture<>();
+				passes.running = pass;
+			}
+			run(user, passes, pass, proximityBuffer);
+			return pass;
+		}
+	}
+
+	/**
+	 * Calcule les récompenses d'un lot d'utilisateurs.
+	 *
+	 * @param users les utilisateurs du lot
+	 * @return un {@link CompletableFuture} terminé lorsque les récompenses de tout le lot sont
+	 *         calculées, en échec si l'un des calculs échoue
+	 */
+	public CompletableFuture<Void> calculateRewards(Collection<User> users) {
+		return CompletableFuture.allOf(users.stream()
+				.map(this::calculateRewards)
+				.toArray(CompletableFuture[]::new));
+	}
+
+	private void run(User user, UserPasses passes, CompletableFuture<List<UserReward>> pass, int proximityBuffer) {
+		CompletableFuture<Void> work;
 		try {
-			semaphore.acquire(); // bloque si trop de tâches en parallèle
-			executor.submit(() -> {
-				try { processRewards(user); }
-				finally { semaphore.release(); }
-			});
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
+			work = executor.supplyAsync(() -> processRewards(user, proximityBuffer)).thenCompose(rewards -> rewards);
+		} catch (RuntimeException e) { // couche d'exécution arrêtée
+			work = CompletableFuture.failedFuture(e);
 		}
+		work.whenComplete((result, e) -> {
+			CompletableFuture<List<UserReward>> next;
+			int nextRadius;
+			synchronized (passes) {
+				next = passes.queued;
+				nextRadius = passes.queuedRadius;
+				passes.queued = null;
+				passes.running = next;
+				if (next == null) {
+					passes.retired = true;
+					inFlight.remove(user.getUserId(), passes);
+				}
+			}
+			if (e != null) {
+				logger.error("Reward calculation failed for user {}", user.getUserName(), e);
+				pass.completeExceptionally(e);
+			} else {
+				pass.complete(user.getUserRewards());
+			}
+			if (next != null) {
+				run(user, passes, next, nextRadius);
+			}
+		});
 	}
 
 	/**
 	 * Calcule de manière asynchrone les récompenses d'un utilisateur
 	 * en fonction de ses visites et des attractions disponibles
 	 *
-	 * Pour chaque localisation visitée par l'utilisateur on recherche
-	 * les attractions proches. Lorsqu'une attraction correspond
-	 * un calcul de points est lancé de façon asynchrone puis
-	 * ajouté à la liste des récompenses de l'utilisateur
+	 * Seules les localisations ajoutées depuis le passage précédent sont examinées
+	 * (curseur porté par {@link LocationHistory#forEachUnprocessed}) : chaque localisation
+	 * n'est présentée qu'une fois au {@link GeofenceEngine}, qui émet un
+	 * {@link AttractionEntered} pour chaque zone d'attraction dans laquelle l'utilisateur vient
+	 * d'entrer. Les localisations suivies arrivent ici dès leur obtention, la récompense est
+	 * donc attribuée sans attendre un passage ultérieur.
+	 *
+	 * Pour chaque entrée dans une attraction non encore récompensée, un calcul de points est
+	 * lancé de façon asynchrone puis la récompense est ajoutée et persistée. Si l'un de ces
+	 * calculs échoue, l'état du moteur est réinitialisé pour l'utilisateur : sa prochaine
+	 * localisation dans la zone émettra de nouveau l'entrée.
+	 *
+	 * Aucun thread n'attend les appels à {@link RewardCentral} : le résultat
+	 * se termine lorsque l'ensemble des calculs de points sont terminés
 	 *
-	 * L'exécution attend que l'ensemble des calculs de points
-	 * soient terminés avant de se terminer
+	 * Le rayon des zones est le plus petit du rayon demandé et du rayon préféré de
+	 * l'utilisateur. Il ne change que la requête à l'index : honorer le rayon de chaque
+	 * utilisateur ne coûte aucun parcours supplémentaire.
 	 *
-	 * @param user l'utilisateur dont on veut traiter les récompenses
+	 * @param user            l'utilisateur dont on veut traiter les récompenses
+	 * @param proximityBuffer rayon de récompense demandé, en miles
+	 * @return un {@link CompletableFuture} terminé une fois les récompenses ajoutées
 	 */
-	private void processRewards(User user) {
-		List<VisitedLocation> userLocations = new CopyOnWriteArrayList<>(user.getVisitedLocations());
-		List<Attraction> attractions = getAttractions();
+	private CompletableFuture<Void> processRewards(User user, int proximityBuffer) {
+		AttractionCatalog.Snapshot catalog = attractionCatalog.snapshot();
+		int radius = Math.min(proximityBuffer, user.getUserPreferences().getAttractionProximity());
+		LocationHistory history = user.getLocationHistory();
+		boolean allRewarded = user.getUserRewards().size() >= catalog.size();
+		List<AttractionEntered> entered = new ArrayList<>();
+		history.forEachUnprocessed((latitude, longitude, timeVisited) -> {
+			if (allRewarded) {
+				return; // toutes les attractions sont déjà récompensées, on avance seulement le curseur
+			}
+			geofenceEngine.check(catalog, user.getUserId(), latitude, longitude, timeVisited, radius,
+					event -> {
+						if (!user.hasRewardFor(event.getAttraction())) {
+							entered.add(event);
+						}
+					});
+		});
+		if (entered.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
 
-		List<CompletableFuture<Void>> futures = userLocations.stream()
-				.flatMap(visitedLocation ->
-						attractions.stream()
-								.filter(attraction -> checkAttractionName(user, attraction) && nearAttraction(visitedLocation, attraction))
-								.map(attraction -> getRewardPointsAsync(attraction, user)
-										.thenAccept(rewardPoints ->
-												user.addUserReward(new UserReward(visitedLocation, attraction, rewardPoints)))
-								)
-				).toList();
+		List<CompletableFuture<Void>> futures = entered.stream()
+				.map(event -> getRewardPointsAsync(event.getAttraction(), user)
+						.thenAccept(rewardPoints -> {
+							VisitedLocation visitedLocation = history.toVisitedLocation(event.getLatitude(),
+									event.getLongitude(), event.getTimeVisited());
+							UserReward userReward = new UserReward(visitedLocation, event.getAttraction(), rewardPoints);
+							if (user.addUserReward(userReward)) {
+								userStore.rewardAdded(user, userReward);
+							}
+						}))
+				.toList();
 
-		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+				.whenComplete((done, e) -> {
+					if (e != null) {
+						geofenceEngine.reset(user.getUserId());
+					}
+				});
 	}
 
+	/**
+	 * Attend que tous les calculs de récompenses en cours ou prévus soient terminés.
+	 * La couche d'exécution reste active et peut être réutilisée ensuite.
+	 *
+	 * @param timeout durée maximale d'attente
+	 * @param unit    unité de {@code timeout}
+	 * @return {@code true} si tous les calculs sont terminés dans le délai
+	 * @throws InterruptedException si l'attente est interrompue
+	 */
 	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-		return executor.awaitTermination(timeout, unit);
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!inFlight.isEmpty()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			try {
+				CompletableFuture.allOf(inFlight.values().stream()
+						.map(UserPasses::last)
+						.filter(Objects::nonNull)
+						.toArray(CompletableFuture[]::new)).get(remaining, TimeUnit.NANOSECONDS);
+			} catch (ExecutionException e) {
+				// l'échec est déjà journalisé par calculateRewards
+			} catch (TimeoutException e) {
+				return false;
+			}
+		}
+		return true;
 	}
 	public void awaitCompletion() throws InterruptedException {
-		executor.shutdown();
 		awaitTermination(1, TimeUnit.MINUTES);
 	}
 
-	private List<Attraction> getAttractions(){
-		if (cachedAttractions == null) cachedAttractions = gpsUtil.getAttractions();
-		return cachedAttractions;
+	/**
+	 * Refuse les nouveaux calculs puis attend la fin de ceux en cours, au plus une minute.
+	 * La couche d'exécution n'est pas arrêtée : elle peut servir à d'autres services.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			if (!awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.warn("{} reward calculations still running at shutdown", inFlight.size());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 
-	private boolean checkAttractionName(User user, Attraction attraction){
-		return user.getUserRewards().parallelStream()
-				.noneMatch(r -> r.attraction.attractionName.equals(attraction.attractionName));
+	public boolean isClosed() {
+		return closed;
 	}
-	
-	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-        int attractionProximityRange = 200;
-        return !(getDistance(attraction, location) > attractionProximityRange);
+
+	/**
+	 * Retourne l'index spatial de la version courante du catalogue des attractions.
+	 *
+	 * @return l'index partagé des attractions
+	 */
+	public AttractionIndex getAttractionIndex() {
+		return attractionCatalog.snapshot().getIndex();
 	}
-	
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return !(getDistance(attraction, visitedLocation.location) > proximityBuffer);
+
+	/**
+	 * Compare des cordes plutôt que des distances, contre un seuil converti une fois pour toutes.
+	 * Un écart de latitude supérieur au rayon suffit à écarter la position ; sinon seul le
+	 * vecteur de la position est calculé, celui d'une attraction du catalogue venant de l'index.
+	 */
+	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
+		if (GeoDistance.isBeyondLatitudeBand(attraction.latitude, location.latitude, ATTRACTION_PROXIMITY_RANGE)) {
+			return false;
+		}
+		double[] point = GeoDistance.unitVector(location.latitude, location.longitude);
+		AttractionCatalog.Snapshot catalog = attractionCatalog.snapshot();
+		int ordinal = catalogOrdinal(catalog, attraction);
+		if (ordinal >= 0) {
+			return catalog.getIndex().isWithin(ordinal, point, ATTRACTION_PROXIMITY_SQUARED_CHORD);
+		}
+		return GeoDistance.isWithinSquaredChord(GeoDistance.unitVector(attraction.latitude, attraction.longitude),
+				point, ATTRACTION_PROXIMITY_SQUARED_CHORD);
 	}
 
+	/**
+	 * Les identifiants changent à chaque lecture du catalogue : à défaut, l'attraction est
+	 * retrouvée par son nom, à condition d'être au même endroit.
+	 *
+	 * @return le rang de l'attraction dans la version du catalogue, ou -1
+	 */
+	private static int catalogOrdinal(AttractionCatalog.Snapshot catalog, Attraction attraction) {
+		int ordinal = catalog.ordinal(attraction);
+		if (ordinal >= 0) {
+			return ordinal;
+		}
+		Attraction known = catalog.getByName(attraction.attractionName);
+		if (known == null || known.latitude != attraction.latitude || known.longitude != attraction.longitude) {
+			return -1;
+		}
+		return catalog.ordinal(known);
+	}
+	
 	/**
 	 * Récupère de manière asynchrone les points de récompense pour une attraction donnée et un utilisateur.
-	 * Les résultats sont mis en cache afin d'éviter des appels redondants
-	 * Si la combinaison {@code (attraction, user)} existe déjà dans le cache, le calcul n'est pas relancé.
+	 * Les appels sont dédoublonnés, mis en cache et, si le client le permet, regroupés par {@link RewardPointsLoader}.
 	 *
 	 * @param attraction l'attraction pour laquelle calculer les points de récompense
 	 * @param user       l'utilisateur concerné par le calcul des points
 	 * @return un {@link CompletableFuture} fournissant le nombre de points de récompense associés
 	 */
 	private CompletableFuture<Integer> getRewardPointsAsync(Attraction attraction, User user) {
-		String key = attraction.attractionId + "-" + user.getUserId();
-		return rewardsCache.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() ->
-				rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId()), executor)
-		);
+		return rewardPointsLoader.getRewardPoints(attraction.attractionId, user.getUserId());
 	}
 
 	/**
@@ -138,13 +408,28 @@ public class RewardsService {
 	 * @return la distance entre les deux points en miles
 	 */
 	public double getDistance(Location loc1, Location loc2) {
-		double lat1 = Math.toRadians(loc1.latitude);
-		double lon1 = Math.toRadians(loc1.longitude);
-		double lat2 = Math.toRadians(loc2.latitude);
-		double lon2 = Math.toRadians(loc2.longitude);
-		double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
-				+ Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
-		double nauticalMiles = 60 * Math.toDegrees(angle);
-        return STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
+		return getDistance(loc1.latitude, loc1.longitude, loc2.latitude, loc2.longitude);
+	}
+
+	/**
+	 * Variante de {@link #getDistance(Location, Location)} sur des coordonnées en degrés.
+	 */
+	public double getDistance(double lat1, double lon1, double lat2, double lon2) {
+		return distanceMode.miles(lat1, lon1, lat2, lon2);
+	}
+
+	/**
+	 * Calculs de récompenses d'un utilisateur : celui en cours et, au plus, un calcul suivant
+	 * partagé par toutes les demandes arrivées pendant le calcul en cours.
+	 */
+	private static final class UserPasses {
+		private CompletableFuture<List<UserReward>> running;
+		private CompletableFuture<List<UserReward>> queued;
+		private int queuedRadius;
+		private boolean retired = false;
+
+		private synchronized CompletableFuture<List<UserReward>> last() {
+			return queued != null ? queued : running;
+		}
 	}
 }
@@ -1,24 +1,38 @@
 package com.openclassrooms.tourguide.service;
 
+import com.openclassrooms.tourguide.cache.LocationCache;
+import com.openclassrooms.tourguide.client.LocationClient;
+import com.openclassrooms.tourguide.client.TripPricingClient;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.Futures;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.helper.InternalUserGenerator;
 import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.NearbyAttractions;
 import com.openclassrooms.tourguide.model.User;
 import com.openclassrooms.tourguide.model.UserReward;
+import com.openclassrooms.tourguide.repository.LocationSnapshot;
+import com.openclassrooms.tourguide.repository.UserRegistry;
+import com.openclassrooms.tourguide.repository.UserStore;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
-import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 
 import tripPricer.Provider;
@@ -27,66 +41,191 @@ import tripPricer.TripPricer;
 @Service
 public class TourGuideService {
 	private final Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final LocationClient locationClient;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	private final TripDealPricer tripDealPricer;
 	public final Tracker tracker;
 	private final static int LIMIT_ATTRACTIONS = 5;
-	private final ExecutorService executor = Executors.newFixedThreadPool(200);
-	private final ConcurrentHashMap<UUID, VisitedLocation> locationCache = new ConcurrentHashMap<>();
+	private final TourGuideExecutor executor;
+	private final HistoryPolicy historyPolicy;
+	private final UserStore userStore;
+	private final LocationCache locationCache;
+	private final NearbyAttractionFinder nearbyAttractionFinder;
+	private final InternalUserGenerator internalUserGenerator;
 
-	private static final String tripPricerApiKey = "test-server-api-key";
-	private final Map<String, User> internalUserMap = new HashMap<>();
+	private final UserRegistry userRegistry = new UserRegistry();
+	private final LocationSnapshot locationSnapshot = new LocationSnapshot();
+	private final LongAdder locationFallbacks = new LongAdder();
 
 	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
+		this(gpsUtil, rewardsService, rewardsService.getExecutor());
+	}
+
+	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService, TourGuideExecutor executor) {
+		this(LocationClient.of(gpsUtil), TripPricingClient.of(new TripPricer()), rewardsService, executor);
+	}
+
+	/**
+	 * Hors d'un contexte Spring, le suivi des utilisateurs démarre dès la construction. Les
+	 * clients peuvent être ceux des bibliothèques fournies ou des services simulés.
+	 */
+	public TourGuideService(LocationClient locationClient, TripPricingClient tripPricingClient,
+			RewardsService rewardsService, TourGuideExecutor executor) {
+		this(locationClient, rewardsService, executor, HistoryPolicy.defaults(),
+				new TripDealPricer(tripPricingClient, executor), rewardsService.getUserStore(), new LocationCache(),
+				new NearbyAttractionFinder(rewardsService), new InternalUserGenerator());
+		tracker.startTracking();
+	}
+
+	/**
+	 * Les utilisateurs persistés par {@code userStore} sont rechargés au démarrage ; les
+	 * utilisateurs internes de test ne sont générés que si rien n'a été persisté. Le suivi
+	 * ne démarre qu'à l'appel de {@link #startTracking()}, une fois l'application prête.
+	 */
+	@Autowired
+	public TourGuideService(LocationClient locationClient, RewardsService rewardsService, TourGuideExecutor executor,
+			HistoryPolicy historyPolicy, TripDealPricer tripDealPricer, UserStore userStore, LocationCache locationCache,
+			NearbyAttractionFinder nearbyAttractionFinder, InternalUserGenerator internalUserGenerator) {
+		this.locationClient = locationClient;
 		this.rewardsService = rewardsService;
+		this.executor = executor;
+		this.historyPolicy = historyPolicy;
+		this.tripDealPricer = tripDealPricer;
+		this.userStore = userStore;
+		this.locationCache = locationCache;
+		this.nearbyAttractionFinder = nearbyAttractionFinder;
+		this.internalUserGenerator = internalUserGenerator;
 		Locale.setDefault(Locale.US);
 
-        logger.info("TestMode enabled");
-        logger.debug("Initializing users");
-        initializeInternalUsers();
-        logger.debug("Finished initializing users");
+		List<User> recovered = userStore.recover(historyPolicy,
+				rewardsService.getAttractionCatalog().snapshot().getAttractionsByName());
+		if (recovered.isEmpty()) {
+			logger.info("TestMode enabled");
+			logger.debug("Initializing users");
+			initializeInternalUsers();
+			logger.debug("Finished initializing users");
+		} else {
+			recovered.forEach(this::registerUser);
+			logger.debug("Restored {} users", userRegistry.size());
+		}
+		userStore.attach(userRegistry.users());
         tracker = new Tracker(this);
 		addShutDownHook();
 	}
 
+	/**
+	 * Démarre le suivi des utilisateurs lorsque le contexte applicatif est prêt, plutôt que
+	 * pendant sa construction.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void startTracking() {
+		tracker.startTracking();
+	}
+
 	public List<UserReward> getUserRewards(User user) {
 		return user.getUserRewards();
 	}
 
 	public VisitedLocation getUserLocation(User user) {
-		return (!user.getVisitedLocations().isEmpty()) ? user.getLastVisitedLocation()
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		return (lastVisitedLocation != null) ? lastVisitedLocation
 				: trackUserLocationWithCache(user);
 	}
 
+	/**
+	 * Variante non bloquante de {@link #getUserLocation(User)} : la dernière localisation
+	 * connue est renvoyée immédiatement, sinon l'appel GPS passe par la couche d'exécution.
+	 *
+	 * @param user l'utilisateur à localiser
+	 * @return un {@link CompletableFuture} fournissant la localisation
+	 */
+	public CompletableFuture<VisitedLocation> getUserLocationAsync(User user) {
+		VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+		return (lastVisitedLocation != null) ? CompletableFuture.completedFuture(lastVisitedLocation)
+				: trackUserLocationAsync(user);
+	}
+
 	public User getUser(String userName) {
-		return internalUserMap.get(userName);
+		return userRegistry.getByName(userName);
+	}
+
+	public User getUser(UUID userId) {
+		return userRegistry.getById(userId);
 	}
 
+	/**
+	 * Retourne une copie de la liste des utilisateurs. Les traitements de masse
+	 * doivent plutôt parcourir {@link #getUserRegistry()}, qui évite cette copie.
+	 *
+	 * @return la liste de tous les utilisateurs
+	 */
 	public List<User> getAllUsers() {
-		return new ArrayList<>(internalUserMap.values());
+		return new ArrayList<>(userRegistry.users());
+	}
+
+	public UserRegistry getUserRegistry() {
+		return userRegistry;
+	}
+
+	public LocationSnapshot getLocationSnapshot() {
+		return locationSnapshot;
+	}
+
+	public UserStore getUserStore() {
+		return userStore;
+	}
+
+	public RewardsService getRewardsService() {
+		return rewardsService;
+	}
+
+	public LocationCache getLocationCache() {
+		return locationCache;
+	}
+
+	public NearbyAttractionFinder getNearbyAttractionFinder() {
+		return nearbyAttractionFinder;
 	}
 
 	public void addUser(User user) {
-		if (!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
+		if (registerUser(user)) {
+			userStore.userAdded(user);
 		}
 	}
 
-	public List<Provider> getTripDeals(User user) {
-		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(UserReward::getRewardPoints).sum();
-		List<Provider> providers = getTripPricer(user, cumulatativeRewardPoints);
-		providers.addAll(getTripPricer(user, cumulatativeRewardPoints));
+	/**
+	 * Un utilisateur dont l'historique n'est pas encore généré n'entre dans l'instantané des
+	 * positions qu'à son premier suivi.
+	 */
+	private boolean registerUser(User user) {
+		if (!userRegistry.add(user)) {
+			return false;
+		}
+		VisitedLocation lastVisitedLocation = user.hasPendingHistory() ? null : user.getLastVisitedLocation();
+		if (lastVisitedLocation != null) {
+			locationSnapshot.update(lastVisitedLocation);
+		}
+		return true;
+	}
 
-		user.setTripDeals(providers);
-		return providers;
+	public List<Provider> getTripDeals(User user) {
+		return getTripDealsAsync(user).join();
 	}
 
-	private List<Provider> getTripPricer(User user, int cumulatativeRewardPoints){
-		return tripPricer.getPrice(tripPricerApiKey, user.getUserId(),
-				user.getUserPreferences().getNumberOfAdults(), user.getUserPreferences().getNumberOfChildren(),
-				user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
+	/**
+	 * Variante non bloquante de {@link #getTripDeals(User)} : les demandes de prix sont envoyées
+	 * en parallèle au service de prix par {@link TripDealPricer}, dans la limite de concurrence
+	 * du service de prix, et le résultat est mis en cache.
+	 *
+	 * @param user l'utilisateur pour lequel chercher des offres
+	 * @return un {@link CompletableFuture} fournissant les offres, une par fournisseur
+	 */
+	public CompletableFuture<List<Provider>> getTripDealsAsync(User user) {
+		CompletableFuture<List<Provider>> deals = tripDealPricer.getTripDeals(user);
+		return Futures.cancelling(deals.thenApply(providers -> {
+			user.setTripDeals(providers);
+			return providers;
+		}), deals);
 	}
 
 	/**
@@ -97,91 +236,151 @@ public class TourGuideService {
 	 * @throws ExecutionException    si une tâche échoue
 	 * @throws InterruptedException  si l'attente est interrompue
 	 */
-	public void trackAllUsers(List<User> allUsers) throws ExecutionException, InterruptedException {
-		List<Future<?>> futures = new ArrayList<>();
-		for (User user : allUsers) {// lance les taches en parallèle
-			futures.add(executor.submit(() -> trackUserLocationWithCache(user)));
-		}
+	public void trackAllUsers(Collection<User> allUsers) throws ExecutionException, InterruptedException {
+		CompletableFuture<?>[] futures = allUsers.stream()// lance les taches en parallèle
+				.map(this::trackUserLocationAsync)
+				.toArray(CompletableFuture[]::new);
 
-		for (Future<?> f : futures) {//attend la fin des tachzes
-			f.get();
-		}
+		CompletableFuture.allOf(futures).get();//attend la fin des taches
 	}
 
 	public VisitedLocation trackUserLocationWithCache(User user) {
-		UUID userId = user.getUserId();
+		return trackUserLocationAsync(user).join();
+	}
 
-		VisitedLocation visitedLocation = locationCache.get(userId);// Vérifie si le cache contient une location récente
-		if (visitedLocation == null || isCacheExpired(visitedLocation)) {
+	/**
+	 * Récupère la localisation courante de l'utilisateur sans bloquer l'appelant :
+	 * l'appel au {@link LocationClient} passe par la couche d'exécution partagée, qui en limite
+	 * la concurrence. La localisation est ensuite ajoutée à l'historique et persistée, puis le
+	 * calcul des récompenses est déclenché.
+	 *
+	 * @param user l'utilisateur à localiser
+	 * @return un {@link CompletableFuture} fournissant la localisation
+	 */
+	public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user) {
+		CompletableFuture<VisitedLocation> located = locateUser(user);
+		return Futures.cancelling(located.thenApply(visitedLocation -> {
+			rewardsService.calculateRewards(user); // Calculer les récompenses
+			return visitedLocation;
+		}), located);
+	}
 
-			visitedLocation = gpsUtil.getUserLocation(userId);// Pas dans le cache ou expiré → appel GPS
-			locationCache.put(userId, visitedLocation);
-		}
+	/**
+	 * Variante de {@link #trackUserLocationAsync(User)} qui ne se termine qu'une fois les
+	 * récompenses de l'utilisateur calculées : le {@link Tracker} sait ainsi quand le travail
+	 * d'un cycle est réellement fini.
+	 *
+	 * @param user l'utilisateur à localiser
+	 * @return un {@link CompletableFuture} fournissant la localisation, une fois les récompenses calculées
+	 */
+	public CompletableFuture<VisitedLocation> trackUserWithRewardsAsync(User user) {
+		CompletableFuture<VisitedLocation> located = locateUser(user);
+		return Futures.cancelling(located.thenCompose(visitedLocation -> rewardsService.calculateRewards(user)
+				.thenApply(rewards -> visitedLocation)), located);
+	}
 
-		user.addToVisitedLocations(visitedLocation);// Ajout historique utilisateur
-		rewardsService.calculateRewards(user); // Calculer les récompenses
-		return visitedLocation;
+	/**
+	 * Seules les localisations obtenues du GPS sont ajoutées à l'historique : une localisation
+	 * servie par le cache y figure déjà.
+	 *
+	 * Si le GPS échoue (panne, délai dépassé, disjoncteur ouvert), la dernière localisation
+	 * connue de l'utilisateur est renvoyée à la place, sans être ajoutée de nouveau à l'historique.
+	 * Sans localisation connue, l'échec est propagé.
+	 *
+	 * Annuler le résultat annule l'appel au GPS, sauf si d'autres demandes l'attendent encore
+	 * (voir {@link LocationCache}).
+	 */
+	private CompletableFuture<VisitedLocation> locateUser(User user) {
+		CompletableFuture<VisitedLocation> cached = locationCache.get(user.getUserId(), userId -> {
+			CompletableFuture<VisitedLocation> call = executor.call(ExternalDependency.GPS,
+					() -> locationClient.getUserLocation(userId));
+			return Futures.cancelling(call.thenApply(visitedLocation -> {
+				user.addToVisitedLocations(visitedLocation);// Ajout historique utilisateur
+				userStore.locationAdded(user, visitedLocation);
+				locationSnapshot.update(visitedLocation);
+				return visitedLocation;
+			}), call);
+		});
+		return Futures.cancelling(cached.handle((visitedLocation, e) -> {
+					if (e == null) {
+						return visitedLocation;
+					}
+					VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+					if (lastVisitedLocation == null) {
+						throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+					}
+					locationFallbacks.increment();
+					logger.debug("GPS unavailable for user {}, using last known location", user.getUserName());
+					return lastVisitedLocation;
+				}), cached);
 	}
 
-	private boolean isCacheExpired(VisitedLocation visitedLocation) {
-		long now = System.currentTimeMillis();
-		long elapsed = now - visitedLocation.timeVisited.getTime();
-		return elapsed > TimeUnit.MINUTES.toMillis(1); // Expiration simple : ici 1 minute
+	/**
+	 * @return le nombre de localisations remplacées par la dernière position connue, faute de
+	 *         réponse du GPS
+	 */
+	public long getLocationFallbackCount() {
+		return locationFallbacks.sum();
 	}
 
+	/**
+	 * Retourne les attractions les plus proches de la localisation, via l'index spatial
+	 * partagé : seules les cellules voisines sont examinées et seules les
+	 * {@code LIMIT_ATTRACTIONS} meilleures sont conservées, sans trier tout le catalogue.
+	 *
+	 * @param visitedLocation la localisation de l'utilisateur
+	 * @return les attractions les plus proches, de la plus proche à la plus éloignée
+	 */
 	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
-        List<Attraction> sortAttractionsByDistance = sortAttractionsByDistance(visitedLocation).stream()
-				.limit(LIMIT_ATTRACTIONS).toList();
-        return new ArrayList<>(sortAttractionsByDistance);
+		return rewardsService.getAttractionIndex().nearest(visitedLocation.location, LIMIT_ATTRACTIONS);
 	}
 
+	/**
+	 * Retourne la position de l'utilisateur et les attractions les plus proches dans son rayon
+	 * préféré, avec leur distance et leurs points de récompense. Voir {@link NearbyAttractionFinder}.
+	 * Annuler le résultat annule la localisation en cours ; les recherches de points, partagées
+	 * entre demandes et mises en cache, vont à leur terme.
+	 *
+	 * @param user l'utilisateur
+	 * @return un {@link CompletableFuture} fournissant les attractions, de la plus proche à la plus éloignée
+	 */
+	public CompletableFuture<NearbyAttractions> getNearbyAttractionsAsync(User user) {
+		CompletableFuture<VisitedLocation> location = getUserLocationAsync(user);
+		return Futures.cancelling(location
+				.thenCompose(visitedLocation -> nearbyAttractionFinder.getNearbyAttractions(user, visitedLocation)),
+				location);
+	}
+
+	/**
+	 * Trie tout le catalogue par distance, calculée avec la géométrie précalculée du catalogue.
+	 */
 	public List<Attraction> sortAttractionsByDistance(VisitedLocation visitedLocation) {
-		return gpsUtil.getAttractions().stream()
-				.sorted(Comparator.comparingDouble(attraction ->
-						rewardsService.getDistance(attraction, visitedLocation.location)))
+		AttractionCatalog.Snapshot catalog = rewardsService.getAttractionCatalog().snapshot();
+		double[] miles = catalog.milesFrom(visitedLocation.location.latitude, visitedLocation.location.longitude);
+		return IntStream.range(0, catalog.size()).boxed()
+				.sorted(Comparator.comparingDouble(ordinal -> miles[ordinal]))
+				.map(catalog::get)
 				.collect(Collectors.toList());
 	}
 
 	private void addShutDownHook() {
 		Runtime.getRuntime().addShutdownHook(new Thread() {
-			public void run() { tracker.stopTracking(); }
+			public void run() {
+				tracker.stopTracking();
+				userStore.close();
+			}
 		});
 	}
 
+	/**
+	 * Les utilisateurs internes sont seulement inscrits au registre, sans être journalisés : les
+	 * écrire un à un forcerait la génération de leur historique, que {@link InternalUserGenerator}
+	 * diffère jusqu'au premier accès.
+	 */
 	private void initializeInternalUsers() {
-		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
-			String userName = "internalUser" + i;
-			String phone = "000";
-			String email = userName + "@tourGuide.com";
-			User user = new User(UUID.randomUUID(), userName, phone, email);
-			generateUserLocationHistory(user);
-
-			internalUserMap.put(userName, user);
-		});
+		internalUserGenerator.generate(InternalTestHelper.getInternalUserNumber(), historyPolicy)
+				.parallelStream()
+				.forEach(this::registerUser);
         logger.debug("Created {} internal test users.", InternalTestHelper.getInternalUserNumber());
 	}
-
-	private void generateUserLocationHistory(User user) {
-		IntStream.range(0, 3).forEach(i -> {
-			user.addToVisitedLocations(new VisitedLocation(user.getUserId(),
-					new Location(generateRandomLatitude(), generateRandomLongitude()), getRandomTime()));
-		});
-	}
-
-	private double generateRandomLongitude() {
-		double leftLimit = -180;
-		double rightLimit = 180;
-		return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
-	}
-
-	private double generateRandomLatitude() {
-		double leftLimit = -85.05112878;
-		double rightLimit = 85.05112878;
-		return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
-	}
-
-	private Date getRandomTime() {
-		LocalDateTime localDateTime = LocalDateTime.now().minusDays(new Random().nextInt(30));
-		return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
-	}
 }
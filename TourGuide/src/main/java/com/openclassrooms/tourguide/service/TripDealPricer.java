@@ -0,0 +1,150 @@
+package com.openclassrooms.tourguide.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.TripPricingClient;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.Futures;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserPreferences;
+
+/**
+ * Calcule les offres de voyage d'un utilisateur.
+ *
+ * Plusieurs demandes de prix sont envoyées en parallèle au {@link TripPricingClient}, puis fusionnées
+ * en ne gardant que l'offre la moins chère de chaque fournisseur. Le résultat est mis en cache
+ * par (utilisateur, adultes, enfants, durée, tranche de points de récompense) : tant que les
+ * préférences et la tranche de points ne changent pas, les offres ne sont pas recalculées.
+ */
+public class TripDealPricer {
+	public static final int DEFAULT_QUOTE_REQUESTS = 2;
+	public static final int DEFAULT_POINTS_BUCKET = 100;
+	public static final int DEFAULT_CACHE_SIZE = 100_000;
+	public static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(10);
+
+	private static final String tripPricerApiKey = "test-server-api-key";
+	private final TripPricingClient tripPricingClient;
+	private final TourGuideExecutor executor;
+	private final ExpiringCache<TripDealKey, List<Provider>> deals;
+	private final int quoteRequests;
+	private final int pointsBucket;
+
+	public TripDealPricer(TripPricer tripPricer, TourGuideExecutor executor) {
+		this(TripPricingClient.of(tripPricer), executor);
+	}
+
+	public TripDealPricer(TripPricingClient tripPricingClient, TourGuideExecutor executor) {
+		this(tripPricingClient, executor, new ExpiringCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL),
+				DEFAULT_QUOTE_REQUESTS, DEFAULT_POINTS_BUCKET);
+	}
+
+	/**
+	 * @param deals         cache des offres déjà calculées
+	 * @param quoteRequests nombre de demandes de prix envoyées en parallèle
+	 * @param pointsBucket  largeur d'une tranche de points de récompense pour la clé de cache
+	 */
+	public TripDealPricer(TripPricingClient tripPricingClient, TourGuideExecutor executor,
+			ExpiringCache<TripDealKey, List<Provider>> deals, int quoteRequests, int pointsBucket) {
+		if (quoteRequests <= 0 || pointsBucket <= 0) {
+			throw new IllegalArgumentException("quoteRequests and pointsBucket must be positive");
+		}
+		this.tripPricingClient = tripPricingClient;
+		this.executor = executor;
+		this.deals = deals;
+		this.quoteRequests = quoteRequests;
+		this.pointsBucket = pointsBucket;
+	}
+
+	/**
+	 * @param user l'utilisateur pour lequel chercher des offres
+	 * @return un {@link CompletableFuture} fournissant une offre par fournisseur, de la moins chère
+	 *         à la plus chère ; l'annuler annule les demandes de prix encore en file ou en cours
+	 */
+	public CompletableFuture<List<Provider>> getTripDeals(User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		int rewardPoints = user.getCumulativeRewardPoints();
+		TripDealKey key = new TripDealKey(user.getUserId(), preferences.getNumberOfAdults(),
+				preferences.getNumberOfChildren(), preferences.getTripDuration(), rewardPoints / pointsBucket);
+		List<Provider> cached = deals.get(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+
+		List<CompletableFuture<List<Provider>>> quotes = new ArrayList<>(quoteRequests);
+		for (int i = 0; i < quoteRequests; i++) {
+			quotes.add(executor.call(ExternalDependency.PRICER, () -> tripPricingClient.getPrice(tripPricerApiKey,
+					user.getUserId(), preferences.getNumberOfAdults(), preferences.getNumberOfChildren(),
+					preferences.getTripDuration(), rewardPoints)));
+		}
+		CompletableFuture<?>[] pending = quotes.toArray(new CompletableFuture[0]);
+		return Futures.cancelling(CompletableFuture.allOf(pending).thenApply(done -> {
+			List<Provider> providers = cheapestPerProvider(quotes);
+			deals.put(key, providers);
+			return providers;
+		}), pending);
+	}
+
+	public ExpiringCache<TripDealKey, List<Provider>> getCache() {
+		return deals;
+	}
+
+	private static List<Provider> cheapestPerProvider(List<CompletableFuture<List<Provider>>> quotes) {
+		Map<String, Provider> cheapest = new LinkedHashMap<>();
+		for (CompletableFuture<List<Provider>> quote : quotes) {
+			for (Provider provider : quote.join()) {
+				cheapest.merge(provider.name, provider, (a, b) -> b.price < a.price ? b : a);
+			}
+		}
+		List<Provider> providers = new ArrayList<>(cheapest.values());
+		providers.sort(Comparator.comparingDouble(provider -> provider.price));
+		return List.copyOf(providers);
+	}
+
+	/**
+	 * Paramètres déterminant les offres proposées à un utilisateur.
+	 */
+	public static final class TripDealKey {
+		private final UUID userId;
+		private final int adults;
+		private final int children;
+		private final int tripDuration;
+		private final int pointsBucket;
+
+		public TripDealKey(UUID userId, int adults, int children, int tripDuration, int pointsBucket) {
+			this.userId = userId;
+			this.adults = adults;
+			this.children = children;
+			this.tripDuration = tripDuration;
+			this.pointsBucket = pointsBucket;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof TripDealKey other)) {
+				return false;
+			}
+			return adults == other.adults && children == other.children && tripDuration == other.tripDuration
+					&& pointsBucket == other.pointsBucket && userId.equals(other.userId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, adults, children, tripDuration, pointsBucket);
+		}
+	}
+}
@@ -1,67 +1,229 @@
 package com.openclassrooms.tourguide.tracker;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.openclassrooms.tourguide.repository.UserRegistry;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.model.User;
 
-public class Tracker extends Thread {
+/**
+ * Suivi périodique de la localisation des utilisateurs.
+ *
+ * Chaque cycle est découpé en tranches, une par partition de {@link UserRegistry}, réparties
+ * uniformément sur l'intervalle de suivi : la charge sur {@code GpsUtil} est lissée au lieu
+ * d'arriver d'un bloc toutes les 5 minutes. Les partitions sont relues à chaque tranche, les
+ * utilisateurs ajoutés en cours de route sont donc suivis dès le cycle suivant au plus tard.
+ *
+ * Un suivi n'est terminé qu'une fois les récompenses de l'utilisateur calculées. Le nombre
+ * de suivis en cours est borné : lorsque le GPS ou le calcul des récompenses ralentit, le
+ * tracker attend qu'une place se libère avant de continuer (contre-pression). Un cycle se
+ * termine lorsque tous ses suivis, récompenses comprises, sont terminés. Le retard accumulé
+ * par rapport au calendrier prévu est mesuré à chaque cycle.
+ *
+ * L'échec du suivi d'un utilisateur n'interrompt pas le cycle : il est compté et résumé en fin
+ * de cycle, plutôt que journalisé utilisateur par utilisateur lorsqu'une dépendance est en panne.
+ * Une erreur inattendue pendant un cycle est journalisée et le cycle suivant démarre à l'heure.
+ *
+ * La boucle de suivi, qui dort l'essentiel de l'intervalle, tourne sur son propre thread : elle
+ * n'occupe aucun thread de la couche d'exécution, dont le pool reste aux appels et aux calculs.
+ * Le suivi ne démarre qu'à l'appel de {@link #startTracking()}.
+ */
+public class Tracker implements Runnable {
 	private final Logger logger = LoggerFactory.getLogger(Tracker.class);
-	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
-	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+	public static final Duration DEFAULT_POLLING_INTERVAL = Duration.ofMinutes(5);
+	public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
 	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private final long trackingPollingInterval;
+	private final int maxInFlight;
+	private final Semaphore inFlight;
+	private final ExecutorService trackingThread = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "tourguide-tracker");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Future<?> trackingTask;
+	private volatile boolean stop = false;
+	private volatile long completedCycles = 0;
+	private volatile long lastCycleDuration = 0;
+	private volatile long lastCycleLag = 0;
+	private volatile int lastCycleUsers = 0;
+	private final LongAdder permitWaitNanos = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private volatile long lastCycleFailures = 0;
 
 	public Tracker(TourGuideService tourGuideService) {
+		this(tourGuideService, DEFAULT_POLLING_INTERVAL, DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	/**
+	 * @param pollingInterval durée d'un cycle de suivi de tous les utilisateurs
+	 * @param maxInFlight     nombre maximal de suivis en cours simultanément
+	 */
+	public Tracker(TourGuideService tourGuideService, Duration pollingInterval, int maxInFlight) {
 		this.tourGuideService = tourGuideService;
+		this.trackingPollingInterval = pollingInterval.toMillis();
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight);
+	}
 
-		executorService.submit(this);
+	/**
+	 * Lance le suivi sur son thread dédié. Sans effet si le suivi est déjà lancé ou arrêté.
+	 */
+	public synchronized void startTracking() {
+		if (trackingTask == null && !stop) {
+			trackingTask = trackingThread.submit(this);
+		}
 	}
 
 	/**
 	 * Assures to shut down the Tracker thread
 	 */
-	public void stopTracking() {
+	public synchronized void stopTracking() {
 		stop = true;
-		executorService.shutdownNow();
+		if (trackingTask != null) {
+			trackingTask.cancel(true);
+		}
+		trackingThread.shutdown();
+	}
+
+	public long getCompletedCycles() {
+		return completedCycles;
+	}
+
+	/**
+	 * @return la durée du dernier cycle terminé, en millisecondes
+	 */
+	public long getLastCycleDuration() {
+		return lastCycleDuration;
+	}
+
+	/**
+	 * @return le plus grand retard du dernier cycle par rapport à son calendrier, en millisecondes :
+	 *         démarrage tardif d'une tranche ou dépassement de l'intervalle de suivi
+	 */
+	public long getLastCycleLag() {
+		return lastCycleLag;
+	}
+
+	public int getLastCycleUsers() {
+		return lastCycleUsers;
+	}
+
+	/**
+	 * @return le nombre de suivis en échec depuis le démarrage
+	 */
+	public long getFailedCount() {
+		return failures.sum();
+	}
+
+	public long getLastCycleFailures() {
+		return lastCycleFailures;
+	}
+
+	public int getInFlight() {
+		return maxInFlight - inFlight.availablePermits();
+	}
+
+	/**
+	 * @return le temps total passé à attendre une place parmi les suivis en cours, en nanosecondes
+	 */
+	public long getPermitWaitNanos() {
+		return permitWaitNanos.sum();
 	}
 
 	@Override
 	public void run() {
-		List<User> users = getAllUsers();
+		UserRegistry registry = tourGuideService.getUserRegistry();
+		int slices = registry.getShardCount();
 		StopWatch stopWatch = new StopWatch();
 		while (true) {
 			if (Thread.currentThread().isInterrupted() || stop) {
 				logger.debug("Tracker stopping");
 				break;
 			}
-            logger.debug("Begin Tracker. Tracking {} users.", users.size());
+            logger.debug("Begin Tracker. Tracking {} users.", registry.size());
+			long cycleStart = System.currentTimeMillis();
+			long failuresBefore = failures.sum();
+			long lag = 0;
+			int users = 0;
 			stopWatch.start();
 
-            try {
-                tourGuideService.trackAllUsers(users);
-            } catch (ExecutionException | InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+			try {
+				for (int slice = 0; slice < slices; slice++) {
+					long scheduled = cycleStart + trackingPollingInterval * slice / slices;
+					lag = Math.max(lag, System.currentTimeMillis() - scheduled);
+					sleepUntil(scheduled);
+					for (User user : registry.shard(slice)) {
+						track(user);
+						users++;
+					}
+				}
+				inFlight.acquire(maxInFlight); // attend la fin des suivis du cycle
+				inFlight.release(maxInFlight);
+			} catch (InterruptedException e) {
+				break;
+			} catch (RuntimeException e) {
+				logger.error("Tracking cycle aborted after {} users", users, e);
+			}
             stopWatch.stop();
 
+			lag = Math.max(lag, stopWatch.getTime() - trackingPollingInterval);
+			lastCycleDuration = stopWatch.getTime();
+			lastCycleLag = lag;
+			lastCycleUsers = users;
+			lastCycleFailures = failures.sum() - failuresBefore;
+			completedCycles++;
             logger.debug("Tracker Time Elapsed: {} seconds.", TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
+			if (lag > 0) {
+				logger.warn("Tracker is {} ms behind schedule ({} users tracked)", lag, users);
+			}
+			if (lastCycleFailures > 0) {
+				logger.warn("Tracking failed for {} of {} users during the last cycle", lastCycleFailures, users);
+			}
 			stopWatch.reset();
 			try {
 				logger.debug("Tracker sleeping");
-				TimeUnit.SECONDS.sleep(trackingPollingInterval);
+				sleepUntil(cycleStart + trackingPollingInterval);
 			} catch (InterruptedException e) {
 				break;
 			}
 		}
 	}
 
-	private List<User> getAllUsers(){
-		return tourGuideService.getAllUsers();
+	private void track(User user) throws InterruptedException {
+		if (!inFlight.tryAcquire()) {
+			long waitStart = System.nanoTime();
+			inFlight.acquire();
+			permitWaitNanos.add(System.nanoTime() - waitStart);
+		}
+		try {
+			tourGuideService.trackUserWithRewardsAsync(user).whenComplete((visitedLocation, e) -> {
+				inFlight.release();
+				if (e != null) {
+					trackingFailed(user, e);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlight.release();
+			trackingFailed(user, e);
+		}
+	}
+
+	private void trackingFailed(User user, Throwable e) {
+		failures.increment();
+		logger.debug("Tracking failed for user {}", user.getUserName(), e);
+	}
+
+	private void sleepUntil(long time) throws InterruptedException {
+		long delay = time - System.currentTimeMillis();
+		if (delay > 0) {
+			TimeUnit.MILLISECONDS.sleep(delay);
+		}
 	}
 }
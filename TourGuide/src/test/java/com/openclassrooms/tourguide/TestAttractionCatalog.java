@@ -0,0 +1,68 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.GeoDistance;
+
+public class TestAttractionCatalog {
+
+	@Test
+	public void snapshotPrecomputesGeometry() {
+		AttractionCatalog catalog = new AttractionCatalog(new GpsUtil());
+		AttractionCatalog.Snapshot snapshot = catalog.snapshot();
+
+		double[] miles = snapshot.milesFrom(33.817595, -117.922008);
+		for (int ordinal = 0; ordinal < snapshot.size(); ordinal++) {
+			Attraction attraction = snapshot.get(ordinal);
+			assertEquals(ordinal, snapshot.ordinal(attraction));
+			assertSame(attraction, snapshot.getByName(attraction.attractionName));
+			assertEquals(GeoDistance.Mode.SPHERICAL_LAW_OF_COSINES.miles(33.817595, -117.922008,
+					attraction.latitude, attraction.longitude), miles[ordinal], 1e-6);
+		}
+	}
+
+	@Test
+	public void refreshKeepsKnownAttractions() {
+		// GpsUtil attribue de nouveaux identifiants à chaque appel
+		AttractionCatalog catalog = new AttractionCatalog(new GpsUtil());
+		AttractionCatalog.Snapshot before = catalog.snapshot();
+
+		assertFalse(catalog.refresh());
+		assertSame(before, catalog.snapshot());
+		assertEquals(1, catalog.getVersion());
+	}
+
+	@Test
+	public void refreshPublishesChangedCatalog() {
+		List<Attraction> attractions = new GpsUtil().getAttractions();
+		AtomicReference<List<Attraction>> source = new AtomicReference<>(attractions);
+		AttractionCatalog catalog = new AttractionCatalog(source::get, Duration.ZERO);
+		AttractionCatalog.Snapshot before = catalog.snapshot();
+
+		List<Attraction> changed = new ArrayList<>(attractions);
+		Attraction moved = attractions.get(0);
+		changed.set(0, new Attraction(moved.attractionName, moved.city, moved.state, moved.latitude + 1, moved.longitude));
+		source.set(changed);
+
+		assertTrue(catalog.refresh());
+		AttractionCatalog.Snapshot after = catalog.snapshot();
+		assertEquals(2, after.getVersion());
+		assertEquals(moved.latitude + 1, after.get(0).latitude, 0);
+		assertSame(before.get(1), after.get(1));
+		assertSame(moved, before.get(0));
+		assertEquals(-1, after.ordinal(moved));
+	}
+}
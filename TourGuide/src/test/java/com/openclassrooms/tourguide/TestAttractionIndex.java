@@ -0,0 +1,98 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.service.RewardsService;
+
+public class TestAttractionIndex {
+	private RewardsService rewardsService;
+	private List<Attraction> attractions;
+	private AttractionIndex index;
+
+	@BeforeEach
+	public void setUp() {
+		GpsUtil gpsUtil = new GpsUtil();
+		rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		attractions = gpsUtil.getAttractions();
+		index = new AttractionIndex(attractions);
+	}
+
+	@Test
+	public void withinMilesMatchesFullScan() {
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Location location = randomLocation(random);
+			double miles = random.nextInt(3000);
+
+			List<Attraction> expected = attractions.stream()
+					.filter(a -> rewardsService.getDistance(a, location) <= miles)
+					.collect(Collectors.toList());
+
+			assertEquals(new HashSet<>(expected), new HashSet<>(index.withinMiles(location, miles)));
+		}
+	}
+
+	@Test
+	public void withinMilesReturnsEverythingForHugeRadius() {
+		Location location = new Location(0, 0);
+		assertEquals(attractions.size(), index.withinMiles(location, Integer.MAX_VALUE).size());
+	}
+
+	@Test
+	public void nearestMatchesFullSort() {
+		Random random = new Random(7);
+		for (int i = 0; i < 500; i++) {
+			Location location = randomLocation(random);
+
+			List<Attraction> expected = attractions.stream()
+					.sorted(Comparator.comparingDouble(a -> rewardsService.getDistance(a, location)))
+					.limit(5)
+					.collect(Collectors.toList());
+
+			assertEquals(expected, index.nearest(location, 5));
+		}
+	}
+
+	@Test
+	public void nearestWithinRadiusMatchesFilteredSort() {
+		Random random = new Random(11);
+		for (int i = 0; i < 500; i++) {
+			Location location = randomLocation(random);
+			double maxMiles = random.nextInt(3000);
+
+			List<Attraction> expected = attractions.stream()
+					.filter(a -> rewardsService.getDistance(a, location) <= maxMiles)
+					.sorted(Comparator.comparingDouble(a -> rewardsService.getDistance(a, location)))
+					.limit(5)
+					.collect(Collectors.toList());
+
+			assertEquals(expected, index.nearest(location, 5, maxMiles));
+		}
+	}
+
+	@Test
+	public void nearestIsBoundedByCatalogueSize() {
+		List<Attraction> nearest = index.nearest(new Location(33.817595, -117.922008), attractions.size() + 10);
+		assertEquals(attractions.size(), nearest.size());
+		assertTrue(index.nearest(new Location(0, 0), 0).isEmpty());
+	}
+
+	private Location randomLocation(Random random) {
+		return new Location(-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360);
+	}
+}
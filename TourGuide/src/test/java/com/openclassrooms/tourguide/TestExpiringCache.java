@@ -0,0 +1,55 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+
+public class TestExpiringCache {
+
+	@Test
+	public void readingAnExpiredEntryDoesNotKeepItAlive() {
+		MutableClock clock = new MutableClock();
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>(2, Duration.ofMinutes(1), clock);
+		cache.put("expired", 1);
+		clock.advance(Duration.ofMinutes(2));
+		cache.put("live", 2);
+
+		assertNull(cache.get("expired"));
+		cache.put("new", 3); // évince l'entrée la moins récemment utilisée
+
+		assertEquals(2, cache.get("live"));
+		assertEquals(3, cache.get("new"));
+		assertNull(cache.getStale("expired"));
+	}
+
+	@Test
+	public void hitMovesEntryToMostRecentlyUsed() {
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>(2, Duration.ofMinutes(1), new MutableClock());
+		cache.put("a", 1);
+		cache.put("b", 2);
+
+		assertEquals(1, cache.get("a"));
+		cache.put("c", 3);
+
+		assertEquals(1, cache.get("a"));
+		assertNull(cache.getStale("b"));
+	}
+
+	@Test
+	public void liveSizeExcludesExpiredEntries() {
+		MutableClock clock = new MutableClock();
+		ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, Duration.ofMinutes(1), clock);
+		cache.put("old", 1);
+		clock.advance(Duration.ofMinutes(2));
+		cache.put("fresh", 2);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.liveSize());
+		assertEquals(1, cache.getStale("old"));
+	}
+}
@@ -0,0 +1,214 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.cache.LocationCache;
+import com.openclassrooms.tourguide.client.LocationClient;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.GeoDistance;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.helper.InternalUserGenerator;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.model.UserReward;
+import com.openclassrooms.tourguide.repository.FileUserStore;
+import com.openclassrooms.tourguide.service.NearbyAttractionFinder;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealPricer;
+import tripPricer.TripPricer;
+
+public class TestFileUserStore {
+	private Path directory;
+	private Attraction attraction;
+	private Map<String, Attraction> attractions;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tourguide-store");
+		attraction = new GpsUtil().getAttractions().get(0);
+		attractions = Map.of(attraction.attractionName, attraction);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	@Test
+	public void recoversUsersLocationsAndRewards() {
+		FileUserStore store = new FileUserStore(directory);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.getUserPreferences().setNumberOfAdults(2);
+		user.addToVisitedLocations(visit(user, 1, 1000));
+		store.userAdded(user);
+
+		VisitedLocation visitedLocation = visit(user, 2, 2000);
+		user.addToVisitedLocations(visitedLocation);
+		store.locationAdded(user, visitedLocation);
+		UserReward userReward = new UserReward(visitedLocation, attraction, 42);
+		user.addUserReward(userReward);
+		store.rewardAdded(user, userReward);
+		store.close();
+
+		FileUserStore reopened = new FileUserStore(directory);
+		List<User> recovered = reopened.recover(HistoryPolicy.defaults(), attractions);
+		reopened.close();
+
+		assertEquals(1, recovered.size());
+		User restored = recovered.get(0);
+		assertEquals(user.getUserId(), restored.getUserId());
+		assertEquals("jon@tourGuide.com", restored.getEmailAddress());
+		assertEquals(2, restored.getUserPreferences().getNumberOfAdults());
+		assertEquals(2, restored.getVisitedLocations().size());
+		assertEquals(2000, restored.getLastVisitedLocation().timeVisited.getTime());
+		assertEquals(1, restored.getUserRewards().size());
+		assertEquals(42, restored.getCumulativeRewardPoints());
+		assertTrue(restored.hasRewardFor(attraction));
+	}
+
+	@Test
+	public void replaysEventLogAfterSnapshotAndIgnoresTornRecord() throws Exception {
+		FileUserStore store = new FileUserStore(directory, Duration.ofMillis(10), Duration.ZERO, Long.MAX_VALUE);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(visit(user, 1, 1000));
+		store.attach(List.of(user));
+		store.userAdded(user);
+		store.checkpoint();
+
+		VisitedLocation visitedLocation = visit(user, 2, 2000);
+		user.addToVisitedLocations(visitedLocation);
+		store.locationAdded(user, visitedLocation);
+		store.locationAdded(user, visitedLocation); // doublon, ignoré à la relecture
+		Thread.sleep(200); // laisse passer une écriture périodique, sans fermer le journal
+
+		Path lastSegment;
+		try (Stream<Path> files = Files.list(directory)) {
+			lastSegment = files.filter(file -> file.getFileName().toString().startsWith("events-"))
+					.max(Comparator.comparing(file -> file.getFileName().toString())).orElseThrow();
+		}
+		Files.write(lastSegment, new byte[] { 0, 0, 0, 50, 1, 2 }, StandardOpenOption.APPEND);
+
+		FileUserStore reopened = new FileUserStore(directory);
+		List<User> recovered = reopened.recover(HistoryPolicy.defaults(), attractions);
+		reopened.close();
+		store.close();
+
+		assertEquals(1, recovered.size());
+		assertEquals(2, recovered.get(0).getVisitedLocations().size());
+	}
+
+	@Test
+	public void tourGuideServiceRestoresPersistedUsers() {
+		InternalTestHelper.setInternalUserNumber(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		TourGuideService tourGuideService = newTourGuideService(new FileUserStore(directory));
+		tourGuideService.tracker.stopTracking();
+		tourGuideService.addUser(user);
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocationWithCache(user);
+		tourGuideService.getUserStore().close();
+
+		TourGuideService restarted = newTourGuideService(new FileUserStore(directory));
+		restarted.tracker.stopTracking();
+		User restored = restarted.getUser(user.getUserId());
+		restarted.getUserStore().close();
+
+		assertEquals("jon", restored.getUserName());
+		assertEquals(1, restored.getVisitedLocations().size());
+		assertEquals(visitedLocation.location.latitude, restored.getLastVisitedLocation().location.latitude, 0);
+		assertEquals(1, restarted.getLocationSnapshot().size());
+	}
+
+	@Test
+	public void internalUsersAreNotJournaled() {
+		InternalTestHelper.setInternalUserNumber(100);
+		TourGuideService tourGuideService = newTourGuideService(new FileUserStore(directory));
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(100, tourGuideService.getAllUsers().size());
+		assertTrue(tourGuideService.getAllUsers().stream().allMatch(User::hasPendingHistory));
+		tourGuideService.getUserStore().close();
+	}
+
+	@Test
+	public void snapshotSkipsInternalUsers() {
+		InternalTestHelper.setInternalUserNumber(100);
+		TourGuideService tourGuideService = newTourGuideService(new FileUserStore(directory));
+		tourGuideService.tracker.stopTracking();
+		User tracked = tourGuideService.getAllUsers().get(0);
+		tourGuideService.trackUserLocationWithCache(tracked);
+		tourGuideService.getUserStore().close(); // écrit l'instantané
+
+		assertEquals(99, tourGuideService.getAllUsers().stream().filter(User::hasPendingHistory).count());
+		FileUserStore reopened = new FileUserStore(directory);
+		List<User> recovered = reopened.recover(HistoryPolicy.defaults(), attractions);
+		reopened.close();
+		assertTrue(recovered.isEmpty());
+	}
+
+	@Test
+	public void snapshotRestoresTheRewardCursor() {
+		FileUserStore store = new FileUserStore(directory);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		store.attach(List.of(user));
+		user.addToVisitedLocations(visit(user, 1, 1000));
+		user.addToVisitedLocations(visit(user, 2, 2000));
+		user.getLocationHistory().forEachUnprocessed((latitude, longitude, time) -> { });
+		user.addToVisitedLocations(visit(user, 3, 3000));
+		store.userAdded(user);
+		store.close();
+
+		FileUserStore reopened = new FileUserStore(directory);
+		User restored = reopened.recover(HistoryPolicy.defaults(), attractions).get(0);
+		reopened.close();
+
+		List<Double> unprocessed = new ArrayList<>();
+		restored.getLocationHistory().forEachUnprocessed((latitude, longitude, time) -> unprocessed.add(latitude));
+		assertEquals(List.of(3.0), unprocessed);
+	}
+
+	private TourGuideService newTourGuideService(FileUserStore store) {
+		GpsUtil gpsUtil = new GpsUtil();
+		TourGuideExecutor executor = new TourGuideExecutor();
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(gpsUtil), executor,
+				new RewardPointsLoader(new RewardCentral(), executor), GeoDistance.Mode.SPHERICAL_LAW_OF_COSINES, store);
+		return new TourGuideService(LocationClient.of(gpsUtil), rewardsService, executor, HistoryPolicy.defaults(),
+				new TripDealPricer(new TripPricer(), executor), store, new LocationCache(),
+				new NearbyAttractionFinder(rewardsService), new InternalUserGenerator());
+	}
+
+	private static VisitedLocation visit(User user, double latitude, long time) {
+		return new VisitedLocation(user.getUserId(), new Location(latitude, latitude), new Date(time));
+	}
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.geo.GeoDistance;
+import com.openclassrooms.tourguide.geo.GeoDistance.Mode;
+
+public class TestGeoDistance {
+
+	@Test
+	public void haversineMatchesLawOfCosines() {
+		Random random = new Random(3);
+		for (int i = 0; i < 1000; i++) {
+			double[] points = randomPoints(random);
+			double exact = Mode.SPHERICAL_LAW_OF_COSINES.miles(points[0], points[1], points[2], points[3]);
+			double haversine = Mode.HAVERSINE.miles(points[0], points[1], points[2], points[3]);
+			assertEquals(exact, haversine, 1e-6 * Math.max(1, exact));
+		}
+	}
+
+	@Test
+	public void equirectangularIsAccurateOnShortDistances() {
+		// Disneyland -> Knott's Berry Farm, une dizaine de miles
+		double exact = Mode.SPHERICAL_LAW_OF_COSINES.miles(33.817595, -117.922008, 33.844263, -117.998686);
+		double approximate = Mode.EQUIRECTANGULAR.miles(33.817595, -117.922008, 33.844263, -117.998686);
+		assertEquals(exact, approximate, exact * 1e-3);
+		assertEquals(0, Mode.EQUIRECTANGULAR.miles(10, 179.5, 10, -179.5) - Mode.EQUIRECTANGULAR.miles(10, 0.5, 10, -0.5), 1e-9);
+	}
+
+	@Test
+	public void identicalPointsAreAtZeroMiles() {
+		for (Mode mode : Mode.values()) {
+			assertEquals(0, mode.miles(33.817595, -117.922008, 33.817595, -117.922008), 1e-6);
+		}
+	}
+
+	@Test
+	public void isWithinMilesAgreesWithExactDistance() {
+		Random random = new Random(5);
+		for (int i = 0; i < 1000; i++) {
+			double[] points = randomPoints(random);
+			double miles = random.nextInt(5000);
+			double exact = Mode.SPHERICAL_LAW_OF_COSINES.miles(points[0], points[1], points[2], points[3]);
+			if (Math.abs(exact - miles) > 1e-6) {
+				assertEquals(exact <= miles, GeoDistance.isWithinMiles(points[0], points[1], points[2], points[3], miles));
+			}
+		}
+	}
+
+	@Test
+	public void isWithinSquaredChordAgreesWithExactDistance() {
+		Random random = new Random(6);
+		for (int i = 0; i < 1000; i++) {
+			double[] points = randomPoints(random);
+			double miles = random.nextInt(5000);
+			double exact = Mode.SPHERICAL_LAW_OF_COSINES.miles(points[0], points[1], points[2], points[3]);
+			if (Math.abs(exact - miles) > 1e-6) {
+				assertEquals(exact <= miles, GeoDistance.isWithinSquaredChord(GeoDistance.unitVector(points[0], points[1]),
+						GeoDistance.unitVector(points[2], points[3]), GeoDistance.squaredChordForMiles(miles)));
+			}
+		}
+	}
+
+	@Test
+	public void latitudeBandOnlyRejectsPointsBeyondTheRadius() {
+		assertTrue(GeoDistance.isBeyondLatitudeBand(0, 10, 200));
+		assertFalse(GeoDistance.isBeyondLatitudeBand(0, 2, 200));
+		assertFalse(GeoDistance.isBeyondLatitudeBand(10, 10, 0)); // même latitude, longitudes quelconques
+	}
+
+	@Test
+	public void squaredChordRoundTripsToMiles() {
+		for (double miles : new double[] { 0, 1, 10, 200, 5000, 12000 }) {
+			assertEquals(miles, GeoDistance.milesForSquaredChord(GeoDistance.squaredChordForMiles(miles)), 1e-6);
+		}
+		assertTrue(GeoDistance.squaredChordForMiles(Integer.MAX_VALUE) == GeoDistance.MAX_SQUARED_CHORD);
+	}
+
+	private double[] randomPoints(Random random) {
+		return new double[] { -85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360,
+				-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360 };
+	}
+}
@@ -0,0 +1,68 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.geo.AttractionCatalog;
+import com.openclassrooms.tourguide.geo.AttractionEntered;
+import com.openclassrooms.tourguide.geo.GeofenceEngine;
+
+public class TestGeofenceEngine {
+	private final AttractionCatalog.Snapshot catalog = new AttractionCatalog(new GpsUtil()).snapshot();
+
+	@Test
+	public void emitsOnlyOnEntry() {
+		GeofenceEngine engine = new GeofenceEngine();
+		UUID userId = UUID.randomUUID();
+		Attraction attraction = catalog.get(0);
+		List<AttractionEntered> events = new ArrayList<>();
+
+		assertEquals(1, engine.check(catalog, userId, attraction.latitude, attraction.longitude, 1, 0.1, events::add));
+		assertEquals(0, engine.check(catalog, userId, attraction.latitude, attraction.longitude, 2, 0.1, events::add));
+		assertEquals(1, engine.getOccupiedCount());
+
+		// sortie puis nouvelle entrée
+		assertEquals(0, engine.check(catalog, userId, 0, 0, 3, 0.1, events::add));
+		assertEquals(0, engine.getOccupiedCount());
+		assertEquals(1, engine.check(catalog, userId, attraction.latitude, attraction.longitude, 4, 0.1, events::add));
+
+		assertEquals(2, events.size());
+		assertSame(attraction, events.get(0).getAttraction());
+		assertEquals(userId, events.get(0).getUserId());
+		assertEquals(4, events.get(1).getTimeVisited());
+		assertEquals(2, engine.getEnteredCount());
+	}
+
+	@Test
+	public void resetEmitsEntryAgain() {
+		GeofenceEngine engine = new GeofenceEngine();
+		UUID userId = UUID.randomUUID();
+		Attraction attraction = catalog.get(0);
+
+		engine.check(catalog, userId, attraction.latitude, attraction.longitude, 1, 0.1, event -> { });
+		engine.reset(userId);
+
+		assertEquals(1, engine.check(catalog, userId, attraction.latitude, attraction.longitude, 2, 0.1, event -> { }));
+	}
+
+	@Test
+	public void largeRadiusEntersEveryZoneOnce() {
+		GeofenceEngine engine = new GeofenceEngine();
+		List<AttractionEntered> events = new ArrayList<>();
+
+		engine.check(catalog, UUID.randomUUID(), 0, 0, 1, Integer.MAX_VALUE, events::add);
+
+		assertEquals(catalog.size(), events.size());
+		for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+			assertSame(catalog.get(ordinal), events.get(ordinal).getAttraction());
+		}
+	}
+}
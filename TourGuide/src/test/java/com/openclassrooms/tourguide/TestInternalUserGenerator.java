@@ -0,0 +1,52 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.helper.InternalUserGenerator;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+
+public class TestInternalUserGenerator {
+
+	@Test
+	public void seededGenerationIsReproducible() {
+		InternalUserGenerator generator = new InternalUserGenerator(42L, true);
+
+		List<User> first = generator.generate(1000, HistoryPolicy.defaults());
+		List<User> second = generator.generate(1000, HistoryPolicy.defaults());
+
+		assertEquals(1000, first.size());
+		assertEquals(1000, first.stream().map(User::getUserId).collect(Collectors.toSet()).size());
+		for (int i = 0; i < first.size(); i++) {
+			assertEquals("internalUser" + i, first.get(i).getUserName());
+			assertEquals(first.get(i).getUserId(), second.get(i).getUserId());
+			assertEquals(first.get(i).getLastVisitedLocation().location.latitude,
+					second.get(i).getLastVisitedLocation().location.latitude, 0);
+		}
+	}
+
+	@Test
+	public void historyIsGeneratedOnFirstAccess() {
+		User user = new InternalUserGenerator(null, true).generate(1, HistoryPolicy.defaults()).get(0);
+		assertTrue(user.hasPendingHistory());
+
+		assertEquals(InternalUserGenerator.HISTORY_SIZE, user.getVisitedLocations().size());
+		assertFalse(user.hasPendingHistory());
+		assertEquals(InternalUserGenerator.HISTORY_SIZE, user.getVisitedLocations().size());
+	}
+
+	@Test
+	public void eagerHistoryIsGeneratedWithTheUser() {
+		User user = new InternalUserGenerator(7L, false).generate(1, HistoryPolicy.defaults()).get(0);
+
+		assertFalse(user.hasPendingHistory());
+		assertEquals(InternalUserGenerator.HISTORY_SIZE, user.getLocationHistory().size());
+	}
+}
@@ -0,0 +1,110 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.cache.LocationCache;
+
+public class TestLocationCache {
+	private final AtomicInteger loads = new AtomicInteger();
+	private final Function<UUID, CompletableFuture<VisitedLocation>> loader = userId -> CompletableFuture.completedFuture(
+			new VisitedLocation(userId, new Location(loads.incrementAndGet(), 0), new Date()));
+
+	@Test
+	public void expiresEntriesAfterTtl() {
+		MutableClock clock = new MutableClock();
+		LocationCache cache = new LocationCache(10, Duration.ofMinutes(1), Duration.ZERO, clock);
+		UUID userId = UUID.randomUUID();
+
+		VisitedLocation first = cache.get(userId, loader).join();
+		clock.advance(Duration.ofSeconds(59));
+		assertSame(first, cache.get(userId, loader).join());
+		assertEquals(1, loads.get());
+
+		clock.advance(Duration.ofSeconds(1));
+		assertEquals(2, cache.get(userId, loader).join().location.latitude, 0);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void refreshesAheadOfExpiryInBackground() {
+		MutableClock clock = new MutableClock();
+		LocationCache cache = new LocationCache(10, Duration.ofMinutes(1), Duration.ofSeconds(45), clock);
+		UUID userId = UUID.randomUUID();
+		CompletableFuture<VisitedLocation> refresh = new CompletableFuture<>();
+
+		VisitedLocation first = cache.get(userId, loader).join();
+		clock.advance(Duration.ofSeconds(50));
+		assertSame(first, cache.get(userId, id -> refresh).join()); // valeur en cache, rechargement lancé
+		assertSame(first, cache.get(userId, loader).join()); // rechargement déjà en cours
+		assertEquals(1, cache.getRefreshCount());
+
+		VisitedLocation refreshed = new VisitedLocation(userId, new Location(9, 9), new Date());
+		refresh.complete(refreshed);
+		assertSame(refreshed, cache.get(userId, loader).join());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void concurrentMissesShareOneLoad() {
+		LocationCache cache = new LocationCache(10, Duration.ofMinutes(1), Duration.ZERO, new MutableClock());
+		UUID userId = UUID.randomUUID();
+		CompletableFuture<VisitedLocation> pending = new CompletableFuture<>();
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<VisitedLocation> first = cache.get(userId, id -> {
+			calls.incrementAndGet();
+			return pending;
+		});
+		CompletableFuture<VisitedLocation> second = cache.get(userId, id -> {
+			calls.incrementAndGet();
+			return pending;
+		});
+
+		assertEquals(1, calls.get());
+		VisitedLocation location = new VisitedLocation(userId, new Location(1, 2), new Date());
+		pending.complete(location);
+		assertSame(location, first.join());
+		assertSame(location, second.join());
+	}
+
+	@Test
+	public void loadIsCancelledOnlyOnceEveryWaiterCancelled() {
+		LocationCache cache = new LocationCache(10, Duration.ofMinutes(1), Duration.ZERO, new MutableClock());
+		UUID userId = UUID.randomUUID();
+		CompletableFuture<VisitedLocation> pending = new CompletableFuture<>();
+
+		CompletableFuture<VisitedLocation> first = cache.get(userId, id -> pending);
+		CompletableFuture<VisitedLocation> second = cache.get(userId, id -> pending);
+
+		first.cancel(true);
+		assertFalse(pending.isCancelled());
+		assertFalse(second.isDone());
+		second.cancel(true);
+		assertTrue(pending.isCancelled());
+
+		assertEquals(1, cache.get(userId, loader).join().location.latitude, 0); // nouveau chargement
+	}
+
+	@Test
+	public void boundsTheNumberOfUsers() {
+		LocationCache cache = new LocationCache(2, Duration.ofMinutes(1), Duration.ZERO, new MutableClock());
+		for (int i = 0; i < 5; i++) {
+			cache.get(UUID.randomUUID(), loader).join();
+		}
+		assertEquals(2, cache.size());
+	}
+}
@@ -0,0 +1,123 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.model.LocationHistory;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+
+public class TestLocationHistory {
+	private final UUID userId = UUID.randomUUID();
+	private final long now = System.currentTimeMillis();
+
+	@Test
+	public void keepsOnlyMostRecentEntries() {
+		LocationHistory history = new LocationHistory(userId, new HistoryPolicy(3, Duration.ZERO, Duration.ZERO));
+		for (int i = 0; i < 10; i++) {
+			history.add(visitedLocation(i, now + i * 1000L));
+		}
+
+		List<VisitedLocation> locations = history.toVisitedLocations();
+		assertEquals(3, locations.size());
+		assertEquals(7.0, locations.get(0).location.latitude, 0);
+		assertEquals(9.0, locations.get(2).location.latitude, 0);
+		assertEquals(9.0, history.getLast().location.latitude, 0);
+		assertEquals(userId, locations.get(0).userId);
+	}
+
+	@Test
+	public void dropsEntriesOlderThanMaxAge() {
+		LocationHistory history = new LocationHistory(userId, new HistoryPolicy(100, Duration.ofDays(1), Duration.ZERO));
+		history.add(visitedLocation(1, now - Duration.ofDays(3).toMillis()));
+		history.add(visitedLocation(2, now - Duration.ofDays(2).toMillis()));
+		history.add(visitedLocation(3, now));
+
+		assertEquals(1, history.size());
+		assertEquals(3.0, history.getLast().location.latitude, 0);
+	}
+
+	@Test
+	public void lastIsNullOnceEvictionEmptiesTheHistory() {
+		LocationHistory history = new LocationHistory(userId, new HistoryPolicy(100, Duration.ofDays(1), Duration.ZERO));
+		history.add(visitedLocation(1, now - Duration.ofDays(3).toMillis()));
+		history.add(visitedLocation(2, now - Duration.ofDays(2).toMillis()));
+
+		assertNull(history.getLast());
+		assertTrue(history.isEmpty());
+
+		history.add(visitedLocation(3, now));
+		assertEquals(3.0, history.getLast().location.latitude, 0);
+	}
+
+	@Test
+	public void downsamplesCloseEntries() {
+		LocationHistory history = new LocationHistory(userId, new HistoryPolicy(100, Duration.ZERO, Duration.ofMinutes(1)));
+		history.add(visitedLocation(1, now));
+		history.add(visitedLocation(2, now + 10_000));
+		history.add(visitedLocation(3, now + 120_000));
+
+		List<VisitedLocation> locations = history.toVisitedLocations();
+		assertEquals(2, locations.size());
+		assertEquals(2.0, locations.get(0).location.latitude, 0);
+		assertEquals(3.0, locations.get(1).location.latitude, 0);
+	}
+
+	@Test
+	public void forEachUnprocessedOnlyVisitsNewEntries() {
+		LocationHistory history = new LocationHistory(userId, HistoryPolicy.defaults());
+		history.add(visitedLocation(1, now));
+		history.add(visitedLocation(2, now + 1000));
+
+		List<Double> visited = new ArrayList<>();
+		assertEquals(2, history.forEachUnprocessed((latitude, longitude, time) -> visited.add(latitude)));
+		assertEquals(0, history.forEachUnprocessed((latitude, longitude, time) -> visited.add(latitude)));
+
+		history.add(visitedLocation(3, now + 2000));
+		assertEquals(1, history.forEachUnprocessed((latitude, longitude, time) -> visited.add(latitude)));
+		assertEquals(List.of(1.0, 2.0, 3.0), visited);
+	}
+
+	@Test
+	public void forEachUnprocessedDoesNotReplayProcessedEntriesOnceTheBufferWraps() {
+		LocationHistory history = new LocationHistory(userId, new HistoryPolicy(3, Duration.ZERO, Duration.ofSeconds(10)));
+		history.add(visitedLocation(1, now));
+		history.add(visitedLocation(2, now + 60_000));
+		history.forEachUnprocessed((latitude, longitude, time) -> { });
+
+		List<Double> visited = new ArrayList<>();
+		history.add(visitedLocation(3, now + 120_000));
+		history.add(visitedLocation(4, now + 180_000)); // évince la position 1, déjà traitée
+		assertEquals(2, history.forEachUnprocessed((latitude, longitude, time) -> visited.add(latitude)));
+
+		history.add(visitedLocation(5, now + 185_000)); // remplace la position 4 : seule la nouvelle est présentée
+		assertEquals(1, history.forEachUnprocessed((latitude, longitude, time) -> visited.add(latitude)));
+		assertEquals(0, history.forEachUnprocessed((latitude, longitude, time) -> visited.add(latitude)));
+		assertEquals(List.of(3.0, 4.0, 5.0), visited);
+	}
+
+	@Test
+	public void clearEmptiesHistory() {
+		LocationHistory history = new LocationHistory(userId, HistoryPolicy.defaults());
+		history.add(visitedLocation(1, now));
+		history.clear();
+
+		assertTrue(history.isEmpty());
+		assertNull(history.getLast());
+		assertEquals(0, history.forEachUnprocessed((latitude, longitude, time) -> { }));
+	}
+
+	private VisitedLocation visitedLocation(double latitude, long time) {
+		return new VisitedLocation(userId, new Location(latitude, 0), new Date(time));
+	}
+}
@@ -0,0 +1,295 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.client.simulation.LatencyProfile;
+import com.openclassrooms.tourguide.client.simulation.SimulatedLocationClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedRewardPointsClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedTripPricingClient;
+import com.openclassrooms.tourguide.concurrent.CircuitBreaker;
+import com.openclassrooms.tourguide.concurrent.CircuitOpenException;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.ResiliencePolicy;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+public class TestResilience {
+
+	@Test
+	public void circuitBreakerOpensThenClosesAfterSuccessfulTrial() {
+		MutableClock clock = new MutableClock();
+		CircuitBreaker breaker = new CircuitBreaker(0.5, 4, Duration.ofSeconds(30), clock);
+
+		for (int i = 0; i < 2; i++) {
+			breaker.onSuccess(breaker.tryAcquire());
+			breaker.onFailure(breaker.tryAcquire());
+		}
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+		clock.advance(Duration.ofSeconds(31));
+		long trial = breaker.tryAcquire();
+		assertNotRejected(trial);
+		assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire()); // un seul appel d'essai
+		breaker.onSuccess(trial);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertEquals(1, breaker.getOpenCount());
+		assertEquals(2, breaker.getRejectedCount());
+	}
+
+	@Test
+	public void staleSuccessDoesNotCloseAHalfOpenCircuit() {
+		MutableClock clock = new MutableClock();
+		CircuitBreaker breaker = new CircuitBreaker(0.5, 2, Duration.ofSeconds(30), clock);
+		long slow = breaker.tryAcquire();
+		breaker.onFailure(breaker.tryAcquire());
+		breaker.onFailure(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		clock.advance(Duration.ofSeconds(31));
+		long trial = breaker.tryAcquire();
+		assertNotRejected(trial);
+		breaker.onSuccess(slow); // autorisé fermé, il répond pendant l'essai
+		breaker.onCancelled(slow);
+
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire()); // l'essai est toujours en cours
+		breaker.onFailure(trial);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(2, breaker.getOpenCount());
+	}
+
+	@Test
+	public void rejectedExecutionStillDrainsTheQueue() throws InterruptedException {
+		TourGuideExecutor executor = new TourGuideExecutor(TourGuideExecutor.Mode.PLATFORM, 16,
+				Map.of(ExternalDependency.GPS, 1));
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Integer> running = executor.call(ExternalDependency.GPS, () -> {
+			await(release);
+			return 0;
+		});
+		List<CompletableFuture<Integer>> queued = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			queued.add(executor.call(ExternalDependency.GPS, () -> 1));
+		}
+		assertEquals(3, executor.getQueuedCount(ExternalDependency.GPS));
+
+		Thread closing = new Thread(executor::close);
+		closing.start();
+		TimeUnit.MILLISECONDS.sleep(100);
+		release.countDown();
+		closing.join(TimeUnit.SECONDS.toMillis(5));
+
+		assertEquals(0, running.join());
+		for (CompletableFuture<Integer> call : queued) {
+			CompletionException e = assertThrows(CompletionException.class, call::join);
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		assertEquals(0, executor.getQueuedCount(ExternalDependency.GPS));
+		assertEquals(0, executor.getInFlightCount(ExternalDependency.GPS));
+	}
+
+	@Test
+	public void openCircuitRejectsCallsWithoutAttemptingThem() {
+		TourGuideExecutor executor = executorWith(new ResiliencePolicy(Duration.ZERO, Duration.ZERO, 1, 2,
+				Duration.ofMinutes(1)));
+		AtomicInteger attempts = new AtomicInteger();
+
+		for (int i = 0; i < 2; i++) {
+			CompletionException e = assertThrows(CompletionException.class, () -> executor.call(ExternalDependency.GPS, () -> {
+				attempts.incrementAndGet();
+				throw new IllegalStateException("down");
+			}).join());
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		CompletionException rejected = assertThrows(CompletionException.class,
+				() -> executor.call(ExternalDependency.GPS, attempts::incrementAndGet).join());
+
+		assertTrue(rejected.getCause() instanceof CircuitOpenException);
+		assertEquals(2, attempts.get());
+		assertEquals(CircuitBreaker.State.OPEN, executor.getCircuitBreaker(ExternalDependency.GPS).getState());
+	}
+
+	@Test
+	public void slowCallTimesOutAndIsInterrupted() throws InterruptedException {
+		TourGuideExecutor executor = executorWith(new ResiliencePolicy(Duration.ofMillis(100), Duration.ZERO, 0.5, 100,
+				Duration.ofMinutes(1)));
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		CompletionException e = assertThrows(CompletionException.class, () -> executor.call(ExternalDependency.GPS, () -> {
+			try {
+				TimeUnit.SECONDS.sleep(10);
+			} catch (InterruptedException ie) {
+				interrupted.countDown();
+			}
+			return 0;
+		}).join());
+
+		assertTrue(e.getCause() instanceof TimeoutException);
+		assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+		assertEquals(1, executor.getTimeoutCount(ExternalDependency.GPS));
+	}
+
+	@Test
+	public void hedgedAttemptAnswersWhenFirstIsSlow() throws InterruptedException {
+		TourGuideExecutor executor = executorWith(new ResiliencePolicy(Duration.ZERO, Duration.ofMillis(50), 0.5, 100,
+				Duration.ofMinutes(1)));
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch firstInterrupted = new CountDownLatch(1);
+
+		long start = System.nanoTime();
+		int answer = executor.call(ExternalDependency.GPS, () -> {
+			if (attempts.incrementAndGet() == 1) {
+				try {
+					TimeUnit.SECONDS.sleep(10);
+				} catch (InterruptedException e) {
+					firstInterrupted.countDown();
+				}
+				return 1;
+			}
+			return 2;
+		}).join();
+
+		assertEquals(2, answer);
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		assertEquals(1, executor.getHedgeCount(ExternalDependency.GPS));
+		assertTrue(firstInterrupted.await(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void blockedDependencyDoesNotStarveTheOthersOnAFewPlatformThreads() throws Exception {
+		TourGuideExecutor executor = new TourGuideExecutor(TourGuideExecutor.Mode.PLATFORM, 8, Map.of());
+		assertEquals(8, executor.getPoolSize());
+		int rewardsLimit = executor.getLimit(ExternalDependency.REWARDS);
+		int limits = 0;
+		for (ExternalDependency dependency : ExternalDependency.values()) {
+			assertTrue(executor.getLimit(dependency) >= 1);
+			limits += executor.getLimit(dependency);
+		}
+		assertTrue(limits < 8); // il reste des threads pour les calculs
+
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(rewardsLimit);
+		for (int i = 0; i < rewardsLimit + 50; i++) {
+			executor.call(ExternalDependency.REWARDS, () -> {
+				blocked.countDown();
+				await(release);
+				return 0;
+			});
+		}
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+		try {
+			assertEquals(50, executor.getQueuedCount(ExternalDependency.REWARDS)); // en file, sans thread
+			assertEquals(1, executor.call(ExternalDependency.GPS, () -> 1).get(5, TimeUnit.SECONDS));
+			assertEquals(2, executor.call(ExternalDependency.PRICER, () -> 2).get(5, TimeUnit.SECONDS));
+			assertEquals(3, executor.supplyAsync(() -> 3).get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			executor.close();
+		}
+	}
+
+	@Test
+	public void platformLimitsFitThePoolWithoutExceedingTheConfiguredOnes() {
+		Map<ExternalDependency, Integer> limits = TourGuideExecutor.platformLimits(64, Map.of(ExternalDependency.PRICER, 2));
+		int total = limits.values().stream().mapToInt(Integer::intValue).sum();
+
+		assertTrue(total <= 64 - Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 16)));
+		assertTrue(limits.get(ExternalDependency.PRICER) <= 2);
+		assertTrue(limits.get(ExternalDependency.REWARDS) > limits.get(ExternalDependency.GPS));
+		assertEquals(Map.of(ExternalDependency.GPS, 3, ExternalDependency.REWARDS, 3, ExternalDependency.PRICER, 3),
+				TourGuideExecutor.platformLimits(1000, Map.of(ExternalDependency.GPS, 3, ExternalDependency.REWARDS, 3,
+						ExternalDependency.PRICER, 3)));
+		assertThrows(IllegalArgumentException.class, () -> TourGuideExecutor.platformLimits(2, Map.of()));
+	}
+
+	@Test
+	public void gpsFailureFallsBackToLastKnownLocation() {
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideExecutor executor = new TourGuideExecutor();
+		SimulatedLocationClient failingGps = new SimulatedLocationClient(SimulatedLocationClient.defaultAttractions(),
+				new CallSimulator(1, LatencyProfile.NONE, 1));
+		RewardsService rewardsService = new RewardsService(failingGps, new SimulatedRewardPointsClient(1), executor);
+		TourGuideService tourGuideService = new TourGuideService(failingGps, new SimulatedTripPricingClient(1),
+				rewardsService, executor);
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User unknown = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		VisitedLocation known = new VisitedLocation(user.getUserId(), new Location(10, 20), new Date());
+		user.addToVisitedLocations(known);
+
+		assertSame(known, tourGuideService.trackUserLocationWithCache(user));
+		assertEquals(1, user.getVisitedLocations().size());
+		assertThrows(CompletionException.class, () -> tourGuideService.trackUserLocationWithCache(unknown));
+		assertEquals(1, tourGuideService.getLocationFallbackCount());
+	}
+
+	@Test
+	public void rewardPointsFallBackToExpiredCacheEntry() {
+		MutableClock clock = new MutableClock();
+		AtomicBoolean down = new AtomicBoolean();
+		RewardPointsLoader loader = new RewardPointsLoader((attractionId, userId) -> {
+			if (down.get()) {
+				throw new IllegalStateException("down");
+			}
+			return 42;
+		}, new TourGuideExecutor(), new ExpiringCache<>(10, Duration.ofMinutes(1), clock));
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		assertEquals(42, loader.getRewardPoints(attractionId, userId).join());
+		clock.advance(Duration.ofMinutes(2));
+		down.set(true);
+
+		assertEquals(42, loader.getRewardPoints(attractionId, userId).join());
+		assertEquals(1, loader.getFallbackCount());
+		assertThrows(CompletionException.class, () -> loader.getRewardPoints(UUID.randomUUID(), userId).join());
+	}
+
+	private static TourGuideExecutor executorWith(ResiliencePolicy policy) {
+		return new TourGuideExecutor(TourGuideExecutor.Mode.PLATFORM, 16, Map.of(), Map.of(ExternalDependency.GPS, policy));
+	}
+
+	private static void assertNotRejected(long permit) {
+		assertTrue(permit != CircuitBreaker.REJECTED);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
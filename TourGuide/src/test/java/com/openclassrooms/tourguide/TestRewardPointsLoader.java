@@ -0,0 +1,148 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.cache.ExpiringCache;
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.client.simulation.SimulatedRewardPointsClient;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.service.RewardPointsLoader;
+import com.openclassrooms.tourguide.service.RewardPointsLoader.RewardKey;
+
+public class TestRewardPointsLoader {
+
+	@Test
+	public void coalescesIdenticalRequestsAndCachesResult() {
+		CountingRewardCentral rewardCentral = new CountingRewardCentral();
+		RewardPointsLoader loader = new RewardPointsLoader(rewardCentral, new TourGuideExecutor());
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			futures.add(loader.getRewardPoints(attractionId, userId));
+		}
+		futures.forEach(f -> assertEquals(42, f.join()));
+		assertEquals(42, loader.getRewardPoints(attractionId, userId).join());
+
+		assertEquals(1, rewardCentral.calls.get());
+		assertEquals(1, loader.getCache().size());
+	}
+
+	@Test
+	public void dispatchesEachLookupWithoutWaiting() throws InterruptedException {
+		CountDownLatch called = new CountDownLatch(1);
+		RewardPointsLoader loader = new RewardPointsLoader((attractionId, userId) -> {
+			called.countDown();
+			return 7;
+		}, new TourGuideExecutor(), new ExpiringCache<>(100, Duration.ofHours(1)));
+
+		CompletableFuture<Integer> points = loader.getRewardPoints(UUID.randomUUID(), UUID.randomUUID());
+
+		assertTrue(called.await(1, TimeUnit.SECONDS)); // client sans appel groupé : aucune fenêtre
+		assertEquals(7, points.join());
+		assertEquals(0, loader.getInFlightCount());
+		assertEquals(0, loader.getBatchCount());
+	}
+
+	@Test
+	public void sendsFullBatchAsOneCallWithoutWaitingForWindow() {
+		SimulatedRewardPointsClient client = new SimulatedRewardPointsClient(CallSimulator.DEFAULT_SEED);
+		RewardPointsLoader loader = new RewardPointsLoader(client, new TourGuideExecutor(),
+				new ExpiringCache<>(100, Duration.ofHours(1)), 10, Duration.ofHours(1));
+		UUID userId = UUID.randomUUID();
+		List<UUID> attractionIds = new ArrayList<>();
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			attractionIds.add(UUID.randomUUID());
+			futures.add(loader.getRewardPoints(attractionIds.get(i), userId));
+		}
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(client.getAttractionRewardPoints(attractionIds.get(i), userId), futures.get(i).join());
+		}
+		assertEquals(1, loader.getBatchCount());
+		assertEquals(1 + 10, client.getCalls().getCallCount()); // le lot, puis les vérifications
+	}
+
+	@Test
+	public void flushesPartialBatchAfterWindow() {
+		SimulatedRewardPointsClient client = new SimulatedRewardPointsClient(CallSimulator.DEFAULT_SEED);
+		RewardPointsLoader loader = new RewardPointsLoader(client, new TourGuideExecutor(),
+				new ExpiringCache<>(100, Duration.ofHours(1)), 64, Duration.ofMillis(20));
+
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			futures.add(loader.getRewardPoints(UUID.randomUUID(), UUID.randomUUID()));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).orTimeout(1, TimeUnit.SECONDS).join();
+
+		assertEquals(1, loader.getBatchCount());
+		assertEquals(1, client.getCalls().getCallCount());
+		assertEquals(0, loader.getInFlightCount());
+	}
+
+	@Test
+	public void cacheEvictsExpiredAndLeastRecentlyUsedEntries() {
+		MutableClock clock = new MutableClock();
+		ExpiringCache<RewardKey, Integer> cache = new ExpiringCache<>(2, Duration.ofMinutes(1), clock);
+		RewardKey first = new RewardKey(UUID.randomUUID(), UUID.randomUUID());
+		RewardKey second = new RewardKey(UUID.randomUUID(), UUID.randomUUID());
+		RewardKey third = new RewardKey(UUID.randomUUID(), UUID.randomUUID());
+
+		cache.put(first, 1);
+		clock.advance(Duration.ofSeconds(30));
+		cache.put(second, 2);
+		assertEquals(1, cache.get(first));
+
+		clock.advance(Duration.ofSeconds(31));
+		assertNull(cache.get(first));
+		assertEquals(2, cache.get(second));
+
+		cache.put(first, 1);
+		cache.put(third, 3);
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void rewardKeyIsComparedByValue() {
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+		RewardKey key = new RewardKey(attractionId, userId);
+
+		assertEquals(new RewardKey(attractionId, userId), key);
+		assertEquals(new RewardKey(attractionId, userId).hashCode(), key.hashCode());
+		assertEquals(attractionId, key.attractionId());
+		assertEquals(userId, key.userId());
+	}
+
+	private static class CountingRewardCentral extends RewardCentral {
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+			calls.incrementAndGet();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 42;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.VisitedLocation;
+import tripPricer.Provider;
+import com.openclassrooms.tourguide.client.simulation.CallSimulator;
+import com.openclassrooms.tourguide.client.simulation.LatencyProfile;
+import com.openclassrooms.tourguide.client.simulation.SimulatedFailureException;
+import com.openclassrooms.tourguide.client.simulation.SimulatedLocationClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedRewardPointsClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedTripPricingClient;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+public class TestSimulatedClients {
+
+	@Test
+	public void sameSeedProducesSameData() {
+		UUID userId = UUID.randomUUID();
+		UUID attractionId = UUID.randomUUID();
+		SimulatedLocationClient first = new SimulatedLocationClient(7);
+		SimulatedLocationClient second = new SimulatedLocationClient(7);
+
+		for (int i = 0; i < 3; i++) {
+			VisitedLocation a = first.getUserLocation(userId);
+			VisitedLocation b = second.getUserLocation(userId);
+			assertEquals(a.location.latitude, b.location.latitude, 0);
+			assertEquals(a.location.longitude, b.location.longitude, 0);
+		}
+		assertSame(first.getAttractions(), first.getAttractions());
+
+		int points = new SimulatedRewardPointsClient(7).getAttractionRewardPoints(attractionId, userId);
+		assertEquals(points, new SimulatedRewardPointsClient(7).getAttractionRewardPoints(attractionId, userId));
+		assertTrue(points >= 1 && points <= 1000);
+
+		List<Provider> quote = new SimulatedTripPricingClient(7).getPrice("key", userId, 2, 1, 3, 100);
+		List<Provider> again = new SimulatedTripPricingClient(7).getPrice("key", userId, 2, 1, 3, 100);
+		assertEquals(5, quote.stream().map(provider -> provider.name).distinct().count());
+		for (int i = 0; i < quote.size(); i++) {
+			assertEquals(quote.get(i).name, again.get(i).name);
+			assertEquals(quote.get(i).price, again.get(i).price, 0);
+		}
+	}
+
+	@Test
+	public void successiveLocationsOfAUserDiffer() {
+		SimulatedLocationClient client = new SimulatedLocationClient(7);
+		UUID userId = UUID.randomUUID();
+
+		VisitedLocation first = client.getUserLocation(userId);
+		VisitedLocation second = client.getUserLocation(userId);
+
+		assertFalse(first.location.latitude == second.location.latitude
+				&& first.location.longitude == second.location.longitude);
+	}
+
+	@Test
+	public void percentileProfileInterpolatesBetweenPercentiles() {
+		LatencyProfile profile = LatencyProfile.parse("percentiles:50=20,99=200");
+
+		assertEquals(20, profile.millisAt(0.1), 1e-9);
+		assertEquals(20, profile.millisAt(0.5), 1e-9);
+		assertEquals(110, profile.millisAt(0.745), 1e-9);
+		assertEquals(200, profile.millisAt(0.999), 1e-9);
+		assertEquals(15, LatencyProfile.parse("fixed:15").millisAt(0.3), 0);
+		assertTrue(LatencyProfile.parse("none").isNone());
+	}
+
+	@Test
+	public void recordedProfileFollowsEmpiricalDistribution() {
+		LatencyProfile profile = LatencyProfile.recorded(new double[] { 30, 10, 20 });
+
+		assertEquals(10, profile.millisAt(0), 0);
+		assertEquals(20, profile.millisAt(0.5), 1e-9);
+		assertEquals(30, profile.millisAt(1), 0);
+	}
+
+	@Test
+	public void failuresAreInjectedReproducibly() {
+		assertThrows(SimulatedFailureException.class,
+				() -> new SimulatedRewardPointsClient(new CallSimulator(1, LatencyProfile.NONE, 1))
+						.getAttractionRewardPoints(UUID.randomUUID(), UUID.randomUUID()));
+
+		List<Boolean> first = failurePattern(new CallSimulator(3, LatencyProfile.NONE, 0.3));
+		List<Boolean> second = failurePattern(new CallSimulator(3, LatencyProfile.NONE, 0.3));
+		assertEquals(first, second);
+		assertTrue(first.contains(true) && first.contains(false));
+	}
+
+	@Test
+	public void tourGuideServiceRunsOnSimulatedClients() {
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideExecutor executor = new TourGuideExecutor();
+		SimulatedLocationClient locationClient = new SimulatedLocationClient(11);
+		RewardsService rewardsService = new RewardsService(locationClient, new SimulatedRewardPointsClient(11), executor);
+		TourGuideService tourGuideService = new TourGuideService(locationClient, new SimulatedTripPricingClient(11),
+				rewardsService, executor);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocationWithCache(user);
+		List<Provider> providers = tourGuideService.getTripDeals(user);
+		tourGuideService.tracker.stopTracking();
+
+		VisitedLocation expected = new SimulatedLocationClient(11).getUserLocation(user.getUserId());
+		assertEquals(expected.location.latitude, visitedLocation.location.latitude, 0);
+		assertEquals(expected.location.longitude, visitedLocation.location.longitude, 0);
+		Map<String, Long> byName = providers.stream()
+				.collect(Collectors.groupingBy(provider -> provider.name, Collectors.counting()));
+		assertEquals(5, byName.size());
+		assertEquals(1, locationClient.getCalls().getCallCount());
+	}
+
+	private static List<Boolean> failurePattern(CallSimulator calls) {
+		List<Boolean> pattern = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			try {
+				calls.call("test");
+				pattern.add(false);
+			} catch (SimulatedFailureException e) {
+				pattern.add(true);
+			}
+		}
+		return pattern;
+	}
+}
@@ -0,0 +1,66 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import gpsUtil.GpsUtil;
+import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.metrics.TourGuideMetrics;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealPricer;
+
+public class TestTourGuideMetrics {
+
+	@Test
+	public void externalCallsAreTimedPerDependencyAndOutcome() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		TourGuideExecutor executor = new TourGuideExecutor();
+		executor.bindTo(registry);
+
+		executor.call(ExternalDependency.GPS, () -> 1).join();
+		executor.call(ExternalDependency.GPS, () -> {
+			throw new IllegalStateException("unavailable");
+		}).exceptionally(e -> null).join();
+
+		assertEquals(1, registry.get("tourguide.dependency.calls").tag("dependency", "gps")
+				.tag("operation", "getUserLocation").tag("outcome", "success").timer().count());
+		assertEquals(1, registry.get("tourguide.dependency.calls").tag("dependency", "gps")
+				.tag("outcome", "error").timer().count());
+		assertEquals(2, registry.get("tourguide.dependency.wait").tag("dependency", "gps").timer().count());
+		assertEquals(0, registry.get("tourguide.dependency.calls").tag("dependency", "pricer")
+				.tag("outcome", "success").timer().count());
+	}
+
+	@Test
+	public void locationCacheAndTrackerAreMeasured() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		new TourGuideMetrics(tourGuideService, new TripDealPricer(new TripPricer(), rewardsService.getExecutor()))
+				.bindTo(registry);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		tourGuideService.trackUserLocationWithCache(user);
+		tourGuideService.trackUserLocationWithCache(user); // servi par le cache
+
+		assertEquals(1, registry.get("tourguide.cache.size").tag("cache", "location").gauge().value(), 0);
+		assertEquals(0.5, registry.get("tourguide.cache.hit.ratio").tag("cache", "location").gauge().value(), 0);
+		assertEquals(1, registry.get("tourguide.users").gauge().value(), 0);
+		assertEquals(0, registry.get("tourguide.tracker.cycles").functionCounter().count(), 0);
+	}
+}
@@ -1,10 +1,17 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
@@ -12,7 +19,17 @@ import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.LocationClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedLocationClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedRewardPointsClient;
+import com.openclassrooms.tourguide.client.simulation.SimulatedTripPricingClient;
+import com.openclassrooms.tourguide.concurrent.CircuitBreaker;
+import com.openclassrooms.tourguide.concurrent.ExternalDependency;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.model.CurrentLocation;
+import com.openclassrooms.tourguide.model.NearbyAttraction;
+import com.openclassrooms.tourguide.model.NearbyAttractions;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.model.User;
@@ -55,6 +72,26 @@ public class TestTourGuideService {
 		assertEquals(user2, retrivedUser2);
 	}
 
+	@Test
+	public void getUserById() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User sameName = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		tourGuideService.addUser(user);
+		tourGuideService.addUser(sameName);
+
+		tourGuideService.tracker.stopTracking();
+
+		assertEquals(user, tourGuideService.getUser(user.getUserId()));
+		assertNull(tourGuideService.getUser(sameName.getUserId()));
+		assertEquals(1, tourGuideService.getUserRegistry().size());
+	}
+
 	@Test
 	public void getAllUsers() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -91,6 +128,48 @@ public class TestTourGuideService {
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
 
+	@Test
+	public void trackUserUpdatesLocationSnapshot() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User known = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		known.addToVisitedLocations(gpsUtil.getUserLocation(known.getUserId()));
+		tourGuideService.addUser(known);
+		assertEquals(1, tourGuideService.getLocationSnapshot().size());
+
+		Thread.sleep(5);
+		long since = System.currentTimeMillis();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocationWithCache(user);
+
+		List<CurrentLocation> changed = tourGuideService.getLocationSnapshot().changedSince(since - 1).toList();
+		assertEquals(1, changed.size());
+		assertEquals(user.getUserId(), changed.get(0).getUserId());
+		assertEquals(visitedLocation.location.latitude, changed.get(0).getLatitude(), 0);
+		assertEquals(2, tourGuideService.getLocationSnapshot().size());
+	}
+
+	@Test
+	public void cachedLocationIsNotAddedTwiceToHistory() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation first = tourGuideService.trackUserLocationWithCache(user);
+		VisitedLocation second = tourGuideService.trackUserLocationWithCache(user);
+
+		assertSame(first, second);
+		assertEquals(1, user.getVisitedLocations().size());
+	}
+
 	//@Disabled // Not yet implemented
 	@Test
 	public void getNearbyAttractions() {
@@ -109,6 +188,29 @@ public class TestTourGuideService {
 		assertEquals(5, attractions.size());
 	}
 
+	@Test
+	public void getNearbyAttractionsWithRewardPoints() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		NearbyAttractions nearby = tourGuideService.getNearbyAttractionsAsync(user).join();
+
+		VisitedLocation visitedLocation = user.getLastVisitedLocation();
+		assertEquals(visitedLocation.location.latitude, nearby.getUserLatitude(), 0);
+		List<NearbyAttraction> attractions = nearby.getAttractions();
+		assertEquals(5, attractions.size());
+		for (int i = 0; i < attractions.size(); i++) {
+			assertTrue(attractions.get(i).getRewardPoints() > 0);
+			assertTrue(i == 0 || attractions.get(i - 1).getDistance() <= attractions.get(i).getDistance());
+		}
+		// utilisateur immobile : la liste mémorisée est resservie
+		assertSame(attractions, tourGuideService.getNearbyAttractionsAsync(user).join().getAttractions());
+	}
+
 	@Test
 	public void getTripDeals() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -122,7 +224,63 @@ public class TestTourGuideService {
 
 		tourGuideService.tracker.stopTracking();
 
-		assertEquals(10, providers.size());
+		// deux demandes de 5 offres, fusionnées à une offre par fournisseur
+		long distinctProviders = providers.stream().map(provider -> provider.name).distinct().count();
+		assertEquals(providers.size(), distinctProviders);
+		assertTrue(providers.size() >= 5 && providers.size() <= 10);
+		assertSame(providers, tourGuideService.getTripDeals(user));
 	}
 
+	@Test
+	public void cancelledLocationRequestReleasesItsGpsPermit() throws InterruptedException {
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideExecutor executor = new TourGuideExecutor(TourGuideExecutor.Mode.PLATFORM, 4,
+				Map.of(ExternalDependency.GPS, 1));
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		LocationClient blockingGps = new LocationClient() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				calls.incrementAndGet();
+				started.countDown();
+				try {
+					TimeUnit.SECONDS.sleep(10);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				throw new IllegalStateException("no answer");
+			}
+
+			@Override
+			public List<Attraction> getAttractions() {
+				return SimulatedLocationClient.defaultAttractions();
+			}
+		};
+		RewardsService rewardsService = new RewardsService(blockingGps, new SimulatedRewardPointsClient(1), executor);
+		TourGuideService tourGuideService = new TourGuideService(blockingGps, new SimulatedTripPricingClient(1),
+				rewardsService, executor);
+		tourGuideService.tracker.stopTracking();
+		User running = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User queued = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+
+		CompletableFuture<VisitedLocation> first = tourGuideService.getUserLocationAsync(running);
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		CompletableFuture<VisitedLocation> second = tourGuideService.getUserLocationAsync(queued);
+		assertEquals(1, executor.getQueuedCount(ExternalDependency.GPS));
+
+		second.cancel(true);
+		first.cancel(true);
+
+		assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (executor.getInFlightCount(ExternalDependency.GPS) > 0 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertEquals(0, executor.getInFlightCount(ExternalDependency.GPS));
+		assertEquals(0, executor.getQueuedCount(ExternalDependency.GPS));
+		assertEquals(1, calls.get()); // l'appel en file n'a jamais démarré
+		assertEquals(CircuitBreaker.State.CLOSED, executor.getCircuitBreaker(ExternalDependency.GPS).getState());
+		executor.close();
+	}
 }
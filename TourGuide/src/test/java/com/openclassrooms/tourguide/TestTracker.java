@@ -0,0 +1,79 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.GpsUtil;
+import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.cache.LocationCache;
+import com.openclassrooms.tourguide.client.LocationClient;
+import com.openclassrooms.tourguide.concurrent.TourGuideExecutor;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.helper.InternalUserGenerator;
+import com.openclassrooms.tourguide.model.LocationHistory.HistoryPolicy;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.NearbyAttractionFinder;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealPricer;
+import com.openclassrooms.tourguide.tracker.Tracker;
+
+public class TestTracker {
+
+	@Test
+	public void tracksUsersAddedAfterStart() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(5);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		Tracker tracker = new Tracker(tourGuideService, Duration.ofMillis(500), 2);
+		tracker.startTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (tracker.getCompletedCycles() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		tracker.stopTracking();
+
+		assertTrue(tracker.getCompletedCycles() >= 2);
+		assertEquals(6, tracker.getLastCycleUsers());
+		assertFalse(user.getVisitedLocations().isEmpty());
+	}
+
+	@Test
+	public void trackerCycleIsServedByTheLocationCache() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		TourGuideExecutor executor = new TourGuideExecutor();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(5);
+		Duration interval = Duration.ofMillis(500);
+		LocationCache locationCache = LocationCache.forTracking(100, interval, Clock.systemUTC());
+		TourGuideService tourGuideService = new TourGuideService(LocationClient.of(gpsUtil), rewardsService, executor,
+				HistoryPolicy.defaults(), new TripDealPricer(new TripPricer(), executor), rewardsService.getUserStore(),
+				locationCache, new NearbyAttractionFinder(rewardsService), new InternalUserGenerator());
+
+		Tracker tracker = new Tracker(tourGuideService, interval, 2);
+		tracker.startTracking();
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (tracker.getCompletedCycles() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		tracker.stopTracking();
+
+		assertTrue(tracker.getCompletedCycles() >= 2);
+		assertTrue(locationCache.getHitRatio() > 0); // le second cycle lit le cache
+		assertTrue(locationCache.getRefreshCount() >= 5); // et recharge chaque utilisateur en arrière-plan
+	}
+}
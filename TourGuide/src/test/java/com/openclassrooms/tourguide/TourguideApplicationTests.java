@@ -1,13 +1,64 @@
 package com.openclassrooms.tourguide;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.geo.GeofenceEngine;
+import com.openclassrooms.tourguide.model.User;
+import com.openclassrooms.tourguide.service.NearbyAttractionFinder;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
 @SpringBootTest
 class TourguideApplicationTests {
 
+	@Autowired
+	private TourGuideService tourGuideService;
+
+	@Autowired
+	private RewardsService rewardsService;
+
+	@Autowired
+	private NearbyAttractionFinder nearbyAttractionFinder;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void rewardsServiceIsASingleSharedInstance() {
+		assertSame(rewardsService, tourGuideService.getRewardsService());
+		assertSame(rewardsService, nearbyAttractionFinder.getRewardsService());
+		assertSame(nearbyAttractionFinder, tourGuideService.getNearbyAttractionFinder());
+	}
+
+	@Test
+	void sharedGeofenceEngineEmitsOneEntryPerAttraction() {
+		GeofenceEngine engine = rewardsService.getGeofenceEngine();
+		assertSame(engine, nearbyAttractionFinder.getRewardsService().getGeofenceEngine());
+		Attraction attraction = rewardsService.getAttractionCatalog().snapshot().get(0);
+		User user = new User(UUID.randomUUID(), "geofence", "000", "geofence@tourGuide.com");
+		long entered = engine.getEnteredCount();
+
+		for (int i = 0; i < 3; i++) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date(i)));
+			// calculs lancés par les deux consommateurs du service, pour le même utilisateur
+			CompletableFuture.allOf(tourGuideService.getRewardsService().calculateRewards(user),
+					nearbyAttractionFinder.getRewardsService().calculateRewards(user)).join();
+		}
+
+		assertEquals(entered + 1, engine.getEnteredCount());
+		assertEquals(1, user.getUserRewards().size());
+	}
+
 }